@@ -0,0 +1,68 @@
+package com.beaver.gateway.benchmark;
+
+import com.beaver.gateway.ratelimit.ClientAddressResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client address resolution for a direct client, a chain of trusted proxies and an IPv6 client.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClientAddressBenchmark {
+
+    private ClientAddressResolver resolver;
+    private ServerHttpRequest direct;
+    private ServerHttpRequest proxied;
+    private ServerHttpRequest proxiedIpv6;
+
+    @Setup
+    public void setUp() {
+        resolver = new ClientAddressResolver(List.of("10.0.0.0/8", "172.16.0.0/12", "fc00::/7"));
+        direct = MockServerHttpRequest.get("/identity/users/me")
+                .remoteAddress(new InetSocketAddress("198.51.100.4", 50_000))
+                .header("X-Forwarded-For", "1.1.1.1")
+                .build();
+        proxied = MockServerHttpRequest.get("/identity/users/me")
+                .remoteAddress(new InetSocketAddress("10.0.0.5", 50_000))
+                .header("X-Forwarded-For", "1.1.1.1, 203.0.113.7, 172.16.4.2, 10.0.3.9")
+                .build();
+        proxiedIpv6 = MockServerHttpRequest.get("/identity/users/me")
+                .remoteAddress(new InetSocketAddress("10.0.0.5", 50_000))
+                .header("X-Forwarded-For", "[2001:db8:1:2:aaaa:bbbb:cccc:dddd]:443, fd00::12")
+                .build();
+    }
+
+    @Benchmark
+    public long directClient() {
+        return resolver.resolve(direct);
+    }
+
+    @Benchmark
+    public long trustedProxyChain() {
+        return resolver.resolve(proxied);
+    }
+
+    @Benchmark
+    public long trustedProxyChainIpv6() {
+        return resolver.resolve(proxiedIpv6);
+    }
+}
@@ -0,0 +1,96 @@
+package com.beaver.gateway.benchmark;
+
+import com.beaver.auth.exceptions.JwtTokenMissingException;
+import com.beaver.gateway.config.GlobalExceptionHandler;
+import com.beaver.gateway.config.RateLimitProperties;
+import com.beaver.gateway.error.ErrorResponseRenderer;
+import com.beaver.gateway.filter.GatewayRateLimitFilter;
+import com.beaver.gateway.metrics.GatewayMetrics;
+import com.beaver.gateway.ratelimit.BucketStore;
+import com.beaver.gateway.ratelimit.ClientAddressResolver;
+import com.beaver.gateway.ratelimit.InMemoryRateLimiter;
+import com.beaver.gateway.ratelimit.RouteLimits;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Error responses on the paths that see floods: the renderer itself, a 429 from the rate-limit
+ * filter, and an exception routed through GlobalExceptionHandler.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ErrorRenderingBenchmark {
+
+    private static final GatewayFilterChain TERMINAL = exchange -> Mono.empty();
+
+    private ErrorResponseRenderer renderer;
+    private ErrorResponseRenderer.Template unauthorized;
+    private GatewayRateLimitFilter rateLimitFilter;
+    private GlobalExceptionHandler exceptionHandler;
+    private JwtTokenMissingException missingToken;
+
+    @Setup
+    public void setUp() {
+        renderer = new ErrorResponseRenderer();
+        unauthorized = renderer.template(HttpStatus.UNAUTHORIZED, "Unauthorized", "Access token is required");
+
+        // One token a minute, so effectively every request is rejected
+        RateLimitProperties.RouteLimit limit = new RateLimitProperties.RouteLimit();
+        limit.setClient(new RateLimitProperties.Bucket(1, 1));
+        limit.setCost(60);
+        rateLimitFilter = new GatewayRateLimitFilter(new InMemoryRateLimiter(
+                new BucketStore(1_024, TimeUnit.MINUTES.toNanos(2)), RouteLimits.compile("default", limit), Map.of()),
+                new ClientAddressResolver(List.of()), renderer, new GatewayMetrics());
+
+        exceptionHandler = new GlobalExceptionHandler(renderer);
+        missingToken = new JwtTokenMissingException("Access token is required");
+    }
+
+    @Benchmark
+    public MockServerWebExchange renderTemplate() {
+        MockServerWebExchange exchange = exchange();
+        renderer.write(exchange, unauthorized).block();
+        return exchange;
+    }
+
+    @Benchmark
+    public MockServerWebExchange rateLimitRejection() {
+        MockServerWebExchange exchange = exchange();
+        rateLimitFilter.filter(exchange, TERMINAL).block();
+        return exchange;
+    }
+
+    @Benchmark
+    public MockServerWebExchange exceptionHandler() {
+        MockServerWebExchange exchange = exchange();
+        exceptionHandler.handleJwtTokenMissing(missingToken, exchange).block();
+        return exchange;
+    }
+
+    private static MockServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/identity/users/me")
+                .remoteAddress(new InetSocketAddress("203.0.113.7", 50_000)));
+    }
+}
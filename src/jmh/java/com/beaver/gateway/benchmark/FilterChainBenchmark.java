@@ -0,0 +1,150 @@
+package com.beaver.gateway.benchmark;
+
+import com.beaver.auth.cookie.AuthCookieService;
+import com.beaver.auth.jwt.JwtConfig;
+import com.beaver.auth.jwt.JwtService;
+import com.beaver.gateway.auth.JwtClaimsCache;
+import com.beaver.gateway.auth.TokenRevocationList;
+import com.beaver.gateway.auth.VerifiedClaims;
+import com.beaver.gateway.config.HotConfigHolder;
+import com.beaver.gateway.error.ErrorResponseRenderer;
+import com.beaver.gateway.filter.AuthenticationFilter;
+import com.beaver.gateway.filter.ContextEnrichmentFilter;
+import com.beaver.gateway.metrics.GatewayMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpCookie;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AuthenticationFilter and ContextEnrichmentFilter against mock exchanges carrying real HS256
+ * tokens signed with the same key the gateway verifies with. Every invocation builds a fresh
+ * exchange, which {@link #exchangeOnly} measures on its own so it can be subtracted.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilterChainBenchmark {
+
+    private static final String SECRET = "benchmark-secret-benchmark-secret-0123456789";
+    private static final String PATH = "/identity/users/me";
+    private static final GatewayFilterChain TERMINAL = exchange -> Mono.empty();
+
+    private JwtService jwtService;
+    private GatewayFilter authentication;
+    private GatewayFilter enrichment;
+    private String token;
+    private String forgedToken;
+    private VerifiedClaims claims;
+
+    @Setup
+    public void setUp() {
+        JwtConfig jwtConfig = new JwtConfig();
+        jwtConfig.setSecret(SECRET);
+        jwtService = new JwtService(jwtConfig);
+
+        GatewayMetrics metrics = new GatewayMetrics();
+        JwtClaimsCache claimsCache = new JwtClaimsCache(jwtService, new ObjectMapper(), 10_000, Duration.ofMinutes(5));
+        HotConfigHolder hotConfig = new HotConfigHolder(new MockEnvironment()
+                .withProperty("gateway.auth.public-paths", "/identity/auth/**,/auth/**")
+                .withProperty("gateway.secret", "benchmark-gateway-secret"));
+        authentication = new AuthenticationFilter(claimsCache,
+                new TokenRevocationList("", "", 100_000, Duration.ofSeconds(2)), hotConfig, new AuthCookieService(),
+                new ErrorResponseRenderer(), metrics)
+                .apply(new AuthenticationFilter.Config());
+        enrichment = new ContextEnrichmentFilter(hotConfig, metrics).apply(new ContextEnrichmentFilter.Config());
+
+        token = sign(SECRET);
+        forgedToken = sign("forged-secret-forged-secret-forged-secret-0123");
+        claims = new VerifiedClaims("user-1", "workspace-1", "OWNER", System.currentTimeMillis() + 3_600_000);
+
+        // Prime the verified-claims cache so the steady state is measured
+        authenticateCachedToken();
+    }
+
+    @Benchmark
+    public MockServerWebExchange exchangeOnly() {
+        return exchange(token);
+    }
+
+    @Benchmark
+    public MockServerWebExchange authenticateCachedToken() {
+        MockServerWebExchange exchange = exchange(token);
+        authentication.filter(exchange, TERMINAL).block();
+        return exchange;
+    }
+
+    /** A bad signature is never cached, so this pays the full HMAC check and renders a 401 every time. */
+    @Benchmark
+    public MockServerWebExchange authenticateForgedToken() {
+        MockServerWebExchange exchange = exchange(forgedToken);
+        authentication.filter(exchange, TERMINAL).block();
+        return exchange;
+    }
+
+    /** Token verification and claim extraction as done on a cache miss. */
+    @Benchmark
+    public Object verifyUncached() {
+        return jwtService.isValidAccessToken(token)
+                .filter(Boolean::booleanValue)
+                .flatMap(valid -> Mono.zip(jwtService.extractUserId(token), jwtService.extractWorkspaceId(token),
+                        jwtService.extractRole(token)))
+                .block();
+    }
+
+    @Benchmark
+    public MockServerWebExchange enrichContext() {
+        MockServerWebExchange exchange = exchange(token);
+        exchange.getAttributes().put(AuthenticationFilter.VERIFIED_CLAIMS_ATTR, claims);
+        enrichment.filter(exchange, TERMINAL).block();
+        return exchange;
+    }
+
+    @Benchmark
+    public MockServerWebExchange authenticateAndEnrich() {
+        MockServerWebExchange exchange = exchange(token);
+        authentication.filter(exchange, next -> enrichment.filter(next, TERMINAL)).block();
+        return exchange;
+    }
+
+    private static MockServerWebExchange exchange(String accessToken) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(PATH)
+                .cookie(new HttpCookie("access_token", accessToken))
+                .header("X-User-Id", "spoofed"));
+    }
+
+    private static String sign(String secret) {
+        return Jwts.builder()
+                .subject("user-1")
+                .claim("workspaceId", "workspace-1")
+                .claim("role", "OWNER")
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))
+                .signWith(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+    }
+}
@@ -0,0 +1,78 @@
+package com.beaver.gateway.benchmark;
+
+import com.beaver.gateway.config.RateLimitProperties;
+import com.beaver.gateway.ratelimit.BucketStore;
+import com.beaver.gateway.ratelimit.ClientKeys;
+import com.beaver.gateway.ratelimit.GatewayRateLimiter;
+import com.beaver.gateway.ratelimit.InMemoryRateLimiter;
+import com.beaver.gateway.ratelimit.RouteLimits;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limiter decisions with every thread hammering one bucket (worst-case CAS contention, as under a
+ * single-source flood) and with threads spread over many clients (the normal mix).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+
+    private static final long CLIENTS = 100_000;
+
+    private GatewayRateLimiter limiter;
+    private RouteLimits limits;
+    private long hotClient;
+
+    @Setup
+    public void setUp() {
+        RateLimitProperties.RouteLimit limit = new RateLimitProperties.RouteLimit();
+        limit.setGlobal(new RateLimitProperties.Bucket(1_000_000, 1_000_000));
+        limit.setWorkspace(new RateLimitProperties.Bucket(10_000, 5_000));
+        limit.setClient(new RateLimitProperties.Bucket(10, 5));
+        limits = RouteLimits.compile("benchmark", limit);
+        limiter = new InMemoryRateLimiter(new BucketStore(65_536, TimeUnit.MINUTES.toNanos(2)), limits, Map.of());
+        hotClient = ClientKeys.of("203.0.113.7");
+    }
+
+    @Benchmark
+    public long sameClient() {
+        return limiter.tryAcquire(limits, GatewayRateLimiter.NO_WORKSPACE, hotClient);
+    }
+
+    @Benchmark
+    public long manyClients() {
+        long client = ClientKeys.ofIpv4(0x0A00_0000 + (int) ThreadLocalRandom.current().nextLong(CLIENTS));
+        return limiter.tryAcquire(limits, GatewayRateLimiter.NO_WORKSPACE, client);
+    }
+
+    @Benchmark
+    public long manyClientsOneWorkspace() {
+        long client = ClientKeys.ofIpv4(0x0A00_0000 + (int) ThreadLocalRandom.current().nextLong(CLIENTS));
+        return limiter.tryAcquire(limits, hotClient, client);
+    }
+
+    /** The Spring Cloud Gateway {@link RateLimiter} entry point, including its string keying. */
+    @Benchmark
+    public RateLimiter.Response isAllowed() {
+        return limiter.isAllowed("benchmark", "203.0.113.7").block();
+    }
+}
@@ -0,0 +1,78 @@
+package com.beaver.gateway.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps every latency sample of a run so percentiles are exact. Sized up front from the planned
+ * request count; samples beyond that are counted but not kept.
+ */
+final class LatencyRecorder {
+
+    private final long[] samples;
+    private final AtomicInteger recorded = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder success = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder clientErrors = new LongAdder();
+    private final LongAdder serverErrors = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    LatencyRecorder(int expectedSamples) {
+        this.samples = new long[expectedSamples];
+    }
+
+    void record(long latencyNanos, int status) {
+        if (status == 429) {
+            rateLimited.increment();
+        } else if (status >= 500) {
+            serverErrors.increment();
+        } else if (status >= 400) {
+            clientErrors.increment();
+        } else {
+            success.increment();
+        }
+        store(latencyNanos);
+    }
+
+    /** A request that got no response at all, e.g. a refused connection or a timeout. */
+    void recordFailure(long latencyNanos) {
+        failures.increment();
+        store(latencyNanos);
+    }
+
+    private void store(long latencyNanos) {
+        int index = recorded.getAndIncrement();
+        if (index < samples.length) {
+            samples[index] = latencyNanos;
+        } else {
+            dropped.increment();
+        }
+    }
+
+    int completed() {
+        return recorded.get();
+    }
+
+    Summary summarize() {
+        int count = Math.min(recorded.get(), samples.length);
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        return new Summary(recorded.get(), success.sum(), rateLimited.sum(), clientErrors.sum(), serverErrors.sum(),
+                failures.sum(), dropped.sum(), percentile(sorted, 0.50), percentile(sorted, 0.99),
+                percentile(sorted, 0.999), count == 0 ? 0 : sorted[count - 1]);
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    record Summary(long completed, long success, long rateLimited, long clientErrors, long serverErrors,
+                   long failures, long dropped, long p50Nanos, long p99Nanos, long p999Nanos, long maxNanos) {
+    }
+}
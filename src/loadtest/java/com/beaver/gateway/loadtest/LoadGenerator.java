@@ -0,0 +1,86 @@
+package com.beaver.gateway.loadtest;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop generator: requests leave on a fixed schedule whether or not earlier ones have
+ * completed, and latency is measured from the scheduled send time. A stalled gateway therefore
+ * shows up in the tail instead of silently lowering the offered load (coordinated omission).
+ */
+final class LoadGenerator {
+
+    private final HttpClient client;
+
+    LoadGenerator(HttpClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Offers {@code rate} requests per second for {@code duration}, then waits for stragglers.
+     *
+     * @param recorder where results go, or {@code null} to discard them (warm-up)
+     * @return nanoseconds from the first send until the last response
+     */
+    long run(LoadScenario scenario, int rate, Duration duration, LatencyRecorder recorder) {
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        AtomicInteger inflight = new AtomicInteger();
+
+        for (long i = 0; ; i++) {
+            long intended = start + i * interval;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            inflight.incrementAndGet();
+            send(scenario, i).subscribe(
+                    status -> {
+                        if (recorder != null) {
+                            recorder.record(System.nanoTime() - intended, status);
+                        }
+                        inflight.decrementAndGet();
+                    },
+                    error -> {
+                        if (recorder != null) {
+                            recorder.recordFailure(System.nanoTime() - intended);
+                        }
+                        inflight.decrementAndGet();
+                    });
+        }
+
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (inflight.get() > 0 && System.nanoTime() < drainDeadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return System.nanoTime() - start;
+    }
+
+    private Mono<Integer> send(LoadScenario scenario, long sequence) {
+        String cookie = scenario.cookie(sequence);
+        String forwardedFor = scenario.forwardedFor(sequence);
+        return client
+                .headers(headers -> {
+                    if (cookie != null) {
+                        headers.set(HttpHeaderNames.COOKIE, cookie);
+                    }
+                    if (forwardedFor != null) {
+                        headers.set("X-Forwarded-For", forwardedFor);
+                    }
+                })
+                .get()
+                .uri(scenario.path())
+                .responseSingle((response, body) -> body.then(Mono.just(response.status().code())));
+    }
+}
@@ -0,0 +1,19 @@
+package com.beaver.gateway.loadtest;
+
+/**
+ * One traffic shape: a path plus per-request credentials and client address, chosen round-robin
+ * from pools so the per-user and per-IP limits see a realistic spread of callers.
+ *
+ * @param cookies cookie header values to rotate through, or {@code null} for anonymous requests
+ * @param clients X-Forwarded-For values to rotate through
+ */
+record LoadScenario(String name, String path, String[] cookies, String[] clients) {
+
+    String cookie(long sequence) {
+        return cookies == null ? null : cookies[(int) (sequence % cookies.length)];
+    }
+
+    String forwardedFor(long sequence) {
+        return clients[(int) (sequence % clients.length)];
+    }
+}
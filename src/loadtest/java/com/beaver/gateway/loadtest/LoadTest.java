@@ -0,0 +1,180 @@
+package com.beaver.gateway.loadtest;
+
+import com.beaver.gateway.GatewayApplication;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end load test: starts the stub identity service, boots the gateway on a random port with
+ * the routes from the main application.yml pointed at the stub, and drives each scenario with an
+ * open-loop generator. Everything runs on loopback.
+ * <p>
+ * Harness options are {@code key=value} arguments; arguments starting with {@code --} are passed
+ * to the gateway as Spring properties, e.g. {@code --gateway.rate-limit.routes.beaver-identity.cost=1}.
+ * <pre>
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.args="rate=2000 duration=60s latency=10ms error-rate=0.01 slow-rate=0.02"
+ * </pre>
+ */
+public final class LoadTest {
+
+    private static final Map<String, String> DEFAULTS = Map.ofEntries(
+            Map.entry("rate", "500"),
+            Map.entry("duration", "30s"),
+            Map.entry("warmup", "10s"),
+            Map.entry("users", "1000"),
+            Map.entry("workspaces", "100"),
+            Map.entry("scenarios", "auth,public,rate-limited"),
+            Map.entry("latency", "5ms"),
+            Map.entry("jitter", "2ms"),
+            Map.entry("error-rate", "0"),
+            Map.entry("slow-rate", "0"),
+            Map.entry("slow-latency", "500ms"),
+            Map.entry("connections", "1000"));
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        options.put("config", "file:target/classes/application.yml");
+        List<String> gatewayArgs = new ArrayList<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (arg.startsWith("--")) {
+                gatewayArgs.add(arg);
+            } else if (equals > 0 && options.containsKey(arg.substring(0, equals))) {
+                options.put(arg.substring(0, equals), arg.substring(equals + 1));
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + arg + " (known: " + options.keySet() + ")");
+            }
+        }
+
+        int rate = Integer.parseInt(options.get("rate"));
+        Duration duration = DurationStyle.detectAndParse(options.get("duration"));
+        Duration warmup = DurationStyle.detectAndParse(options.get("warmup"));
+
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        try (StubIdentityService stub = new StubIdentityService(DurationStyle.detectAndParse(options.get("latency")),
+                DurationStyle.detectAndParse(options.get("jitter")), Double.parseDouble(options.get("error-rate")),
+                Double.parseDouble(options.get("slow-rate")), DurationStyle.detectAndParse(options.get("slow-latency")))) {
+
+            gatewayArgs.add(0, "--spring.config.location=" + options.get("config"));
+            gatewayArgs.add(1, "--server.port=0");
+            gatewayArgs.add(2, "--beaver.identity.url=" + stub.baseUrl());
+            ConfigurableApplicationContext gateway = new SpringApplicationBuilder(GatewayApplication.class)
+                    .properties(Map.of(
+                            "JWT_SECRET", "loadtest-secret-loadtest-secret-loadtest-secret-0123456789",
+                            "JWT_ACCESS_VALIDITY", "900000",
+                            "JWT_REFRESH_VALIDITY", "86400000",
+                            "GATEWAY_SECRET", "loadtest-gateway-secret",
+                            "METRICS_PORT", "0",
+                            "ACCESS_LOG_PATH", Files.createTempDirectory("beaver-loadtest")
+                                    .resolve("access.log").toString(),
+                            "logging.level.root", "WARN"))
+                    .run(gatewayArgs.toArray(String[]::new));
+
+            ConnectionProvider connections = ConnectionProvider.builder("loadtest")
+                    .maxConnections(Integer.parseInt(options.get("connections")))
+                    .pendingAcquireMaxCount(-1)
+                    .build();
+            try {
+                int port = ((WebServerApplicationContext) gateway).getWebServer().getPort();
+                HttpClient client = HttpClient.create(connections)
+                        .baseUrl("http://127.0.0.1:" + port)
+                        .responseTimeout(Duration.ofSeconds(10));
+                LoadGenerator generator = new LoadGenerator(client);
+
+                List<LoadScenario> scenarios = scenarios(options.get("scenarios").split(","),
+                        gateway.getEnvironment().getProperty("jwt.secret"),
+                        Integer.parseInt(options.get("users")), Integer.parseInt(options.get("workspaces")));
+
+                System.out.printf("%nGateway on port %d, stub at %s, %d req/s for %s after %s warm-up%n%n",
+                        port, stub.baseUrl(), rate, duration, warmup);
+                System.out.printf("%-14s %9s %9s %8s %8s %8s %8s %8s %9s %9s %9s %9s%n", "scenario", "sent",
+                        "req/s", "2xx", "429", "4xx", "5xx", "failed", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+
+                for (LoadScenario scenario : scenarios) {
+                    if (!warmup.isZero()) {
+                        generator.run(scenario, rate, warmup, null);
+                    }
+                    LatencyRecorder recorder = new LatencyRecorder((int) (rate * (duration.toMillis() / 1000 + 1)));
+                    long elapsed = generator.run(scenario, rate, duration, recorder);
+                    report(scenario, recorder.summarize(), elapsed);
+                }
+            } finally {
+                connections.disposeLater().block(Duration.ofSeconds(5));
+                gateway.close();
+            }
+        }
+        System.exit(0);
+    }
+
+    private static List<LoadScenario> scenarios(String[] names, String jwtSecret, int users, int workspaces) {
+        String[] clients = new String[users];
+        for (int i = 0; i < users; i++) {
+            // 198.18.0.0/15 is reserved for benchmarking and outside the default trusted proxies
+            clients[i] = "198." + (18 + ((i >> 16) & 1)) + "." + ((i >> 8) & 0xFF) + "." + (i & 0xFF);
+        }
+
+        List<LoadScenario> scenarios = new ArrayList<>();
+        for (String name : names) {
+            switch (name.trim()) {
+                case "auth" -> {
+                    String[] cookies = new String[users];
+                    for (int i = 0; i < users; i++) {
+                        cookies[i] = "access_token=" + sign(jwtSecret, "user-" + i, "workspace-" + (i % workspaces));
+                    }
+                    scenarios.add(new LoadScenario("auth", "/identity/users/me", cookies, clients));
+                }
+                case "public" -> scenarios.add(new LoadScenario("public", "/identity/auth/session", null, clients));
+                case "rate-limited" -> scenarios.add(new LoadScenario("rate-limited", "/identity/auth/session", null,
+                        new String[]{"198.51.100.77"}));
+                default -> throw new IllegalArgumentException("Unknown scenario: " + name);
+            }
+        }
+        return scenarios;
+    }
+
+    static String sign(String secret, String userId, String workspaceId) {
+        return Jwts.builder()
+                .subject(userId)
+                .claim("workspaceId", workspaceId)
+                .claim("role", "MEMBER")
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))
+                .signWith(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+    }
+
+    private static void report(LoadScenario scenario, LatencyRecorder.Summary summary, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%-14s %9d %9.0f %8d %8d %8d %8d %8d %9.2f %9.2f %9.2f %9.2f%n", scenario.name(),
+                summary.completed(), summary.completed() / seconds, summary.success(), summary.rateLimited(),
+                summary.clientErrors(), summary.serverErrors(), summary.failures(), millis(summary.p50Nanos()),
+                millis(summary.p99Nanos()), millis(summary.p999Nanos()), millis(summary.maxNanos()));
+        if (summary.dropped() > 0) {
+            System.out.printf("%-14s %d samples beyond the planned count were not kept%n", "", summary.dropped());
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
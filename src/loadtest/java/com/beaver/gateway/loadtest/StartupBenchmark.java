@@ -0,0 +1,201 @@
+package com.beaver.gateway.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Startup benchmark: time from launching a gateway JVM to its first successful proxied request,
+ * for the default build and the fast-start build. Every run is a fresh process against the stub
+ * identity service, polled with an authenticated request until it answers 2xx. Modes take turns
+ * run by run, so drift on the machine affects them alike.
+ * <p>
+ * {@code default} is the Spring Boot jar; {@code aot} and {@code faststart} both run the
+ * {@code -Pfaststart} jar with AOT bean definitions, and {@code faststart} adds the CDS archive.
+ * <pre>
+ * mvn -Pfaststart,loadtest package exec:exec -DskipTests -Dloadtest.main=com.beaver.gateway.loadtest.StartupBenchmark -Dloadtest.args="runs=10"
+ * </pre>
+ */
+public final class StartupBenchmark {
+
+    private static final String JWT_SECRET = "startup-secret-startup-secret-startup-secret-0123456789";
+
+    private static final Map<String, String> DEFAULTS = Map.of(
+            "runs", "5",
+            "warmup-runs", "1",
+            "modes", "default,aot,faststart",
+            "timeout", "60s",
+            "target", "target",
+            "java", Path.of(System.getProperty("java.home"), "bin", "java").toString());
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals > 0 && options.containsKey(arg.substring(0, equals))) {
+                options.put(arg.substring(0, equals), arg.substring(equals + 1));
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + arg + " (known: " + options.keySet() + ")");
+            }
+        }
+        int runs = Integer.parseInt(options.get("runs"));
+        int warmupRuns = Integer.parseInt(options.get("warmup-runs"));
+        Duration timeout = DurationStyle.detectAndParse(options.get("timeout"));
+        Path target = Path.of(options.get("target"));
+        Path logs = Files.createDirectories(target.resolve("startup-benchmark"));
+
+        Map<String, Launch> modes = new LinkedHashMap<>();
+        for (String mode : options.get("modes").split(",")) {
+            modes.put(mode.trim(), launch(mode.trim(), options.get("java"), target));
+        }
+
+        Map<String, long[]> results = new LinkedHashMap<>();
+        modes.keySet().forEach(mode -> results.put(mode, new long[runs]));
+
+        ConnectionProvider connections = ConnectionProvider.newConnection();
+        try (StubIdentityService stub = new StubIdentityService(Duration.ZERO, Duration.ZERO, 0, 0, Duration.ZERO)) {
+            String cookie = "access_token=" + LoadTest.sign(JWT_SECRET, "user-1", "workspace-1");
+            System.out.printf("%nStub at %s, %d run(s) per mode after %d warm-up run(s)%n%n", stub.baseUrl(), runs, warmupRuns);
+
+            for (int run = -warmupRuns; run < runs; run++) {
+                for (Map.Entry<String, Launch> mode : modes.entrySet()) {
+                    Path log = logs.resolve(mode.getKey() + "-" + (run < 0 ? "warmup" + (-run) : run) + ".log");
+                    long nanos = timeToFirstRequest(mode.getValue(), stub.baseUrl(), cookie, connections, timeout, log);
+                    if (run >= 0) {
+                        results.get(mode.getKey())[run] = nanos;
+                    }
+                }
+            }
+        } finally {
+            connections.dispose();
+        }
+
+        long baseline = median(results.values().iterator().next());
+        System.out.printf("%-12s %6s %9s %9s %9s %9s%n", "mode", "runs", "min ms", "median ms", "max ms", "vs first");
+        results.forEach((mode, nanos) -> {
+            Arrays.sort(nanos);
+            System.out.printf("%-12s %6d %9.0f %9.0f %9.0f %8.2fx%n", mode, nanos.length, nanos[0] / 1e6,
+                    median(nanos) / 1e6, nanos[nanos.length - 1] / 1e6, (double) baseline / median(nanos));
+        });
+        System.out.printf("%nGateway output is in %s%n", logs);
+        System.exit(0);
+    }
+
+    private static Launch launch(String mode, String java, Path target) {
+        Path faststart = target.resolve("faststart");
+        return switch (mode) {
+            case "default" -> new Launch(target, List.of(java, "-jar", jar(target, "")));
+            case "aot" -> new Launch(faststart, List.of(java, "-Dspring.aot.enabled=true", "-jar", jar(faststart, "-faststart")));
+            case "faststart" -> {
+                if (!Files.isRegularFile(faststart.resolve("application.jsa"))) {
+                    throw new IllegalStateException("No CDS archive in " + faststart + "; build it with mvn -Pfaststart package");
+                }
+                // -Xshare:on fails instead of silently starting without the archive if it does not match the jar
+                yield new Launch(faststart, List.of(java, "-XX:SharedArchiveFile=application.jsa", "-Xshare:on",
+                        "-Dspring.aot.enabled=true", "-jar", jar(faststart, "-faststart")));
+            }
+            default -> throw new IllegalArgumentException("Unknown mode: " + mode + " (known: default, aot, faststart)");
+        };
+    }
+
+    /** The name of the one jar in {@code dir} ending with {@code suffix}.jar, ignoring other classifiers. */
+    private static String jar(Path dir, String suffix) {
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> jars = files
+                    .filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.endsWith(suffix + ".jar") && (!suffix.isEmpty() || !name.endsWith("-faststart.jar"));
+                    })
+                    .toList();
+            if (jars.size() != 1) {
+                throw new IllegalStateException("Expected one *" + suffix + ".jar in " + dir + " but found " + jars
+                        + "; build with mvn -Pfaststart package");
+            }
+            return jars.get(0).getFileName().toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list " + dir, e);
+        }
+    }
+
+    private static long timeToFirstRequest(Launch launch, String stubUrl, String cookie,
+                                           ConnectionProvider connections, Duration timeout, Path log) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>(launch.command());
+        command.addAll(List.of("--server.port=" + port, "--beaver.identity.url=" + stubUrl, "--logging.level.root=WARN"));
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(launch.directory().toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile());
+        builder.environment().putAll(Map.of(
+                "JWT_SECRET", JWT_SECRET,
+                "JWT_ACCESS_VALIDITY", "900000",
+                "JWT_REFRESH_VALIDITY", "86400000",
+                "GATEWAY_SECRET", "startup-gateway-secret",
+                "METRICS_PORT", "0",
+                "ACCESS_LOG_PATH", log.resolveSibling("access.log").toAbsolutePath().toString()));
+
+        HttpClient client = HttpClient.create(connections)
+                .baseUrl("http://127.0.0.1:" + port)
+                .headers(headers -> headers.set("Cookie", cookie))
+                .responseTimeout(Duration.ofSeconds(5));
+        long start = System.nanoTime();
+        Process gateway = builder.start();
+        try {
+            long deadline = start + timeout.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!gateway.isAlive()) {
+                    throw new IllegalStateException("Gateway exited with " + gateway.exitValue() + "; see " + log);
+                }
+                Integer status = client.get().uri("/identity/users/me")
+                        .responseSingle((response, body) -> body.then(Mono.just(response.status().code())))
+                        .onErrorResume(e -> Mono.empty())
+                        .block();
+                if (status != null && status / 100 == 2) {
+                    return System.nanoTime() - start;
+                }
+                Thread.sleep(5);
+            }
+            throw new IllegalStateException("No successful request within " + timeout + "; see " + log);
+        } finally {
+            gateway.destroy();
+            if (!gateway.waitFor(10, TimeUnit.SECONDS)) {
+                gateway.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    /** A gateway command line, run from {@code directory} as the fast-start layout expects. */
+    private record Launch(Path directory, List<String> command) {
+    }
+}
@@ -0,0 +1,58 @@
+package com.beaver.gateway.loadtest;
+
+import io.netty.handler.codec.http.HttpResponseStatus;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stand-in for beaver-identity. Every request is answered after a base latency plus uniform jitter,
+ * a configurable share of requests fail with a 500, and another share is held back by an extra
+ * delay to give the latency a long tail, so gateway overhead can be separated from downstream
+ * behaviour.
+ */
+final class StubIdentityService implements AutoCloseable {
+
+    private static final String OK_BODY = "{\"id\":\"user-1\",\"email\":\"load@beaver.test\"}";
+    private static final String ERROR_BODY = "{\"status\":500,\"error\":\"Injected Failure\"}";
+
+    private final DisposableServer server;
+
+    StubIdentityService(Duration latency, Duration jitter, double errorRate, double slowRate, Duration slowLatency) {
+        long latencyNanos = latency.toNanos();
+        long jitterNanos = jitter.toNanos();
+        long slowNanos = slowLatency.toNanos();
+        this.server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .handle((request, response) -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long delay = latencyNanos + (jitterNanos > 0 ? random.nextLong(jitterNanos + 1) : 0);
+                    if (slowRate > 0 && random.nextDouble() < slowRate) {
+                        delay += slowNanos;
+                    }
+                    boolean fail = errorRate > 0 && random.nextDouble() < errorRate;
+
+                    Mono<Void> reply = response
+                            .status(fail ? HttpResponseStatus.INTERNAL_SERVER_ERROR : HttpResponseStatus.OK)
+                            .header("Content-Type", "application/json")
+                            .sendString(Mono.just(fail ? ERROR_BODY : OK_BODY))
+                            .then();
+                    // Drain the request body before answering so connections stay reusable
+                    return request.receive().then(delay > 0 ? Mono.delay(Duration.ofNanos(delay)).then(reply) : reply);
+                })
+                .bindNow();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.port();
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+}
@@ -0,0 +1,128 @@
+package com.beaver.gateway.auth;
+
+import com.beaver.auth.jwt.JwtService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of verified access-token claims keyed by {@link TokenDigest}.
+ * A hit skips both signature verification and claim extraction; entries never outlive the token's {@code exp}.
+ * Only successfully verified tokens are cached, so garbage tokens cannot evict real sessions.
+ */
+@Slf4j
+@Component
+public class JwtClaimsCache {
+
+    private final JwtService jwtService;
+    private final ObjectMapper objectMapper;
+    private final long maxTtlMillis;
+    private final Cache<TokenDigest, VerifiedClaims> cache;
+
+    public JwtClaimsCache(JwtService jwtService,
+                          ObjectMapper objectMapper,
+                          @Value("${gateway.auth.claims-cache.maximum-size:10000}") long maximumSize,
+                          @Value("${gateway.auth.claims-cache.max-ttl:5m}") Duration maxTtl) {
+        this.jwtService = jwtService;
+        this.objectMapper = objectMapper;
+        this.maxTtlMillis = maxTtl.toMillis();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new ClaimsExpiry())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the verified claims for the token, or an empty Mono if the token is invalid or expired.
+     */
+    public Mono<VerifiedClaims> verify(String token) {
+        return verify(token, TokenDigest.of(token));
+    }
+
+    /**
+     * As {@link #verify(String)}, for callers that already hold the token's digest.
+     */
+    public Mono<VerifiedClaims> verify(String token, TokenDigest digest) {
+        VerifiedClaims cached = cache.getIfPresent(digest);
+        if (cached != null && !cached.isExpired(System.currentTimeMillis())) {
+            return Mono.just(cached);
+        }
+
+        return jwtService.isValidAccessToken(token)
+                .filter(Boolean::booleanValue)
+                .flatMap(valid -> Mono.zip(
+                        jwtService.extractUserId(token).defaultIfEmpty(""),
+                        jwtService.extractWorkspaceId(token).defaultIfEmpty(""),
+                        jwtService.extractRole(token).defaultIfEmpty("")
+                ))
+                .map(tuple -> {
+                    VerifiedClaims claims = new VerifiedClaims(
+                            tuple.getT1(), tuple.getT2(), tuple.getT3(), expiresAt(token));
+                    cache.put(digest, claims);
+                    return claims;
+                });
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * Reads {@code exp} from the payload of a token the JwtService has already verified.
+     * Tokens without a readable expiry are cached for at most the configured max TTL.
+     */
+    private long expiresAt(String token) {
+        long ceiling = System.currentTimeMillis() + maxTtlMillis;
+        int first = token.indexOf('.');
+        int second = token.indexOf('.', first + 1);
+        if (first < 0 || second < 0) {
+            return ceiling;
+        }
+
+        try {
+            byte[] payload = Base64.getUrlDecoder().decode(token.substring(first + 1, second));
+            JsonNode exp = objectMapper.readTree(payload).get("exp");
+            if (exp != null && exp.canConvertToLong()) {
+                return Math.min(ceiling, TimeUnit.SECONDS.toMillis(exp.asLong()));
+            }
+        } catch (Exception ex) {
+            log.debug("Could not read token expiry, falling back to max TTL");
+        }
+        return ceiling;
+    }
+
+    private static final class ClaimsExpiry implements Expiry<TokenDigest, VerifiedClaims> {
+
+        @Override
+        public long expireAfterCreate(TokenDigest key, VerifiedClaims value, long currentTime) {
+            long remainingMillis = value.expiresAtMillis() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(TokenDigest key, VerifiedClaims value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(TokenDigest key, VerifiedClaims value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.beaver.gateway.auth;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decides whether a request path may skip authentication. Patterns are compiled once into a
+ * character trie, so a lookup walks the raw path a character at a time no matter how many
+ * patterns there are, and never allocates.
+ * <p>
+ * Supported patterns are literal paths, {@code *} for exactly one whole segment and a trailing
+ * {@code /**} for the path itself plus anything below it, e.g. {@code /identity/auth/**} or
+ * {@code /identity/*}{@code /health}.
+ * <p>
+ * Only canonical paths can match. A path with dot segments, empty segments, {@code ;} or an encoded
+ * {@code .}, {@code /}, {@code ;} or {@code \} is never public, because a downstream server may resolve it to
+ * a different, protected resource (e.g. {@code /identity/auth/..;/users/me}).
+ */
+public final class PublicPathMatcher {
+
+    private static final int NONE = -1;
+    private static final char[] NO_CHARS = new char[0];
+    private static final int[] NO_TARGETS = new int[0];
+
+    private char[][] edgeChars = new char[16][];
+    private int[][] edgeTargets = new int[16][];
+    private int[] starChild = new int[16];
+    private boolean[] terminal = new boolean[16];
+    private boolean[] anyBelow = new boolean[16];
+    private int nodes;
+    private final int patterns;
+
+    private PublicPathMatcher(List<String> patterns) {
+        newNode();
+        int count = 0;
+        for (String pattern : patterns) {
+            String trimmed = pattern.trim();
+            if (!trimmed.isEmpty()) {
+                insert(trimmed);
+                count++;
+            }
+        }
+        this.patterns = count;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a pattern is not absolute or uses an unsupported wildcard
+     */
+    public static PublicPathMatcher compile(List<String> patterns) {
+        return new PublicPathMatcher(patterns);
+    }
+
+    public static PublicPathMatcher compile(List<String> global, List<String> route) {
+        List<String> all = new ArrayList<>(global);
+        if (route != null) {
+            all.addAll(route);
+        }
+        return compile(all);
+    }
+
+    public boolean isEmpty() {
+        return patterns == 0;
+    }
+
+    public boolean matches(String path) {
+        return patterns > 0 && match(path, 0, 0) && isCanonical(path);
+    }
+
+    private boolean match(String path, int index, int node) {
+        int length = path.length();
+        while (true) {
+            if (anyBelow[node] && (index == length || path.charAt(index) == '/')) {
+                return true;
+            }
+            if (index == length) {
+                return terminal[node];
+            }
+
+            int star = starChild[node];
+            if (star != NONE) {
+                // A wildcard segment takes at least one character, up to the next separator
+                int end = path.indexOf('/', index);
+                if (end < 0) {
+                    end = length;
+                }
+                if (end > index && match(path, end, star)) {
+                    return true;
+                }
+            }
+
+            int next = edge(node, path.charAt(index));
+            if (next == NONE) {
+                return false;
+            }
+            node = next;
+            index++;
+        }
+    }
+
+    private int edge(int node, char c) {
+        char[] chars = edgeChars[node];
+        int found = Arrays.binarySearch(chars, c);
+        return found >= 0 ? edgeTargets[node][found] : NONE;
+    }
+
+    private void insert(String pattern) {
+        if (pattern.charAt(0) != '/') {
+            throw new IllegalArgumentException("Public path pattern must start with '/': " + pattern);
+        }
+
+        int node = 0;
+        int index = 0;
+        int length = pattern.length();
+        while (index < length) {
+            int segmentEnd = pattern.indexOf('/', index + 1);
+            if (segmentEnd < 0) {
+                segmentEnd = length;
+            }
+            String segment = pattern.substring(index + 1, segmentEnd);
+
+            if (segment.equals("**")) {
+                if (segmentEnd != length) {
+                    throw new IllegalArgumentException("'**' is only supported as the last segment: " + pattern);
+                }
+                anyBelow[node] = true;
+                return;
+            }
+
+            node = literal(node, '/');
+            if (segment.equals("*")) {
+                if (starChild[node] == NONE) {
+                    int child = newNode();
+                    starChild[node] = child;
+                }
+                node = starChild[node];
+            } else if (segment.indexOf('*') >= 0) {
+                throw new IllegalArgumentException("'*' must be a whole segment: " + pattern);
+            } else {
+                for (int i = 0; i < segment.length(); i++) {
+                    node = literal(node, segment.charAt(i));
+                }
+            }
+            index = segmentEnd;
+        }
+        terminal[node] = true;
+    }
+
+    private int literal(int node, char c) {
+        int existing = edge(node, c);
+        if (existing != NONE) {
+            return existing;
+        }
+        int child = newNode();
+        char[] chars = edgeChars[node];
+        int[] targets = edgeTargets[node];
+        int at = -(Arrays.binarySearch(chars, c) + 1);
+
+        char[] grownChars = new char[chars.length + 1];
+        int[] grownTargets = new int[targets.length + 1];
+        System.arraycopy(chars, 0, grownChars, 0, at);
+        System.arraycopy(targets, 0, grownTargets, 0, at);
+        grownChars[at] = c;
+        grownTargets[at] = child;
+        System.arraycopy(chars, at, grownChars, at + 1, chars.length - at);
+        System.arraycopy(targets, at, grownTargets, at + 1, targets.length - at);
+        edgeChars[node] = grownChars;
+        edgeTargets[node] = grownTargets;
+        return child;
+    }
+
+    private int newNode() {
+        if (nodes == terminal.length) {
+            int capacity = nodes * 2;
+            edgeChars = Arrays.copyOf(edgeChars, capacity);
+            edgeTargets = Arrays.copyOf(edgeTargets, capacity);
+            starChild = Arrays.copyOf(starChild, capacity);
+            terminal = Arrays.copyOf(terminal, capacity);
+            anyBelow = Arrays.copyOf(anyBelow, capacity);
+        }
+        edgeChars[nodes] = NO_CHARS;
+        edgeTargets[nodes] = NO_TARGETS;
+        starChild[nodes] = NONE;
+        return nodes++;
+    }
+
+    static boolean isCanonical(String path) {
+        int length = path.length();
+        int segmentStart = 0;
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? path.charAt(i) : '/';
+            if (c == '/') {
+                int segmentLength = i - segmentStart;
+                if (i > 0 && i < length && segmentLength == 0) {
+                    return false;
+                }
+                if (segmentLength == 1 && path.charAt(segmentStart) == '.') {
+                    return false;
+                }
+                if (segmentLength == 2 && path.charAt(segmentStart) == '.' && path.charAt(segmentStart + 1) == '.') {
+                    return false;
+                }
+                segmentStart = i + 1;
+            } else if (c == ';' || c == '\\') {
+                return false;
+            } else if (c == '%' && i + 2 < length) {
+                char hi = path.charAt(i + 1);
+                char lo = Character.toLowerCase(path.charAt(i + 2));
+                if ((hi == '2' && (lo == 'e' || lo == 'f')) || (hi == '3' && lo == 'b') || (hi == '5' && lo == 'c')) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
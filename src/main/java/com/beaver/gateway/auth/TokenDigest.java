@@ -0,0 +1,56 @@
+package com.beaver.gateway.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-256 digest of a raw token, used as a cache key so the token itself is never retained.
+ */
+public record TokenDigest(long w0, long w1, long w2, long w3) {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    public static TokenDigest of(String token) {
+        byte[] hash = SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+        return new TokenDigest(word(hash, 0), word(hash, 8), word(hash, 16), word(hash, 24));
+    }
+
+    /**
+     * Parses the 64-character hex form published by the identity service, e.g. in revocation lists.
+     *
+     * @throws IllegalArgumentException if the value is not 64 hex characters
+     */
+    public static TokenDigest fromHex(CharSequence hex) {
+        if (hex.length() != 64) {
+            throw new IllegalArgumentException("Token digest must be 64 hex characters");
+        }
+        return new TokenDigest(hexWord(hex, 0), hexWord(hex, 16), hexWord(hex, 32), hexWord(hex, 48));
+    }
+
+    private static long hexWord(CharSequence hex, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 16; i++) {
+            int digit = Character.digit(hex.charAt(i), 16);
+            if (digit < 0) {
+                throw new IllegalArgumentException("Token digest must be 64 hex characters");
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    private static long word(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+}
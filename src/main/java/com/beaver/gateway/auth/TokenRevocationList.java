@@ -0,0 +1,242 @@
+package com.beaver.gateway.auth;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Denylist of revoked access tokens, keyed by {@link TokenDigest}.
+ * <p>
+ * A Bloom filter sits in front of the exact set, probed with the digest's own SHA-256 words, so an
+ * unrevoked token, the overwhelmingly common case, costs a handful of bit reads and no hashing
+ * beyond the digest AuthenticationFilter computes anyway. Only a Bloom hit consults the exact set.
+ * <p>
+ * Entries come from a snapshot file and an append-only delta log, one {@code <sha256-hex> [exp-epoch-seconds]}
+ * per line. A background thread tails the delta log, adding new lines in place, and swaps in a
+ * freshly built filter when the snapshot changes, the log is rotated, the filter outgrows its
+ * sizing, or expired entries are due to be pruned; requests never wait on any of it. The files are
+ * the only source, so every entry survives a rebuild; to revoke a token, append it to the delta log.
+ */
+@Slf4j
+@Component
+public class TokenRevocationList implements DisposableBean {
+
+    private static final long NO_EXPIRY = Long.MAX_VALUE;
+    private static final long PRUNE_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final Path snapshotPath;
+    private final Path deltaPath;
+    private final int expectedEntries;
+    private final AtomicLong bloomFalsePositives = new AtomicLong();
+    private final ScheduledExecutorService refresher;
+
+    private volatile Denylist denylist;
+
+    // Refresher-thread state
+    private long snapshotModified = Long.MIN_VALUE;
+    private long deltaOffset;
+    private long nextPruneAt;
+
+    public TokenRevocationList(@Value("${gateway.auth.revocation.snapshot-path:}") String snapshotPath,
+                               @Value("${gateway.auth.revocation.delta-path:}") String deltaPath,
+                               @Value("${gateway.auth.revocation.expected-entries:100000}") int expectedEntries,
+                               @Value("${gateway.auth.revocation.refresh-interval:2s}") Duration refreshInterval) {
+        this.snapshotPath = snapshotPath.isBlank() ? null : Path.of(snapshotPath);
+        this.deltaPath = deltaPath.isBlank() ? null : Path.of(deltaPath);
+        this.expectedEntries = Math.max(1_024, expectedEntries);
+        this.denylist = new Denylist(this.expectedEntries);
+
+        if (this.snapshotPath == null && this.deltaPath == null) {
+            this.refresher = null;
+            return;
+        }
+        refresh();
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "token-revocation-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = Math.max(100, refreshInterval.toMillis());
+        refresher.scheduleWithFixedDelay(this::refresh, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isRevoked(TokenDigest digest) {
+        Denylist current = denylist;
+        if (!current.mightContain(digest)) {
+            return false;
+        }
+        Long expiresAt = current.entries.get(digest);
+        if (expiresAt == null) {
+            bloomFalsePositives.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public int size() {
+        return denylist.entries.size();
+    }
+
+    public long bloomFalsePositives() {
+        return bloomFalsePositives.get();
+    }
+
+    @Override
+    public void destroy() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    synchronized void refresh() {
+        try {
+            long now = System.currentTimeMillis();
+            long modified = snapshotPath != null && Files.exists(snapshotPath)
+                    ? Files.getLastModifiedTime(snapshotPath).toMillis() : Long.MIN_VALUE;
+            long deltaSize = deltaPath != null && Files.exists(deltaPath) ? Files.size(deltaPath) : 0;
+            Denylist current = denylist;
+
+            if (modified != snapshotModified || deltaSize < deltaOffset
+                    || current.entries.size() > current.capacity || now >= nextPruneAt) {
+                rebuild(modified, now);
+            } else if (deltaSize > deltaOffset) {
+                deltaOffset = readLines(deltaPath, deltaOffset, current, now);
+            }
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Token revocation refresh failed; keeping the current denylist", ex);
+        }
+    }
+
+    private void rebuild(long modified, long now) throws IOException {
+        Denylist previous = denylist;
+        Denylist next = new Denylist(Math.max(expectedEntries, previous.entries.size() * 2));
+        if (snapshotPath != null && modified != Long.MIN_VALUE) {
+            readLines(snapshotPath, 0, next, now);
+        }
+        long offset = deltaPath != null ? readLines(deltaPath, 0, next, now) : 0;
+
+        denylist = next;
+        snapshotModified = modified;
+        deltaOffset = offset;
+        nextPruneAt = now + PRUNE_INTERVAL_MILLIS;
+        log.debug("Token denylist rebuilt with {} entries", next.entries.size());
+    }
+
+    /**
+     * Adds every complete line from {@code offset} on; a trailing partial line is left for the
+     * next pass. Returns the offset just past the last complete line.
+     */
+    private static long readLines(Path path, long offset, Denylist target, long now) throws IOException {
+        byte[] bytes;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size <= offset) {
+                return offset;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE - 8, size - offset));
+            channel.position(offset);
+            while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                // fill
+            }
+            bytes = buffer.array();
+        } catch (NoSuchFileException ex) {
+            return 0;
+        }
+
+        int lineStart = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '\n') {
+                parseLine(new String(bytes, lineStart, i - lineStart, StandardCharsets.US_ASCII), target, now);
+                lineStart = i + 1;
+            }
+        }
+        return offset + lineStart;
+    }
+
+    private static void parseLine(String line, Denylist target, long now) {
+        String trimmed = line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+            return;
+        }
+        int space = trimmed.indexOf(' ');
+        try {
+            TokenDigest digest = TokenDigest.fromHex(space < 0 ? trimmed : trimmed.substring(0, space));
+            long expiresAt = space < 0 ? NO_EXPIRY
+                    : TimeUnit.SECONDS.toMillis(Long.parseLong(trimmed.substring(space + 1).trim()));
+            if (expiresAt > now) {
+                target.add(digest, expiresAt);
+            }
+        } catch (IllegalArgumentException ex) {
+            log.warn("Skipping malformed token revocation entry");
+        }
+    }
+
+    /**
+     * One generation of the Bloom filter and exact set. Additions happen in place; anything that
+     * needs bits cleared builds a new generation.
+     */
+    private static final class Denylist {
+
+        /** Seven probes over ~9.6 bits per entry: about 1% false positives at capacity. */
+        private static final int PROBES = 7;
+        private static final double BITS_PER_ENTRY = 9.6;
+
+        final int capacity;
+        final Map<TokenDigest, Long> entries = new ConcurrentHashMap<>();
+        private final AtomicLongArray bits;
+        private final long bitCount;
+
+        Denylist(int capacity) {
+            this.capacity = capacity;
+            int words = (int) Math.max(1, (long) Math.ceil(capacity * BITS_PER_ENTRY / 64));
+            this.bits = new AtomicLongArray(words);
+            this.bitCount = (long) words * 64;
+        }
+
+        void add(TokenDigest digest, long expiresAtMillis) {
+            // Exact entry first, so a reader that sees the bits always finds it
+            entries.merge(digest, expiresAtMillis, Math::max);
+            long h1 = digest.w0();
+            long h2 = digest.w1() | 1;
+            for (int i = 0; i < PROBES; i++) {
+                long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current = bits.get(word);
+                while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                    current = bits.get(word);
+                }
+            }
+        }
+
+        boolean mightContain(TokenDigest digest) {
+            long h1 = digest.w0();
+            long h2 = digest.w1() | 1;
+            for (int i = 0; i < PROBES; i++) {
+                long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
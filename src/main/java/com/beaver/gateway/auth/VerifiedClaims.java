@@ -0,0 +1,12 @@
+package com.beaver.gateway.auth;
+
+/**
+ * Claims of an access token whose signature and expiry have already been checked
+ * by {@link com.beaver.auth.jwt.JwtService}. Empty strings stand in for absent claims.
+ */
+public record VerifiedClaims(String userId, String workspaceId, String role, long expiresAtMillis) {
+
+    public boolean isExpired(long nowMillis) {
+        return nowMillis >= expiresAtMillis;
+    }
+}
@@ -0,0 +1,57 @@
+package com.beaver.gateway.cache;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Copies a response body into one array as it streams past, up to a limit. Past the limit the
+ * copy is abandoned and the body simply streams on; buffers are never retained or released here.
+ */
+public final class BodyAccumulator {
+
+    private final long limit;
+    private byte[] bytes;
+    private int length;
+    private boolean overflowed;
+
+    /**
+     * @param contentLength declared length used to size the array up front, or -1 if unknown
+     */
+    public BodyAccumulator(long contentLength, long limit) {
+        this.limit = Math.min(limit, Integer.MAX_VALUE - 8);
+        this.bytes = new byte[contentLength > 0 && contentLength <= this.limit ? (int) contentLength : 1024];
+    }
+
+    public void append(DataBuffer buffer) {
+        int readable = buffer.readableByteCount();
+        if (overflowed || (long) length + readable > limit) {
+            overflowed = true;
+            bytes = null;
+            return;
+        }
+        if (length + readable > bytes.length) {
+            bytes = Arrays.copyOf(bytes, (int) Math.min(limit, Math.max(bytes.length * 2L, length + readable)));
+        }
+        buffer.toByteBuffer(buffer.readPosition(), ByteBuffer.wrap(bytes), length, readable);
+        length += readable;
+    }
+
+    public boolean overflowed() {
+        return overflowed;
+    }
+
+    /** The staging array; only the first {@link #length()} bytes are body. */
+    public byte[] bytes() {
+        return bytes;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, length);
+    }
+}
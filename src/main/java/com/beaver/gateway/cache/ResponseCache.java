@@ -0,0 +1,295 @@
+package com.beaver.gateway.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded store of downstream GET responses for ResponseCacheFilter, weighed by body bytes.
+ * <p>
+ * Keys carry the verified user and workspace, so an entry is only ever served back to the caller
+ * it was fetched for, and the cache behaves as a private cache in the HTTP sense. Freshness comes
+ * from the response's {@code Cache-Control}; an entry with an {@code ETag} is kept past freshness
+ * so it can be revalidated with a conditional request instead of refetched.
+ * <p>
+ * With off-heap storage, bodies live in direct buffers and are written to the client without a
+ * copy; the heap holds only keys and headers. Direct memory is returned when an evicted entry's
+ * buffer is collected, so size {@code -XX:MaxDirectMemorySize} with some headroom over the cache.
+ */
+public class ResponseCache {
+
+    /** Rough per-entry heap cost of key, headers and bookkeeping, so tiny bodies still weigh something. */
+    private static final int ENTRY_OVERHEAD_BYTES = 512;
+
+    /** Headers that describe the connection or the exchange rather than the representation. */
+    private static final Set<String> UNSTORED_HEADERS = Set.of(
+            "connection", "keep-alive", "proxy-authenticate", "proxy-authorization", "te", "trailer",
+            "transfer-encoding", "upgrade", "date", "age", "content-length");
+
+    public record Key(String routeId, String path, String query, String userId, String workspaceId) {
+    }
+
+    private final Cache<Key, Entry> cache;
+    private final long maxEntryBytes;
+    private final long maxTtlMillis;
+    private final boolean offHeap;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+
+    public ResponseCache(long maximumBytes, long maxEntryBytes, Duration maxTtl, boolean offHeap) {
+        this.maxEntryBytes = Math.min(maxEntryBytes, Integer.MAX_VALUE - 8);
+        this.maxTtlMillis = maxTtl.toMillis();
+        this.offHeap = offHeap;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumBytes)
+                .weigher((Key key, Entry entry) -> ENTRY_OVERHEAD_BYTES + entry.body.capacity())
+                .expireAfter(new RetentionExpiry())
+                .build();
+    }
+
+    /**
+     * Returns the entry stored for the key if it was fetched with the same values for every header
+     * the response varied on, fresh or not. Counts nothing; callers record the outcome.
+     */
+    public Entry lookup(Key key, ServerHttpRequest request) {
+        Entry entry = cache.getIfPresent(key);
+        return entry != null && entry.matchesVary(request.getHeaders()) ? entry : null;
+    }
+
+    /**
+     * Stores a 200 response if its headers allow it, returning whether it was stored.
+     *
+     * @param body      staging array holding the body in its first {@code length} bytes
+     * @param defaultTtl freshness for responses that carry no {@code Cache-Control} at all, or null
+     */
+    public boolean store(Key key, ServerHttpRequest request, HttpHeaders responseHeaders, byte[] body, int length,
+                         Duration defaultTtl) {
+        long now = System.currentTimeMillis();
+        long freshness = freshnessMillis(responseHeaders, defaultTtl);
+        String etag = responseHeaders.getETag();
+        List<String> vary = responseHeaders.getVary();
+        if (freshness < 0 || (freshness == 0 && etag == null) || length > maxEntryBytes
+                || responseHeaders.containsKey(HttpHeaders.SET_COOKIE) || vary.contains("*")) {
+            return false;
+        }
+
+        ByteBuffer stored = offHeap ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length);
+        stored.put(body, 0, length).flip();
+        cache.put(key, new Entry(storedHeaders(responseHeaders), stored.asReadOnlyBuffer(), etag,
+                varyValues(vary, request.getHeaders()), now, now + freshness));
+        stores.increment();
+        return true;
+    }
+
+    /**
+     * Refreshes an entry after downstream answered its conditional request with 304, taking the
+     * new freshness from the 304's headers. Returns the entry to serve.
+     */
+    public Entry revalidated(Key key, Entry entry, HttpHeaders notModifiedHeaders, Duration defaultTtl) {
+        long now = System.currentTimeMillis();
+        long freshness = freshnessMillis(notModifiedHeaders, defaultTtl);
+        if (freshness < 0) {
+            cache.invalidate(key);
+            return entry;
+        }
+        Entry refreshed = new Entry(entry.headers, entry.body, entry.etag, entry.vary, now, now + freshness);
+        cache.asMap().replace(key, entry, refreshed);
+        return refreshed;
+    }
+
+    public void invalidate(Key key) {
+        cache.invalidate(key);
+    }
+
+    public long maxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    public void recordHit() {
+        hits.increment();
+    }
+
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    public void recordRevalidation() {
+        revalidations.increment();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long revalidations() {
+        return revalidations.sum();
+    }
+
+    public long stores() {
+        return stores.sum();
+    }
+
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    public long weightedBytes() {
+        return cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    /**
+     * Milliseconds the response may be served without revalidation: -1 when it must not be stored,
+     * 0 when it may be stored but must be revalidated before every use.
+     */
+    long freshnessMillis(HttpHeaders headers, Duration defaultTtl) {
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl == null) {
+            return defaultTtl != null ? Math.min(defaultTtl.toMillis(), maxTtlMillis) : 0;
+        }
+
+        long maxAge = -1;
+        boolean noCache = false;
+        for (String directive : cacheControl.toLowerCase(Locale.ROOT).split(",")) {
+            String trimmed = directive.trim();
+            if (trimmed.equals("no-store")) {
+                return -1;
+            } else if (trimmed.equals("no-cache")) {
+                noCache = true;
+            } else if (trimmed.startsWith("max-age=")) {
+                try {
+                    maxAge = TimeUnit.SECONDS.toMillis(Long.parseLong(trimmed.substring(8).replace("\"", "")));
+                } catch (NumberFormatException ex) {
+                    return -1;
+                }
+            }
+        }
+        if (noCache || maxAge <= 0) {
+            return 0;
+        }
+
+        long age = 0;
+        String ageHeader = headers.getFirst(HttpHeaders.AGE);
+        if (ageHeader != null) {
+            try {
+                age = TimeUnit.SECONDS.toMillis(Long.parseLong(ageHeader.trim()));
+            } catch (NumberFormatException ignored) {
+                // An unreadable Age does not make the response any less fresh
+            }
+        }
+        return Math.max(0, Math.min(maxAge - age, maxTtlMillis));
+    }
+
+    private static HttpHeaders storedHeaders(HttpHeaders source) {
+        HttpHeaders stored = new HttpHeaders();
+        source.forEach((name, values) -> {
+            if (!UNSTORED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                stored.put(name, List.copyOf(values));
+            }
+        });
+        return HttpHeaders.readOnlyHttpHeaders(stored);
+    }
+
+    private static String[] varyValues(List<String> vary, HttpHeaders requestHeaders) {
+        String[] pairs = new String[vary.size() * 2];
+        for (int i = 0; i < vary.size(); i++) {
+            pairs[i * 2] = vary.get(i);
+            pairs[i * 2 + 1] = String.join(",", requestHeaders.getOrEmpty(vary.get(i)));
+        }
+        return pairs;
+    }
+
+    /**
+     * A stored response. Immutable; {@link #body()} hands out an independent view for each write.
+     */
+    public static final class Entry {
+
+        private final HttpHeaders headers;
+        private final ByteBuffer body;
+        private final String etag;
+        private final String[] vary;
+        private final long storedAtMillis;
+        private final long freshUntilMillis;
+
+        Entry(HttpHeaders headers, ByteBuffer body, String etag, String[] vary, long storedAtMillis,
+              long freshUntilMillis) {
+            this.headers = headers;
+            this.body = body;
+            this.etag = etag;
+            this.vary = vary;
+            this.storedAtMillis = storedAtMillis;
+            this.freshUntilMillis = freshUntilMillis;
+        }
+
+        public HttpHeaders headers() {
+            return headers;
+        }
+
+        public ByteBuffer body() {
+            return body.duplicate();
+        }
+
+        public int contentLength() {
+            return body.capacity();
+        }
+
+        public String etag() {
+            return etag;
+        }
+
+        public boolean isFresh(long nowMillis) {
+            return nowMillis < freshUntilMillis;
+        }
+
+        public long ageSeconds(long nowMillis) {
+            return Math.max(0, (nowMillis - storedAtMillis) / 1000);
+        }
+
+        boolean matchesVary(HttpHeaders requestHeaders) {
+            for (int i = 0; i < vary.length; i += 2) {
+                if (!vary[i + 1].equals(String.join(",", requestHeaders.getOrEmpty(vary[i])))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Keeps entries until they go stale, or up to the max TTL beyond that when an ETag lets them
+     * be revalidated cheaply.
+     */
+    private final class RetentionExpiry implements Expiry<Key, Entry> {
+
+        @Override
+        public long expireAfterCreate(Key key, Entry entry, long currentTime) {
+            long retainUntil = entry.etag != null ? entry.freshUntilMillis + maxTtlMillis : entry.freshUntilMillis;
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, retainUntil - System.currentTimeMillis()));
+        }
+
+        @Override
+        public long expireAfterUpdate(Key key, Entry entry, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, entry, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Key key, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.beaver.gateway.concurrency;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-flight request limit for one downstream, adjusted from observed latency in the style of TCP
+ * Vegas (as in Netflix's concurrency-limits).
+ * <p>
+ * Samples are gathered in windows of about one round trip's worth ({@code max(10, limit)} requests),
+ * since every request completing within one RTT reports the same conditions, and the limit is
+ * updated once per window. The downstream's latency with no queue, {@code minRtt}, compared with
+ * the window's average gives the number of requests waiting somewhere, in the downstream or in the
+ * connection pool in front of it: {@code inFlight * (1 - minRtt / rtt)}. The limit grows while that
+ * queue is small, quickly if requests were being refused meanwhile. Once the queue is large the
+ * limit drops straight to where it would be small again, by at most half, and a window with failed
+ * requests backs it off by a tenth.
+ * <p>
+ * A minimum learned while requests were already queueing would hide the queue, and one from a
+ * quiet period goes stale, so {@code minRtt} is re-measured every probe interval. If the limiter is
+ * busy at that point the limit is briefly pinned to its minimum, as Envoy's adaptive concurrency
+ * filter does, and only requests admitted under the pin are measured. The limit only moves while
+ * it is actually being used, so idle time cannot inflate it.
+ * <p>
+ * A share of the limit is held back for priority requests, which may use all of it; normal requests
+ * are refused once in-flight reaches the rest. Acquiring is a CAS on a counter. Samples are folded
+ * in under a try-lock, and a sample that finds the lock taken is simply dropped.
+ */
+public final class AdaptiveConcurrencyLimiter {
+
+    /** Returned by {@link #tryAcquire} when the request must be shed. */
+    public static final int REJECTED = -1;
+
+    private static final int MIN_WINDOW = 10;
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final double MAX_DECREASE = 0.5;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final long probeIntervalNanos;
+    private final double priorityShare;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ReentrantLock sampleLock = new ReentrantLock();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder priorityRejected = new LongAdder();
+
+    private volatile int limit;
+    private volatile int normalLimit;
+    /** Set when a request is refused, so the window knows demand went past the limit. */
+    private volatile boolean shedInWindow;
+
+    // Guarded by sampleLock
+    private double estimatedLimit;
+    private double minRtt = Double.MAX_VALUE;
+    private long nextProbeAt;
+    private boolean probing;
+    private double limitBeforeProbe;
+    private int windowSamples;
+    private int windowRttCount;
+    private double windowRttSum;
+    private double windowMinRtt = Double.MAX_VALUE;
+    private int windowMaxInFlight;
+    private boolean windowDropped;
+
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit, double smoothing,
+                                      Duration probeInterval, double priorityShare) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Concurrency limit bounds must satisfy 1 <= min <= max for " + name);
+        }
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = Math.max(0.01, Math.min(1.0, smoothing));
+        this.probeIntervalNanos = probeInterval.toNanos();
+        this.nextProbeAt = System.nanoTime() + probeIntervalNanos;
+        this.priorityShare = Math.max(0, Math.min(0.9, priorityShare));
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        publish(estimatedLimit);
+    }
+
+    /**
+     * Admits a request if there is room for its class, returning the in-flight count including it
+     * (to hand back to {@link #release}), or {@link #REJECTED}.
+     */
+    public int tryAcquire(boolean priority) {
+        int cap = priority ? limit : normalLimit;
+        while (true) {
+            int current = inFlight.get();
+            if (current >= cap) {
+                (priority ? priorityRejected : rejected).increment();
+                if (!shedInWindow) {
+                    shedInWindow = true;
+                }
+                return REJECTED;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    /**
+     * Releases a request that completed in {@code rttNanos}, with {@code inFlightAtStart} being what
+     * {@link #tryAcquire} returned for it.
+     */
+    public void release(long rttNanos, int inFlightAtStart) {
+        inFlight.decrementAndGet();
+        if (rttNanos > 0 && sampleLock.tryLock()) {
+            try {
+                sample(rttNanos, inFlightAtStart, false);
+            } finally {
+                sampleLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Releases a request that failed, such as a timeout or refused connection, taking it as a sign
+     * of overload.
+     */
+    public void releaseDropped() {
+        inFlight.decrementAndGet();
+        if (sampleLock.tryLock()) {
+            try {
+                sample(0, 0, true);
+            } finally {
+                sampleLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Releases a request without learning from it, for cancellations whose timing says nothing
+     * about the downstream.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    private void sample(double rtt, int inFlightAtStart, boolean dropped) {
+        if (probing && (dropped || inFlightAtStart > minLimit)) {
+            // Admitted before the pin; its latency includes the queue being measured away
+            return;
+        }
+        windowSamples++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlightAtStart);
+        if (dropped) {
+            windowDropped = true;
+        } else {
+            windowRttCount++;
+            windowRttSum += rtt;
+            windowMinRtt = Math.min(windowMinRtt, rtt);
+        }
+        if (windowSamples >= Math.max(MIN_WINDOW, probing ? minLimit : (int) estimatedLimit)) {
+            closeWindow();
+            windowSamples = 0;
+            windowRttCount = 0;
+            windowRttSum = 0;
+            windowMinRtt = Double.MAX_VALUE;
+            windowMaxInFlight = 0;
+            windowDropped = false;
+        }
+    }
+
+    private void closeWindow() {
+        if (probing) {
+            probing = false;
+            minRtt = windowMinRtt;
+            set(limitBeforeProbe);
+            return;
+        }
+
+        boolean appLimited = windowMaxInFlight * 2 < estimatedLimit;
+        if (windowRttCount > 0) {
+            minRtt = Math.min(minRtt, windowMinRtt);
+        }
+        long now = System.nanoTime();
+        if (now - nextProbeAt >= 0) {
+            nextProbeAt = now + probeIntervalNanos;
+            if (appLimited && windowRttCount > 0) {
+                // Nothing was queueing, so this window's minimum already is the no-load latency
+                minRtt = windowMinRtt;
+            } else {
+                probing = true;
+                limitBeforeProbe = estimatedLimit;
+                publish(minLimit);
+                return;
+            }
+        }
+
+        if (windowDropped) {
+            // Failures are a clear enough signal to skip smoothing
+            set(estimatedLimit * BACKOFF_RATIO);
+            return;
+        }
+        // App-limited: too little traffic to tell anything about the limit
+        if (windowRttCount == 0 || appLimited) {
+            return;
+        }
+
+        double rtt = windowRttSum / windowRttCount;
+        double log = Math.max(1, Math.log10(estimatedLimit));
+        double alpha = 3 * log;
+        double beta = 6 * log;
+        // Requests actually in flight, not the limit, so headroom the limiter has not used is not counted as queue
+        double queue = windowMaxInFlight * (1 - minRtt / rtt);
+
+        boolean shed = shedInWindow;
+        shedInWindow = false;
+        if (queue <= log || (shed && queue < alpha)) {
+            // Latency is flat, or requests were refused while it held: grow quickly
+            update(estimatedLimit + beta);
+        } else if (queue < alpha) {
+            update(estimatedLimit + log);
+        } else if (queue > beta) {
+            update(Math.max(estimatedLimit * MAX_DECREASE, estimatedLimit * minRtt / rtt + beta));
+        }
+    }
+
+    private void update(double target) {
+        set(estimatedLimit * (1 - smoothing) + target * smoothing);
+    }
+
+    private void set(double next) {
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, next));
+        publish(estimatedLimit);
+    }
+
+    private void publish(double estimate) {
+        int whole = (int) estimate;
+        int reserved = (int) Math.ceil(whole * priorityShare);
+        normalLimit = Math.max(1, whole - reserved);
+        limit = whole;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public long rejected(boolean priority) {
+        return (priority ? priorityRejected : rejected).sum();
+    }
+}
@@ -0,0 +1,40 @@
+package com.beaver.gateway.concurrency;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * The limiters in use, one per limiter group, each behind its {@link FairQueue}. Routes sharing a
+ * downstream can be put in one group so they share its capacity; any other route gets a group of its
+ * own, named after it.
+ */
+public final class ConcurrencyLimiters {
+
+    private static final String UNKNOWN_ROUTE = "unknown";
+
+    private final Map<String, String> groupByRoute;
+    private final Function<String, FairQueue> factory;
+    private final Map<String, FairQueue> byGroup = new ConcurrentHashMap<>();
+    private final Map<String, FairQueue> byRoute = new ConcurrentHashMap<>();
+
+    public ConcurrencyLimiters(Map<String, String> groupByRoute, Function<String, FairQueue> factory) {
+        this.groupByRoute = Map.copyOf(groupByRoute);
+        this.factory = factory;
+    }
+
+    public FairQueue forRoute(String routeId) {
+        String route = routeId != null ? routeId : UNKNOWN_ROUTE;
+        FairQueue queue = byRoute.get(route);
+        if (queue != null) {
+            return queue;
+        }
+        String group = groupByRoute.getOrDefault(route, route);
+        return byRoute.computeIfAbsent(route, r -> byGroup.computeIfAbsent(group, factory));
+    }
+
+    public Collection<FairQueue> all() {
+        return byGroup.values();
+    }
+}
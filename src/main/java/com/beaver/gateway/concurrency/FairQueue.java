@@ -0,0 +1,250 @@
+package com.beaver.gateway.concurrency;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Waiting room in front of an {@link AdaptiveConcurrencyLimiter}. When the limiter is full, normal
+ * requests wait here in one bounded queue per flow, the caller's workspace, and each slot the limiter
+ * frees is handed to the next flow in deficit round-robin order. A tenant sending a flood of requests
+ * then only ever gets its weighted share of the downstream while others are waiting, instead of
+ * everything that happens to arrive first, and small tenants keep their tail latency.
+ * <p>
+ * Every flow with waiters is visited in turn and may take as many slots as its weight (1 unless
+ * configured) before the next flow's turn. Once anything is waiting, new requests queue behind it
+ * rather than racing for freed slots. A request that finds its flow's queue or the whole queue full,
+ * or is still waiting after {@code maxWait}, is shed as before. With {@code maxQueued} at 0 nothing
+ * ever waits.
+ * <p>
+ * The queues are guarded by one lock, taken only while something is waiting, so the uncontended path
+ * is the limiter's CAS alone. Waiters are woken outside the lock.
+ */
+public final class FairQueue {
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final Map<String, Integer> weights;
+    private final int defaultWeight;
+    private final int maxPerFlow;
+    private final int maxQueued;
+    private final Duration maxWait;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LongAdder queuedTotal = new LongAdder();
+    private final LongAdder full = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    /** Written under the lock; read without it to skip the lock when nothing waits. */
+    private volatile int waiting;
+
+    // Guarded by lock
+    private final Map<String, Flow> flows = new HashMap<>();
+    private final ArrayDeque<Flow> active = new ArrayDeque<>();
+
+    public FairQueue(AdaptiveConcurrencyLimiter limiter, Map<String, Integer> weights, int defaultWeight,
+                     int maxPerFlow, int maxQueued, Duration maxWait) {
+        if (defaultWeight < 1 || weights.values().stream().anyMatch(weight -> weight < 1)) {
+            throw new IllegalArgumentException("Fair queue weights must be at least 1 for " + limiter.name());
+        }
+        this.limiter = limiter;
+        this.weights = Map.copyOf(weights);
+        this.defaultWeight = defaultWeight;
+        this.maxPerFlow = maxPerFlow;
+        this.maxQueued = maxQueued;
+        this.maxWait = maxWait;
+    }
+
+    public AdaptiveConcurrencyLimiter limiter() {
+        return limiter;
+    }
+
+    /** Whether anything is waiting, in which case a new request must {@link #await} behind it. */
+    public boolean hasWaiters() {
+        return waiting > 0;
+    }
+
+    /**
+     * Queues a normal request of {@code flow} for a slot, emitting the in-flight count as
+     * {@link AdaptiveConcurrencyLimiter#tryAcquire} would once admitted, or
+     * {@link AdaptiveConcurrencyLimiter#REJECTED} if it has to be shed. Cancelling gives up the place
+     * in the queue, or the slot if one was already granted.
+     */
+    public Mono<Integer> await(String flow) {
+        return Mono.<Integer>create(sink -> {
+            Waiter waiter = new Waiter(sink);
+            if (!offer(flow != null ? flow : "", waiter)) {
+                sink.success(AdaptiveConcurrencyLimiter.REJECTED);
+                return;
+            }
+            sink.onCancel(() -> abandon(waiter));
+            // A slot may have been freed between the caller's tryAcquire and joining the queue
+            dispatch();
+        }).timeout(maxWait, Mono.fromSupplier(() -> {
+            timedOut.increment();
+            return AdaptiveConcurrencyLimiter.REJECTED;
+        }));
+    }
+
+    /**
+     * Hands freed slots to waiters; called after every release of the limiter.
+     */
+    public void dispatch() {
+        if (waiting == 0) {
+            return;
+        }
+        List<Waiter> granted = null;
+        lock.lock();
+        try {
+            while (!active.isEmpty()) {
+                Flow flow = active.peekFirst();
+                int inFlight = limiter.tryAcquire(false);
+                if (inFlight == AdaptiveConcurrencyLimiter.REJECTED) {
+                    break;
+                }
+                Waiter next = flow.waiters.pollFirst();
+                waiting--;
+                if (next.admit(inFlight)) {
+                    flow.deficit--;
+                    if (granted == null) {
+                        granted = new ArrayList<>();
+                    }
+                    granted.add(next);
+                } else {
+                    // Timed out or cancelled and about to leave the queue; not charged to the flow
+                    limiter.release();
+                }
+
+                if (flow.waiters.isEmpty()) {
+                    active.pollFirst();
+                    flows.remove(flow.key);
+                } else if (flow.deficit <= 0) {
+                    flow.deficit += flow.weight;
+                    active.addLast(active.pollFirst());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (granted != null) {
+            for (Waiter waiter : granted) {
+                waiter.sink.success(waiter.inFlight);
+            }
+        }
+    }
+
+    private boolean offer(String key, Waiter waiter) {
+        lock.lock();
+        try {
+            Flow flow = flows.get(key);
+            if (waiting >= maxQueued || (flow != null && flow.waiters.size() >= maxPerFlow)) {
+                full.increment();
+                return false;
+            }
+            if (flow == null) {
+                flow = new Flow(key, weights.getOrDefault(key, defaultWeight));
+                flows.put(key, flow);
+                active.addLast(flow);
+            }
+            flow.waiters.addLast(waiter);
+            waiter.flow = flow;
+            waiting++;
+            queuedTotal.increment();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void abandon(Waiter waiter) {
+        if (!waiter.abandon()) {
+            // Granted a slot, but the cancelled sink drops it, so nobody else will release it
+            limiter.release();
+            dispatch();
+            return;
+        }
+        lock.lock();
+        try {
+            Flow flow = waiter.flow;
+            if (flow.waiters.remove(waiter)) {
+                waiting--;
+                if (flow.waiters.isEmpty()) {
+                    active.remove(flow);
+                    flows.remove(flow.key);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String name() {
+        return limiter.name();
+    }
+
+    /** Requests waiting right now. */
+    public int waiting() {
+        return waiting;
+    }
+
+    /** Requests that have had to wait, ever. */
+    public long queued() {
+        return queuedTotal.sum();
+    }
+
+    /** Requests shed because their flow's queue or the whole queue was full. */
+    public long full() {
+        return full.sum();
+    }
+
+    /** Requests shed after waiting {@code maxWait}. */
+    public long timedOut() {
+        return timedOut.sum();
+    }
+
+    private static final class Flow {
+        final String key;
+        final int weight;
+        final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        int deficit;
+
+        Flow(String key, int weight) {
+            this.key = key;
+            this.weight = weight;
+            this.deficit = weight;
+        }
+    }
+
+    private static final class Waiter {
+        private static final int WAITING = 0;
+        private static final int ADMITTED = 1;
+        private static final int ABANDONED = 2;
+
+        final MonoSink<Integer> sink;
+        final AtomicInteger state = new AtomicInteger(WAITING);
+        Flow flow;
+        int inFlight;
+
+        Waiter(MonoSink<Integer> sink) {
+            this.sink = sink;
+        }
+
+        boolean admit(int inFlight) {
+            this.inFlight = inFlight;
+            return state.compareAndSet(WAITING, ADMITTED);
+        }
+
+        boolean abandon() {
+            return state.compareAndSet(WAITING, ABANDONED);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.beaver.gateway.config;
+
+import com.beaver.gateway.logging.AccessLog;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+@Configuration
+@EnableConfigurationProperties(AccessLogProperties.class)
+public class AccessLogConfig {
+
+    @Bean(destroyMethod = "close")
+    public AccessLog accessLog(AccessLogProperties properties) {
+        return new AccessLog(Path.of(properties.getPath()), properties.getBufferSize(), properties.getBatchSize(),
+                properties.getMaxFileSize().toBytes(), properties.getMaxHistory());
+    }
+}
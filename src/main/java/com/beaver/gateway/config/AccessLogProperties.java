@@ -0,0 +1,28 @@
+package com.beaver.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+/**
+ * Access log written by LoggingFilter under {@code gateway.access-log}.
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.access-log")
+public class AccessLogProperties {
+
+    /**
+     * Active log file. Defaults under the system temp directory rather than the working directory,
+     * so running the gateway from a checkout does not write into it; deployments set their own.
+     */
+    private String path = Path.of(System.getProperty("java.io.tmpdir"), "beaver-gateway", "access.log").toString();
+    /** Records held in memory awaiting the writer; beyond this they are dropped and counted. */
+    private int bufferSize = 65536;
+    /** Most records encoded per write. */
+    private int batchSize = 1024;
+    private DataSize maxFileSize = DataSize.ofMegabytes(100);
+    /** Rolled files kept alongside the active one. */
+    private int maxHistory = 5;
+}
@@ -0,0 +1,24 @@
+package com.beaver.gateway.config;
+
+import com.beaver.gateway.concurrency.AdaptiveConcurrencyLimiter;
+import com.beaver.gateway.concurrency.ConcurrencyLimiters;
+import com.beaver.gateway.concurrency.FairQueue;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ConcurrencyLimitProperties.class)
+public class ConcurrencyLimitConfig {
+
+    @Bean
+    public ConcurrencyLimiters concurrencyLimiters(ConcurrencyLimitProperties properties) {
+        ConcurrencyLimitProperties.Queue queue = properties.getQueue();
+        return new ConcurrencyLimiters(properties.getGroups(), group -> new FairQueue(
+                new AdaptiveConcurrencyLimiter(group, properties.getInitialLimit(), properties.getMinLimit(),
+                        properties.getMaxLimit(), properties.getSmoothing(), properties.getProbeInterval(),
+                        properties.getPriorityShare()),
+                queue.getWeights(), queue.getDefaultWeight(), queue.getMaxPerWorkspace(),
+                queue.getMaxQueued(), queue.getMaxWait()));
+    }
+}
@@ -0,0 +1,56 @@
+package com.beaver.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adaptive concurrency limits under {@code gateway.concurrency-limit}. Every route is limited; routes
+ * listed under {@code groups} share the named group's limiter instead of having their own. Requests
+ * over the limit wait in the group's {@code queue}.
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    private boolean enabled = true;
+    private int initialLimit = 20;
+    private int minLimit = 4;
+    private int maxLimit = 1000;
+    /** Weight of each new estimate, between 0 and 1; lower reacts more slowly. */
+    private double smoothing = 0.5;
+    /** How often the no-queue RTT is re-measured; a busy limiter is briefly pinned to its minimum to do so. */
+    private Duration probeInterval = Duration.ofSeconds(30);
+    /** Fraction of each limit only priority requests may use. */
+    private double priorityShare = 0.2;
+    /** Requests on these paths are priority; same pattern syntax as {@code gateway.auth.public-paths}. */
+    private List<String> priorityPaths = new ArrayList<>(List.of("/identity/auth/**", "/auth/**"));
+    /** Route id to limiter group. */
+    private Map<String, String> groups = new LinkedHashMap<>();
+    private Queue queue = new Queue();
+
+    /**
+     * Where normal requests wait, per workspace, while their group is at its limit; freed slots go to
+     * workspaces in weighted round-robin order.
+     */
+    @Data
+    public static class Queue {
+        /**
+         * Longest a request waits for a slot before it is shed. Around one downstream round trip: enough
+         * to ride out a burst, while under sustained overload a longer wait only adds latency.
+         */
+        private Duration maxWait = Duration.ofMillis(50);
+        /** Requests one workspace may have waiting per group. */
+        private int maxPerWorkspace = 32;
+        /** Requests that may wait per group across all workspaces; 0 sheds straight away instead. */
+        private int maxQueued = 1024;
+        private int defaultWeight = 1;
+        /** Workspace id to weight: how many slots it may take in a round while others are waiting. */
+        private Map<String, Integer> weights = new LinkedHashMap<>();
+    }
+}
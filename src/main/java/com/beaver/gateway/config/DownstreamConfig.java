@@ -0,0 +1,60 @@
+package com.beaver.gateway.config;
+
+import com.beaver.gateway.downstream.ConnectionPoolWarmer;
+import com.beaver.gateway.downstream.DownstreamClients;
+import com.beaver.gateway.downstream.RoutePoolRoutingFilter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.gateway.config.GatewayProperties;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.config.HttpClientSslConfigurer;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.client.HttpClient;
+
+import java.util.List;
+
+@Configuration
+@EnableConfigurationProperties(DownstreamProperties.class)
+public class DownstreamConfig {
+
+    @Bean
+    public DownstreamClients downstreamClients(DownstreamProperties downstream, HttpClientProperties properties,
+                                               ServerProperties serverProperties, HttpClientSslConfigurer sslConfigurer,
+                                               ObjectProvider<HttpClientCustomizer> customizers) {
+        return new DownstreamClients(downstream, properties, serverProperties, sslConfigurer,
+                customizers.orderedStream().toList());
+    }
+
+    /**
+     * Stands in for the stock routing filter, so only while that one is switched off; otherwise
+     * every route shares the gateway-wide pool.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.cloud.gateway.global-filter.netty-routing", name = "enabled", havingValue = "false")
+    public RoutePoolRoutingFilter routePoolRoutingFilter(HttpClient httpClient,
+                                                         ObjectProvider<List<HttpHeadersFilter>> headersFilters,
+                                                         HttpClientProperties properties, DownstreamClients clients) {
+        return new RoutePoolRoutingFilter(httpClient, headersFilters, properties, clients);
+    }
+
+    /** Switched off along with the stock routing filter, though it streams our responses just the same. */
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.cloud.gateway.global-filter.netty-routing", name = "enabled", havingValue = "false")
+    public NettyWriteResponseFilter routePoolWriteResponseFilter(GatewayProperties properties) {
+        return new NettyWriteResponseFilter(properties.getStreamingMediaTypes());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.cloud.gateway.global-filter.netty-routing", name = "enabled", havingValue = "false")
+    public ConnectionPoolWarmer connectionPoolWarmer(RouteLocator routeLocator, DownstreamClients clients,
+                                                     DownstreamProperties properties) {
+        return new ConnectionPoolWarmer(routeLocator, clients, properties);
+    }
+}
@@ -0,0 +1,60 @@
+package com.beaver.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-route downstream client settings under {@code gateway.downstream.routes.<route id>}. A route with
+ * a {@code pool} gets its own connection pool instead of sharing the gateway-wide one from
+ * {@code spring.cloud.gateway.httpclient.pool}; {@code hedging} is opt-in per route.
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.downstream")
+public class DownstreamProperties {
+
+    private Map<String, RouteSettings> routes = new LinkedHashMap<>();
+
+    @Data
+    public static class RouteSettings {
+        private Pool pool;
+        private Hedging hedging = new Hedging();
+    }
+
+    @Data
+    public static class Pool {
+        private int maxConnections = 100;
+        /** How long a request waits for a free connection once all are in use. */
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        /** Unset keeps connections for as long as they are in use and healthy. */
+        private Duration maxLifeTime;
+        private Duration evictionInterval = Duration.ofSeconds(10);
+        /** Connections opened before the server starts taking traffic; 0 opens them on demand. */
+        private int warmupConnections = 0;
+        /** Requested with HEAD to open each warm-up connection; any response will do. */
+        private String warmupPath = "/";
+        private Duration warmupTimeout = Duration.ofSeconds(5);
+    }
+
+    /**
+     * Hedging for GET and HEAD requests: when the first attempt has not answered after about the
+     * route's {@code percentile} latency, a second is sent and whichever answers first is used.
+     */
+    @Data
+    public static class Hedging {
+        private boolean enabled = false;
+        private double percentile = 0.95;
+        private Duration minDelay = Duration.ofMillis(5);
+        private Duration maxDelay = Duration.ofSeconds(1);
+        /** Latency samples needed before the delay is trusted; until then nothing is hedged. */
+        private int minSamples = 100;
+        /** Hedges allowed per request, so they add at most this fraction of load. */
+        private double budgetRatio = 0.1;
+        /** Unused hedges that can be saved up for a burst of slow responses. */
+        private int budgetBurst = 10;
+    }
+}
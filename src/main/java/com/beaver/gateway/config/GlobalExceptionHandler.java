@@ -3,7 +3,7 @@ package com.beaver.gateway.config;
 import com.beaver.auth.exceptions.JwtTokenMalformedException;
 import com.beaver.auth.exceptions.JwtTokenMissingException;
 import com.beaver.gateway.dto.ErrorResponse;
-import com.beaver.gateway.exception.RateLimitExceededException;
+import com.beaver.gateway.error.ErrorResponseRenderer;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -18,6 +18,21 @@ import java.util.stream.Collectors;
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
+    private final ErrorResponseRenderer errorRenderer;
+    private final ErrorResponseRenderer.Template gatewayError;
+    private final ErrorResponseRenderer.Template tokenMissing;
+    private final ErrorResponseRenderer.Template tokenMalformed;
+
+    public GlobalExceptionHandler(ErrorResponseRenderer errorRenderer) {
+        this.errorRenderer = errorRenderer;
+        this.gatewayError = errorRenderer.template(HttpStatus.INTERNAL_SERVER_ERROR,
+                "Gateway Error", "An error occurred while processing your request");
+        this.tokenMissing = errorRenderer.template(HttpStatus.UNAUTHORIZED,
+                "Authentication Required", "Access token is required");
+        this.tokenMalformed = errorRenderer.template(HttpStatus.UNAUTHORIZED,
+                "Authentication Failed", "Invalid or expired access token");
+    }
+
     @ExceptionHandler(WebExchangeBindException.class)
     public Mono<ResponseEntity<ErrorResponse>> handleValidationErrors(
             WebExchangeBindException ex, ServerWebExchange exchange) {
@@ -47,57 +62,18 @@ public class GlobalExceptionHandler {
                 .body(ex.getReason()));
     }
 
-    @ExceptionHandler(RateLimitExceededException.class)
-    public Mono<ResponseEntity<ErrorResponse>> handleRateLimitExceeded(
-            RateLimitExceededException ex, ServerWebExchange exchange) {
-        ErrorResponse errorResponse = ErrorResponse.of(
-                HttpStatus.TOO_MANY_REQUESTS.value(),
-                "Rate Limit Exceeded",
-                ex.getMessage(),
-                exchange.getRequest().getPath().value()
-        );
-
-        return Mono.just(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(errorResponse));
-    }
-
     @ExceptionHandler(Exception.class)
-    public Mono<ResponseEntity<ErrorResponse>> handleGenericException(
-            Exception ex, ServerWebExchange exchange) {
-        ErrorResponse errorResponse = ErrorResponse.of(
-                HttpStatus.INTERNAL_SERVER_ERROR.value(),
-                "Gateway Error",
-                "An error occurred while processing your request",
-                exchange.getRequest().getPath().value()
-        );
-
-        return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse));
+    public Mono<Void> handleGenericException(Exception ex, ServerWebExchange exchange) {
+        return errorRenderer.write(exchange, gatewayError);
     }
 
     @ExceptionHandler(JwtTokenMissingException.class)
-    public Mono<ResponseEntity<ErrorResponse>> handleJwtTokenMissing(
-            JwtTokenMissingException ex, ServerWebExchange exchange) {
-        ErrorResponse errorResponse = ErrorResponse.of(
-                HttpStatus.UNAUTHORIZED.value(),
-                "Authentication Required",
-                "Access token is required",
-                null,
-                exchange.getRequest().getPath().value()
-        );
-
-        return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(errorResponse));
+    public Mono<Void> handleJwtTokenMissing(JwtTokenMissingException ex, ServerWebExchange exchange) {
+        return errorRenderer.write(exchange, tokenMissing);
     }
 
     @ExceptionHandler(JwtTokenMalformedException.class)
-    public Mono<ResponseEntity<ErrorResponse>> handleJwtTokenMalformed(
-            JwtTokenMalformedException ex, ServerWebExchange exchange) {
-        ErrorResponse errorResponse = ErrorResponse.of(
-                HttpStatus.UNAUTHORIZED.value(),
-                "Authentication Failed",
-                "Invalid or expired access token",
-                null,
-                exchange.getRequest().getPath().value()
-        );
-
-        return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(errorResponse));
+    public Mono<Void> handleJwtTokenMalformed(JwtTokenMalformedException ex, ServerWebExchange exchange) {
+        return errorRenderer.write(exchange, tokenMalformed);
     }
 }
@@ -0,0 +1,30 @@
+package com.beaver.gateway.config;
+
+import com.beaver.gateway.ratelimit.RouteLimitTable;
+
+import java.util.List;
+
+/**
+ * Settings read on every request, as one immutable snapshot. {@link HotConfigHolder} replaces the
+ * whole snapshot when the configuration is refreshed; a filter reads it once per request and uses
+ * that copy throughout, so a request never sees half of an update.
+ *
+ * @param authDisabled  {@code jwt.auth-disabled}: let every request through without a token
+ * @param publicPaths   {@code gateway.auth.public-paths}: patterns that skip authentication on every route
+ * @param rateLimits    {@code gateway.rate-limit}: compiled default and per-route limits
+ * @param gatewaySecret {@code gateway.secret}: sent downstream to prove a request came through the gateway
+ */
+public record HotConfig(boolean authDisabled, List<String> publicPaths, RouteLimitTable rateLimits,
+                        String gatewaySecret) {
+
+    public HotConfig {
+        publicPaths = List.copyOf(publicPaths);
+    }
+
+    @Override
+    public String toString() {
+        // Never the secret
+        return "HotConfig[authDisabled=" + authDisabled + ", publicPaths=" + publicPaths
+                + ", rateLimitedRoutes=" + rateLimits.routeIds() + "]";
+    }
+}
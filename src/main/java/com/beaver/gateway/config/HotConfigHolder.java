@@ -0,0 +1,70 @@
+package com.beaver.gateway.config;
+
+import com.beaver.gateway.auth.PublicPathMatcher;
+import com.beaver.gateway.ratelimit.RouteLimitTable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Holds the current {@link HotConfig}. The snapshot is bound straight from the {@link Environment}
+ * when the gateway starts and again after every {@link EnvironmentChangeEvent}, which a Spring
+ * Cloud context refresh publishes, then swapped in with a single volatile write; requests already
+ * in flight keep the snapshot they read.
+ * <p>
+ * A refresh that leaves the settings invalid, such as a rate limit without a refill rate or a
+ * public path that is not absolute, is logged and ignored, and the previous snapshot stays in
+ * force. At startup the same problem fails the context instead.
+ */
+@Slf4j
+@Component
+public class HotConfigHolder {
+
+    static final List<String> DEFAULT_PUBLIC_PATHS = List.of("/identity/auth/**", "/auth/**");
+
+    private final Environment environment;
+    private volatile HotConfig current;
+
+    public HotConfigHolder(Environment environment) {
+        this.environment = environment;
+        this.current = bind(environment);
+    }
+
+    public HotConfig current() {
+        return current;
+    }
+
+    @EventListener(EnvironmentChangeEvent.class)
+    public void refresh() {
+        HotConfig next;
+        try {
+            next = bind(environment);
+        } catch (RuntimeException e) {
+            log.warn("Keeping the previous hot config; the refreshed settings are invalid: {}", e.getMessage());
+            return;
+        }
+        current = next;
+        log.info("Refreshed hot config: {}", next);
+    }
+
+    static HotConfig bind(Environment environment) {
+        Binder binder = Binder.get(environment);
+        List<String> publicPaths = binder.bind("gateway.auth.public-paths", Bindable.listOf(String.class))
+                .orElse(DEFAULT_PUBLIC_PATHS);
+        // Compiled here only to reject bad patterns before they replace good ones
+        PublicPathMatcher.compile(publicPaths);
+        return new HotConfig(
+                binder.bind("jwt.auth-disabled", Boolean.class).orElse(false),
+                publicPaths,
+                RouteLimitTable.compile(binder.bind("gateway.rate-limit", RateLimitProperties.class)
+                        .orElseGet(RateLimitProperties::new)),
+                binder.bind("gateway.secret", String.class)
+                        .orElseThrow(() -> new IllegalStateException("gateway.secret is not set")));
+    }
+}
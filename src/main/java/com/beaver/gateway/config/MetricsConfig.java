@@ -0,0 +1,17 @@
+package com.beaver.gateway.config;
+
+import com.beaver.gateway.metrics.MetricsServer;
+import com.beaver.gateway.metrics.PrometheusExporter;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(MetricsProperties.class)
+public class MetricsConfig {
+
+    @Bean
+    public MetricsServer metricsServer(PrometheusExporter exporter, MetricsProperties properties) {
+        return new MetricsServer(exporter, properties.getAddress(), properties.getPort());
+    }
+}
@@ -0,0 +1,17 @@
+package com.beaver.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Management listener for the Prometheus scrape endpoint under {@code gateway.metrics}. The port
+ * must not be exposed through the load balancer.
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.metrics")
+public class MetricsProperties {
+
+    private String address = "0.0.0.0";
+    /** 0 picks a free port. */
+    private int port = 9090;
+}
@@ -1,99 +1,49 @@
 package com.beaver.gateway.config;
 
+import com.beaver.gateway.ratelimit.BucketStore;
+import com.beaver.gateway.ratelimit.ClientAddressResolver;
+import com.beaver.gateway.ratelimit.ClusterRateLimiter;
+import com.beaver.gateway.ratelimit.InMemoryRateLimiter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
-import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import reactor.core.publisher.Mono;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
-
 @Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
 public class RateLimitConfig {
 
     @Bean
-    public KeyResolver ipAddressKeyResolver() {
-        return exchange -> {
-            String clientIp = exchange.getRequest().getRemoteAddress() != null 
-                ? exchange.getRequest().getRemoteAddress().getAddress().getHostAddress()
-                : "unknown";
-            return Mono.just(clientIp);
-        };
+    public ClientAddressResolver clientAddressResolver(RateLimitProperties properties) {
+        return new ClientAddressResolver(properties.getTrustedProxies());
+    }
+
+    @Bean
+    public KeyResolver ipAddressKeyResolver(ClientAddressResolver clientAddressResolver) {
+        return exchange -> Mono.just(clientAddressResolver.resolveAddress(exchange.getRequest()));
     }
 
     @Bean
-    public RateLimiter inMemoryRateLimiter() {
-        return new InMemoryRateLimiter();
+    public BucketStore rateLimitBucketStore(RateLimitProperties properties) {
+        return new BucketStore(properties.getMaxBuckets(), properties.getIdleTimeout().toNanos());
     }
-    
-    static class InMemoryRateLimiter implements RateLimiter<Object> {
-        
-        private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
-        private final int capacity = 10;
-        private final int refillRate = 5;
-        
-        @Override
-        public Mono<Response> isAllowed(String routeId, String id) {
-            TokenBucket bucket = buckets.computeIfAbsent(id, k -> new TokenBucket(capacity, refillRate));
-            
-            if (bucket.tryConsume()) {
-                return Mono.just(new Response(true, java.util.Map.of()));
-            } else {
-                return Mono.just(new Response(false,
-                    java.util.Map.of("X-RateLimit-Retry-After-Seconds", "1")));
-            }
-        }
-        
-        @Override
-        public java.util.Map<String, Object> getConfig() {
-            return java.util.Map.of(
-                "capacity", capacity,
-                "refillRate", refillRate
-            );
-        }
-        
-        @Override
-        public Class<Object> getConfigClass() {
-            return Object.class;
-        }
-        
-        @Override
-        public Object newConfig() {
-            return new Object();
-        }
 
-        static class TokenBucket {
-            private final int capacity;
-            private final int refillRate;
-            private final AtomicInteger tokens;
-            private final AtomicLong lastRefill;
-            
-            TokenBucket(int capacity, int refillRate) {
-                this.capacity = capacity;
-                this.refillRate = refillRate;
-                this.tokens = new AtomicInteger(capacity);
-                this.lastRefill = new AtomicLong(System.currentTimeMillis());
-            }
-            
-            boolean tryConsume() {
-                refill();
-                return tokens.getAndUpdate(current -> current > 0 ? current - 1 : current) > 0;
-            }
-            
-            private void refill() {
-                long now = System.currentTimeMillis();
-                long lastRefillTime = lastRefill.get();
-                long timePassed = now - lastRefillTime;
-                
-                if (timePassed > 1000) {
-                    int tokensToAdd = (int) (timePassed / 1000) * refillRate;
-                    if (tokensToAdd > 0 && lastRefill.compareAndSet(lastRefillTime, now)) {
-                        tokens.updateAndGet(current -> Math.min(capacity, current + tokensToAdd));
-                    }
-                }
-            }
-        }
+    @Bean
+    public InMemoryRateLimiter inMemoryRateLimiter(BucketStore rateLimitBucketStore, HotConfigHolder hotConfig) {
+        // Limits follow config refreshes; bucket sizing and the cluster store are fixed at startup
+        return new InMemoryRateLimiter(rateLimitBucketStore, () -> hotConfig.current().rateLimits());
+    }
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(prefix = "gateway.rate-limit.cluster", name = "enabled", havingValue = "true")
+    public ClusterRateLimiter clusterRateLimiter(InMemoryRateLimiter inMemoryRateLimiter, RateLimitProperties properties) {
+        RateLimitProperties.Cluster cluster = properties.getCluster();
+        return new ClusterRateLimiter(inMemoryRateLimiter, cluster.getHost(), cluster.getPort(),
+                (int) cluster.getTimeout().toMillis(), cluster.getWindow().toMillis(), cluster.getLeaseSize(),
+                cluster.getMaxPendingLeases(), cluster.getRetryInterval().toMillis());
     }
-}
\ No newline at end of file
+}
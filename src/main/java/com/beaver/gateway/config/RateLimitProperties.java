@@ -0,0 +1,95 @@
+package com.beaver.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rate limits under {@code gateway.rate-limit}. Each route checks up to three levels in order
+ * client (user, or IP when anonymous), workspace and route-wide global; a level left unset is not
+ * enforced. Routes without an entry under {@code routes} use {@code default-route}. Ahead of all of
+ * them, {@code pre-auth} limits each client address across the whole gateway.
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.rate-limit")
+public class RateLimitProperties {
+
+    private int maxBuckets = 65536;
+    private Duration idleTimeout = Duration.ofMinutes(2);
+    private RouteLimit defaultRoute = RouteLimit.clientOnly(10, 5);
+    private Map<String, RouteLimit> routes = new LinkedHashMap<>();
+    /**
+     * Per-IP limit checked on every request before routing and authentication, so requests that
+     * fail authentication, match no route or are answered from the cache still draw from a budget.
+     * A capacity of 0 turns it off.
+     */
+    private Bucket preAuth = new Bucket(100, 50);
+    private Cluster cluster = new Cluster();
+    /**
+     * Peers whose X-Forwarded-For and X-Real-IP are believed when keying anonymous clients.
+     * Defaults to loopback and private ranges, where the load balancers normally sit.
+     */
+    private List<String> trustedProxies = new ArrayList<>(List.of(
+            "127.0.0.0/8", "10.0.0.0/8", "172.16.0.0/12", "192.168.0.0/16", "::1", "fc00::/7"));
+
+    @Data
+    public static class RouteLimit {
+        /** Tokens drawn from every level by a single request. */
+        private int cost = 1;
+        private Bucket global;
+        private Bucket workspace;
+        private Bucket client;
+
+        static RouteLimit clientOnly(int capacity, int refillRate) {
+            return clientOnly(new Bucket(capacity, refillRate));
+        }
+
+        public static RouteLimit clientOnly(Bucket client) {
+            RouteLimit limit = new RouteLimit();
+            limit.setClient(client);
+            return limit;
+        }
+    }
+
+    /**
+     * Shared quota store for limits that hold across all gateway replicas.
+     */
+    @Data
+    public static class Cluster {
+        private boolean enabled = false;
+        private String host = "localhost";
+        private int port = 6379;
+        private Duration timeout = Duration.ofMillis(200);
+        /**
+         * Length of the sliding window the shared budget of {@code refill-rate * window} is counted
+         * over. Bursts are shaped per node, and one larger than that budget cannot be spent cluster-wide.
+         */
+        private Duration window = Duration.ofSeconds(1);
+        /** Most tokens a node takes from the store at once. */
+        private int leaseSize = 20;
+        /** Most leases queued for the store at once; decisions that would queue more use local limits. */
+        private int maxPendingLeases = 1024;
+        /** How often an unreachable store is probed while running on local limits. */
+        private Duration retryInterval = Duration.ofSeconds(5);
+    }
+
+    @Data
+    public static class Bucket {
+        private int capacity;
+        /** Tokens added per second. */
+        private int refillRate;
+
+        public Bucket() {
+        }
+
+        public Bucket(int capacity, int refillRate) {
+            this.capacity = capacity;
+            this.refillRate = refillRate;
+        }
+    }
+}
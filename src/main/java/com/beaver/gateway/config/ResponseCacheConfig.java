@@ -0,0 +1,17 @@
+package com.beaver.gateway.config;
+
+import com.beaver.gateway.cache.ResponseCache;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ResponseCacheProperties.class)
+public class ResponseCacheConfig {
+
+    @Bean
+    public ResponseCache responseCache(ResponseCacheProperties properties) {
+        return new ResponseCache(properties.getMaximumSize().toBytes(), properties.getMaxEntrySize().toBytes(),
+                properties.getMaxTtl(), properties.isOffHeap());
+    }
+}
@@ -0,0 +1,24 @@
+package com.beaver.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Response cache used by ResponseCacheFilter under {@code gateway.response-cache}.
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.response-cache")
+public class ResponseCacheProperties {
+
+    /** Total body bytes held across all entries. */
+    private DataSize maximumSize = DataSize.ofMegabytes(64);
+    /** Larger responses are passed through uncached. */
+    private DataSize maxEntrySize = DataSize.ofKilobytes(512);
+    /** Caps downstream max-age, and how long a stale entry is kept for ETag revalidation. */
+    private Duration maxTtl = Duration.ofMinutes(10);
+    /** Keep bodies in direct buffers outside the Java heap. */
+    private boolean offHeap = false;
+}
@@ -0,0 +1,107 @@
+package com.beaver.gateway.downstream;
+
+import com.beaver.gateway.config.DownstreamProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.context.SmartLifecycle;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Opens each pooled route's warm-up connections before the web server starts accepting requests, so
+ * the first requests after a deploy find connections already established instead of paying for TCP
+ * and TLS setup. Connections are opened by that many concurrent {@code HEAD} requests, each of which
+ * normally leaves one idle connection in the pool.
+ * <p>
+ * Warming up never holds back startup by more than the route's warm-up timeout, and a downstream
+ * that is not reachable yet is logged and otherwise ignored.
+ */
+@Slf4j
+public class ConnectionPoolWarmer implements SmartLifecycle {
+
+    /** Just ahead of the web server, which starts one phase step later. */
+    static final int PHASE = WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE - 2048;
+
+    private final RouteLocator routeLocator;
+    private final DownstreamClients clients;
+    private final DownstreamProperties properties;
+    private volatile boolean running;
+
+    public ConnectionPoolWarmer(RouteLocator routeLocator, DownstreamClients clients, DownstreamProperties properties) {
+        this.routeLocator = routeLocator;
+        this.clients = clients;
+        this.properties = properties;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        List<Route> routes = routeLocator.getRoutes()
+                .filter(route -> warmupConnections(route.getId()) > 0 && clients.forRoute(route.getId()) != null)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+        if (routes == null || routes.isEmpty()) {
+            return;
+        }
+        Flux.fromIterable(routes)
+                .flatMap(this::warmUp)
+                .then()
+                .block();
+    }
+
+    private Mono<Void> warmUp(Route route) {
+        DownstreamProperties.Pool pool = properties.getRoutes().get(route.getId()).getPool();
+        URI uri = route.getUri();
+        if (!"http".equalsIgnoreCase(uri.getScheme()) && !"https".equalsIgnoreCase(uri.getScheme())) {
+            return Mono.empty();
+        }
+        HttpClient client = clients.forRoute(route.getId());
+        String target = uri.resolve(pool.getWarmupPath()).toString();
+        long start = System.nanoTime();
+        return client.warmup()
+                .thenMany(Flux.range(0, pool.getWarmupConnections())
+                        .flatMap(i -> client.head().uri(target).responseContent().then()
+                                .thenReturn(Boolean.TRUE)
+                                .onErrorReturn(Boolean.FALSE), pool.getWarmupConnections()))
+                .filter(Boolean::booleanValue)
+                .count()
+                .timeout(pool.getWarmupTimeout(), Mono.just(-1L))
+                .doOnNext(opened -> {
+                    if (opened < 0) {
+                        log.warn("Warming up connections for route {} to {} timed out after {}", route.getId(), target,
+                                pool.getWarmupTimeout());
+                    } else {
+                        log.info("Warmed up {} of {} connections for route {} to {} in {} ms", opened,
+                                pool.getWarmupConnections(), route.getId(), target, (System.nanoTime() - start) / 1_000_000);
+                    }
+                })
+                .then();
+    }
+
+    private int warmupConnections(String routeId) {
+        DownstreamProperties.RouteSettings settings = properties.getRoutes().get(routeId);
+        return settings != null && settings.getPool() != null ? settings.getPool().getWarmupConnections() : 0;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
@@ -0,0 +1,82 @@
+package com.beaver.gateway.downstream;
+
+import com.beaver.gateway.config.DownstreamProperties;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.cloud.gateway.config.HttpClientFactory;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.config.HttpClientSslConfigurer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HTTP clients for routes with their own connection pool. Each is built by the gateway's own
+ * {@link HttpClientFactory}, so timeouts, SSL, proxy and customizers match the shared client, with
+ * only the connection pool swapped for one sized for that route.
+ */
+public final class DownstreamClients implements DisposableBean {
+
+    private final Map<String, HttpClient> clients = new HashMap<>();
+    private final Map<String, ConnectionProvider> providers = new HashMap<>();
+
+    public DownstreamClients(DownstreamProperties downstream, HttpClientProperties properties,
+                             ServerProperties serverProperties, HttpClientSslConfigurer sslConfigurer,
+                             List<HttpClientCustomizer> customizers) {
+        downstream.getRoutes().forEach((routeId, settings) -> {
+            if (settings.getPool() != null) {
+                RouteClientFactory factory = new RouteClientFactory(routeId, settings.getPool(), properties,
+                        serverProperties, sslConfigurer, customizers);
+                clients.put(routeId, factory.build());
+                providers.put(routeId, factory.provider);
+            }
+        });
+    }
+
+    /** The route's own client, or null if it uses the shared one. */
+    public HttpClient forRoute(String routeId) {
+        return clients.get(routeId);
+    }
+
+    @Override
+    public void destroy() {
+        providers.values().forEach(ConnectionProvider::dispose);
+    }
+
+    private static final class RouteClientFactory extends HttpClientFactory {
+
+        private final String routeId;
+        private final DownstreamProperties.Pool pool;
+        private ConnectionProvider provider;
+
+        RouteClientFactory(String routeId, DownstreamProperties.Pool pool, HttpClientProperties properties,
+                           ServerProperties serverProperties, HttpClientSslConfigurer sslConfigurer,
+                           List<HttpClientCustomizer> customizers) {
+            super(properties, serverProperties, sslConfigurer, customizers);
+            this.routeId = routeId;
+            this.pool = pool;
+        }
+
+        HttpClient build() {
+            return createInstance();
+        }
+
+        @Override
+        protected ConnectionProvider buildConnectionProvider(HttpClientProperties properties) {
+            ConnectionProvider.Builder builder = ConnectionProvider.builder("route-" + routeId)
+                    .maxConnections(pool.getMaxConnections())
+                    .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                    .maxIdleTime(pool.getMaxIdleTime())
+                    .evictInBackground(pool.getEvictionInterval());
+            if (pool.getMaxLifeTime() != null) {
+                builder.maxLifeTime(pool.getMaxLifeTime());
+            }
+            provider = builder.build();
+            return provider;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.beaver.gateway.downstream;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps hedged requests at a fraction of all requests, in the manner of Finagle's retry budget: each
+ * request deposits {@code ratio} of a hedge and each hedge withdraws a whole one. A slow downstream
+ * therefore sees at most {@code 1 + ratio} times its normal load from hedging, however slow it gets,
+ * while up to {@code burst} unused hedges can be saved for a short run of slow responses.
+ */
+public final class HedgeBudget {
+
+    private static final long UNIT = 1_000;
+
+    private final long deposit;
+    private final long capacity;
+    private final AtomicLong balance = new AtomicLong();
+
+    public HedgeBudget(double ratio, int burst) {
+        this.deposit = Math.max(0, Math.round(ratio * UNIT));
+        this.capacity = Math.max(1, burst) * UNIT;
+    }
+
+    public void deposit() {
+        long current;
+        do {
+            current = balance.get();
+            if (current >= capacity) {
+                return;
+            }
+        } while (!balance.compareAndSet(current, Math.min(capacity, current + deposit)));
+    }
+
+    public boolean tryWithdraw() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < UNIT) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - UNIT));
+        return true;
+    }
+}
@@ -0,0 +1,104 @@
+package com.beaver.gateway.downstream;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency quantile over roughly the last one to two windows, from log-scale buckets about 10% wide
+ * between 100µs and a minute. Recording is a single atomic increment; the quantile is worked out at
+ * most once per {@code refreshNanos} and cached, so asking for it on every request costs a volatile
+ * read.
+ * <p>
+ * Two windows of counts are kept. When the current one is older than the window length it becomes
+ * the previous one and the old previous one is cleared, so the estimate follows a downstream whose
+ * latency changes without ever resting on a handful of samples.
+ */
+public final class RollingQuantile {
+
+    private static final long MIN_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final double GROWTH = 1.1;
+    private static final double LOG_GROWTH = Math.log(GROWTH);
+    static final int BUCKETS = (int) Math.ceil(Math.log((double) TimeUnit.MINUTES.toNanos(1) / MIN_NANOS) / LOG_GROWTH) + 1;
+
+    private final double quantile;
+    private final long windowNanos;
+    private final long refreshNanos;
+    private final AtomicLongArray[] windows = {new AtomicLongArray(BUCKETS), new AtomicLongArray(BUCKETS)};
+
+    private volatile int current;
+    private volatile long windowStartedAt;
+    private volatile long nextRefreshAt;
+    private volatile long cachedNanos = -1;
+    private volatile long cachedSamples;
+
+    public RollingQuantile(double quantile, long windowNanos, long refreshNanos) {
+        if (quantile <= 0 || quantile >= 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1: " + quantile);
+        }
+        this.quantile = quantile;
+        this.windowNanos = windowNanos;
+        this.refreshNanos = refreshNanos;
+        long now = System.nanoTime();
+        this.windowStartedAt = now;
+        this.nextRefreshAt = now;
+    }
+
+    public void record(long nanos) {
+        windows[current].incrementAndGet(bucket(nanos));
+    }
+
+    /**
+     * The quantile in nanoseconds, or -1 while fewer than {@code minSamples} have been recorded.
+     */
+    public long valueNanos(long minSamples) {
+        long now = System.nanoTime();
+        if (now - nextRefreshAt >= 0) {
+            refresh(now);
+        }
+        return cachedSamples >= minSamples ? cachedNanos : -1;
+    }
+
+    private synchronized void refresh(long now) {
+        if (now - nextRefreshAt < 0) {
+            return;
+        }
+        nextRefreshAt = now + refreshNanos;
+        if (now - windowStartedAt >= windowNanos) {
+            int previous = current ^ 1;
+            for (int i = 0; i < BUCKETS; i++) {
+                windows[previous].set(i, 0);
+            }
+            current = previous;
+            windowStartedAt = now;
+        }
+
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += windows[0].get(i) + windows[1].get(i);
+        }
+        long rank = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        long value = -1;
+        for (int i = 0; i < BUCKETS && total > 0; i++) {
+            seen += windows[0].get(i) + windows[1].get(i);
+            if (seen >= rank) {
+                value = upperBound(i);
+                break;
+            }
+        }
+        cachedNanos = value;
+        cachedSamples = total;
+    }
+
+    static int bucket(long nanos) {
+        if (nanos <= MIN_NANOS) {
+            return 0;
+        }
+        int bucket = (int) Math.ceil(Math.log((double) nanos / MIN_NANOS) / LOG_GROWTH);
+        return Math.min(bucket, BUCKETS - 1);
+    }
+
+    static long upperBound(int bucket) {
+        return (long) (MIN_NANOS * Math.pow(GROWTH, bucket));
+    }
+}
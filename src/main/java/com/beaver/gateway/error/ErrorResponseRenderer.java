@@ -0,0 +1,118 @@
+package com.beaver.gateway.error;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Renders the gateway's JSON error bodies from pre-encoded byte templates.
+ * <p>
+ * Everything but the timestamp and the request path is encoded once per status and message, and
+ * the timestamp is re-encoded at most once a second, so a flood of rejected requests costs a
+ * buffer copy rather than a Jackson serialisation. Bodies are written into buffers taken from the
+ * response's own factory, which on Reactor Netty are pooled direct buffers.
+ * <p>
+ * The body layout matches {@link com.beaver.gateway.dto.ErrorResponse}:
+ * {@code {"timestamp":..,"status":..,"error":..,"message":..,"path":..}}.
+ */
+@Component
+public class ErrorResponseRenderer {
+
+    private static final byte[] TIMESTAMP_PREFIX = "{\"timestamp\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SUFFIX = "\"}".getBytes(StandardCharsets.US_ASCII);
+
+    private final Map<String, Template> templates = new ConcurrentHashMap<>();
+    private volatile EncodedTimestamp timestamp = new EncodedTimestamp(Long.MIN_VALUE, new byte[0]);
+
+    /**
+     * Returns the cached template for a status and message. Callers on hot paths should resolve
+     * their templates once and keep them.
+     */
+    public Template template(HttpStatus status, String error, String message) {
+        return templates.computeIfAbsent(status.value() + "|" + error + "|" + message,
+                key -> new Template(status, error, message));
+    }
+
+    public Mono<Void> write(ServerWebExchange exchange, Template template) {
+        ServerHttpResponse response = exchange.getResponse();
+        byte[] time = currentTimestamp();
+        byte[] path = encodePath(exchange.getRequest().getPath().value());
+        int length = TIMESTAMP_PREFIX.length + time.length + template.body.length + path.length + SUFFIX.length;
+
+        response.setStatusCode(template.status);
+        HttpHeaders headers = response.getHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setContentLength(length);
+
+        DataBuffer buffer = response.bufferFactory().allocateBuffer(length);
+        buffer.write(TIMESTAMP_PREFIX);
+        buffer.write(time);
+        buffer.write(template.body);
+        buffer.write(path);
+        buffer.write(SUFFIX);
+        return response.writeWith(Mono.just(buffer));
+    }
+
+    private byte[] currentTimestamp() {
+        long second = System.currentTimeMillis() / 1000;
+        EncodedTimestamp current = timestamp;
+        if (current.second != second) {
+            current = new EncodedTimestamp(second,
+                    Instant.ofEpochSecond(second).toString().getBytes(StandardCharsets.US_ASCII));
+            timestamp = current;
+        }
+        return current.bytes;
+    }
+
+    /**
+     * Request paths are almost always plain ASCII; only fall back to the JSON encoder when escaping is needed.
+     */
+    private static byte[] encodePath(String path) {
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c < 0x20 || c > 0x7E || c == '"' || c == '\\') {
+                return JsonStringEncoder.getInstance().quoteAsUTF8(path);
+            }
+        }
+        return path.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private record EncodedTimestamp(long second, byte[] bytes) {
+    }
+
+    /**
+     * The fixed part of an error body, from the end of the timestamp up to the start of the path.
+     */
+    public static final class Template {
+
+        private final HttpStatus status;
+        private final byte[] body;
+
+        private Template(HttpStatus status, String error, String message) {
+            this.status = status;
+            this.body = ("\",\"status\":" + status.value()
+                    + ",\"error\":\"" + quote(error)
+                    + "\",\"message\":\"" + quote(message)
+                    + "\",\"path\":\"").getBytes(StandardCharsets.UTF_8);
+        }
+
+        private static String quote(String value) {
+            return new String(JsonStringEncoder.getInstance().quoteAsString(value));
+        }
+
+        public HttpStatus status() {
+            return status;
+        }
+    }
+}
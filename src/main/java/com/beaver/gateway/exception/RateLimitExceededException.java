@@ -1,7 +0,0 @@
-package com.beaver.gateway.exception;
-
-public class RateLimitExceededException extends RuntimeException {
-    public RateLimitExceededException(String message) {
-        super(message);
-    }
-}
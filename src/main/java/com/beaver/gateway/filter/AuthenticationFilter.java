@@ -1,107 +1,178 @@
 package com.beaver.gateway.filter;
 
-import com.beaver.auth.jwt.JwtConfig;
-import com.beaver.auth.jwt.JwtService;
 import com.beaver.auth.cookie.AuthCookieService;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.cloud.context.config.annotation.RefreshScope;
+import com.beaver.gateway.auth.JwtClaimsCache;
+import com.beaver.gateway.auth.PublicPathMatcher;
+import com.beaver.gateway.auth.TokenDigest;
+import com.beaver.gateway.auth.TokenRevocationList;
+import com.beaver.gateway.auth.VerifiedClaims;
+import com.beaver.gateway.config.HotConfig;
+import com.beaver.gateway.config.HotConfigHolder;
+import com.beaver.gateway.error.ErrorResponseRenderer;
+import com.beaver.gateway.metrics.GatewayMetrics;
+import com.beaver.gateway.metrics.LatencyHistogram;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
-import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.cloud.gateway.support.HasRouteId;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
-import org.springframework.web.server.ServerWebExchange;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Mono;
 
-import java.time.Instant;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 
-@RefreshScope
 @Component
 public class AuthenticationFilter extends AbstractGatewayFilterFactory<AuthenticationFilter.Config> {
 
     private static final Logger log = LoggerFactory.getLogger(AuthenticationFilter.class);
 
-    private final JwtService jwtService;
-    private final JwtConfig jwtConfig;
+    /** Exchange attribute holding the {@link VerifiedClaims} of the request's access token. */
+    public static final String VERIFIED_CLAIMS_ATTR = "verified-claims";
+
+    private static final VerifiedClaims INVALID_TOKEN = new VerifiedClaims("", "", "", 0);
+    private static final VerifiedClaims VERIFICATION_ERROR = new VerifiedClaims("", "", "", 0);
+
+    private final JwtClaimsCache claimsCache;
+    private final TokenRevocationList revocations;
+    private final HotConfigHolder hotConfig;
     private final AuthCookieService cookieService;
-    private final ObjectMapper objectMapper;
+    private final ErrorResponseRenderer errorRenderer;
+    private final ErrorResponseRenderer.Template missingToken;
+    private final ErrorResponseRenderer.Template invalidToken;
+    private final GatewayMetrics metrics;
 
-    public AuthenticationFilter(JwtService jwtService, JwtConfig jwtConfig, AuthCookieService cookieService, ObjectMapper objectMapper) {
+    public AuthenticationFilter(JwtClaimsCache claimsCache, TokenRevocationList revocations, HotConfigHolder hotConfig,
+                                AuthCookieService cookieService, ErrorResponseRenderer errorRenderer, GatewayMetrics metrics) {
         super(Config.class);
-        this.jwtService = jwtService;
-        this.jwtConfig = jwtConfig;
+        this.claimsCache = claimsCache;
+        this.revocations = revocations;
+        this.hotConfig = hotConfig;
         this.cookieService = cookieService;
-        this.objectMapper = objectMapper;
+        this.errorRenderer = errorRenderer;
+        this.metrics = metrics;
+        this.missingToken = errorRenderer.template(HttpStatus.UNAUTHORIZED, "Unauthorized", "Access token is required");
+        this.invalidToken = errorRenderer.template(HttpStatus.UNAUTHORIZED, "Unauthorized", "Invalid or expired access token");
     }
 
     @Override
     public GatewayFilter apply(Config config) {
+        LatencyHistogram latency = metrics.filterLatency(GatewayMetrics.AUTHENTICATION, config.getRouteId());
+        RoutePublicPaths publicPaths = new RoutePublicPaths(config.getPublicPaths(), hotConfig.current());
         return ((exchange, chain) -> {
+            long start = System.nanoTime();
+            // One read per request; a refresh while the token is being verified does not affect it
+            HotConfig hot = hotConfig.current();
             String path = exchange.getRequest().getPath().value();
 
-            if (path.startsWith("/identity/auth/") || path.startsWith("/auth/")) {
-                log.debug("Skipping authentication for auth endpoint: {}", path);
+            if (publicPaths.matcher(hot).matches(path)) {
+                log.debug("Skipping authentication for public path: {}", path);
+                latency.record(System.nanoTime() - start);
                 return chain.filter(exchange);
             }
 
-            if (!jwtConfig.isAuthDisabled()) {
+            if (!hot.authDisabled()) {
                 String token = cookieService.extractAccessToken(exchange.getRequest());
 
                 if (token == null) {
                     log.debug("Access token is missing for request to: {}", path);
-                    return createUnauthorizedResponse(exchange, "Access token is required");
+                    metrics.jwtOutcome(GatewayMetrics.JwtOutcome.MISSING);
+                    latency.record(System.nanoTime() - start);
+                    return errorRenderer.write(exchange, missingToken);
+                }
+
+                // Checked ahead of the claims cache, so a revoked token is refused even while cached
+                TokenDigest digest = TokenDigest.of(token);
+                if (revocations.isRevoked(digest)) {
+                    log.debug("Revoked access token presented for request to: {}", path);
+                    metrics.jwtOutcome(GatewayMetrics.JwtOutcome.REVOKED);
+                    latency.record(System.nanoTime() - start);
+                    return errorRenderer.write(exchange, invalidToken);
                 }
 
-                return jwtService.isValidAccessToken(token)
-                    .flatMap(isValid -> {
-                        if (isValid) {
-                            // Add the validated token to exchange attributes for downstream filters
+                return claimsCache.verify(token, digest)
+                    .defaultIfEmpty(INVALID_TOKEN)
+                    .onErrorResume(ex -> {
+                        log.debug("JWT token validation error for request to: {}", path);
+                        return Mono.just(VERIFICATION_ERROR);
+                    })
+                    .flatMap(claims -> {
+                        latency.record(System.nanoTime() - start);
+                        if (claims != INVALID_TOKEN && claims != VERIFICATION_ERROR) {
+                            metrics.jwtOutcome(GatewayMetrics.JwtOutcome.ACCEPTED);
+                            // Hand the parsed claims to downstream filters so the token is never re-read
+                            exchange.getAttributes().put(VERIFIED_CLAIMS_ATTR, claims);
                             exchange.getAttributes().put("validated-access-token", token);
                             return chain.filter(exchange);
                         } else {
                             log.debug("JWT token validation failed for request to: {}", path);
-                            return createUnauthorizedResponse(exchange, "Invalid or expired access token");
+                            metrics.jwtOutcome(claims == VERIFICATION_ERROR
+                                    ? GatewayMetrics.JwtOutcome.ERROR : GatewayMetrics.JwtOutcome.INVALID);
+                            return errorRenderer.write(exchange, invalidToken);
                         }
-                    })
-                    .onErrorResume(ex -> {
-                        log.debug("JWT token validation error for request to: {}", path);
-                        return createUnauthorizedResponse(exchange, "Invalid or expired access token");
                     });
             }
 
+            latency.record(System.nanoTime() - start);
             return chain.filter(exchange);
         });
     }
 
-    private Mono<Void> createUnauthorizedResponse(ServerWebExchange exchange, String message) {
-        exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
-        exchange.getResponse().getHeaders().add("Content-Type", MediaType.APPLICATION_JSON_VALUE);
-
-        Map<String, Object> errorResponse = Map.of(
-            "timestamp", Instant.now().toString(),
-            "path", exchange.getRequest().getPath().value(),
-            "status", 401,
-            "error", "Unauthorized",
-            "message", message
-        );
-
-        try {
-            byte[] bytes = objectMapper.writeValueAsBytes(errorResponse);
-            DataBuffer buffer = exchange.getResponse().bufferFactory().wrap(bytes);
-            return exchange.getResponse().writeWith(Mono.just(buffer));
-        } catch (JsonProcessingException e) {
-            log.error("Error creating JSON response", e);
-            return exchange.getResponse().setComplete();
+    /**
+     * A route's public-path matcher. Global and route patterns are compiled once per route, not per
+     * request, and again only when a refresh brings a new list of global patterns.
+     */
+    private static final class RoutePublicPaths {
+
+        private final List<String> routePatterns;
+        private volatile Compiled compiled;
+
+        RoutePublicPaths(List<String> routePatterns, HotConfig initial) {
+            this.routePatterns = routePatterns;
+            this.compiled = compile(initial.publicPaths());
+        }
+
+        PublicPathMatcher matcher(HotConfig hot) {
+            Compiled current = compiled;
+            if (current.globalPatterns != hot.publicPaths()) {
+                // Racing requests may both compile; either result is correct
+                current = compile(hot.publicPaths());
+                compiled = current;
+            }
+            return current.matcher;
+        }
+
+        private Compiled compile(List<String> globalPatterns) {
+            return new Compiled(globalPatterns, PublicPathMatcher.compile(globalPatterns, routePatterns));
+        }
+
+        private record Compiled(List<String> globalPatterns, PublicPathMatcher matcher) {
         }
     }
 
-    public static class Config {
-        // Configuration properties can be added here if needed
+    public static class Config implements HasRouteId {
+        private String routeId;
+        /** Paths on this route that skip authentication, in addition to {@code gateway.auth.public-paths}. */
+        private List<String> publicPaths = new ArrayList<>();
+
+        public List<String> getPublicPaths() {
+            return publicPaths;
+        }
+
+        public void setPublicPaths(List<String> publicPaths) {
+            this.publicPaths = publicPaths;
+        }
+
+        @Override
+        public void setRouteId(String routeId) {
+            this.routeId = routeId;
+        }
+
+        @Override
+        public String getRouteId() {
+            return routeId;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,111 @@
+package com.beaver.gateway.filter;
+
+import com.beaver.gateway.auth.PublicPathMatcher;
+import com.beaver.gateway.auth.VerifiedClaims;
+import com.beaver.gateway.concurrency.AdaptiveConcurrencyLimiter;
+import com.beaver.gateway.concurrency.ConcurrencyLimiters;
+import com.beaver.gateway.concurrency.FairQueue;
+import com.beaver.gateway.config.ConcurrencyLimitProperties;
+import com.beaver.gateway.error.ErrorResponseRenderer;
+import com.beaver.gateway.metrics.GatewayMetrics;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Sheds load once a route's downstream has as many requests in flight as its
+ * {@link AdaptiveConcurrencyLimiter} allows, answering with a 503 instead of letting requests pile up
+ * behind a slow service. A normal request that finds the limit reached first waits briefly in the
+ * group's {@link FairQueue}, keyed by the caller's workspace, so slots freed meanwhile are shared
+ * between tenants by weight rather than going to whichever sends most; it is shed if that queue is
+ * full or the wait runs out. It runs after rate limiting, so requests that are refused anyway never
+ * take a slot, and after {@link ResponseCacheFilter} and {@link RequestCoalescingFilter}, so cache
+ * hits and coalesced requests, which never reach downstream, are not counted. Priority paths, login and token refresh by default, can use the share
+ * of the limit other requests are kept out of, and never wait.
+ */
+@Component
+public class ConcurrencyLimitFilter implements GlobalFilter, Ordered {
+
+    public static final int ORDER = GatewayRateLimitFilter.ORDER + 10;
+
+    private final ConcurrencyLimiters limiters;
+    private final PublicPathMatcher priorityPaths;
+    private final boolean enabled;
+    private final ErrorResponseRenderer errorRenderer;
+    private final ErrorResponseRenderer.Template overloaded;
+    private final GatewayMetrics metrics;
+
+    public ConcurrencyLimitFilter(ConcurrencyLimiters limiters, ConcurrencyLimitProperties properties,
+                                  ErrorResponseRenderer errorRenderer, GatewayMetrics metrics) {
+        this.limiters = limiters;
+        this.priorityPaths = PublicPathMatcher.compile(properties.getPriorityPaths());
+        this.enabled = properties.isEnabled();
+        this.errorRenderer = errorRenderer;
+        this.metrics = metrics;
+        this.overloaded = errorRenderer.template(HttpStatus.SERVICE_UNAVAILABLE, "Service Unavailable",
+                "The service is busy. Please retry shortly.");
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!enabled) {
+            return chain.filter(exchange);
+        }
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        FairQueue queue = limiters.forRoute(route != null ? route.getId() : null);
+        AdaptiveConcurrencyLimiter limiter = queue.limiter();
+        boolean priority = priorityPaths.matches(exchange.getRequest().getPath().value());
+
+        // Priority requests have their own share and skip the queue; others go behind anyone waiting
+        int inFlight = priority || !queue.hasWaiters()
+                ? limiter.tryAcquire(priority) : AdaptiveConcurrencyLimiter.REJECTED;
+        if (inFlight != AdaptiveConcurrencyLimiter.REJECTED) {
+            metrics.concurrencyDecision(priority, true);
+            return forward(exchange, chain, queue, inFlight);
+        }
+        if (priority) {
+            metrics.concurrencyDecision(true, false);
+            return shed(exchange);
+        }
+
+        VerifiedClaims claims = exchange.getAttribute(AuthenticationFilter.VERIFIED_CLAIMS_ATTR);
+        return queue.await(claims != null ? claims.workspaceId() : null).flatMap(granted -> {
+            metrics.concurrencyDecision(false, granted != AdaptiveConcurrencyLimiter.REJECTED);
+            return granted != AdaptiveConcurrencyLimiter.REJECTED
+                    ? forward(exchange, chain, queue, granted) : shed(exchange);
+        });
+    }
+
+    private Mono<Void> forward(ServerWebExchange exchange, GatewayFilterChain chain, FairQueue queue, int inFlight) {
+        AdaptiveConcurrencyLimiter limiter = queue.limiter();
+        long start = System.nanoTime();
+        return chain.filter(exchange).doFinally(signal -> {
+            if (signal == SignalType.ON_COMPLETE) {
+                limiter.release(System.nanoTime() - start, inFlight);
+            } else if (signal == SignalType.ON_ERROR) {
+                limiter.releaseDropped();
+            } else {
+                limiter.release();
+            }
+            queue.dispatch();
+        });
+    }
+
+    private Mono<Void> shed(ServerWebExchange exchange) {
+        exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+        return errorRenderer.write(exchange, overloaded);
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+}
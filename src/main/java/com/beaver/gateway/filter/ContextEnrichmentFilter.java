@@ -1,79 +1,100 @@
 package com.beaver.gateway.filter;
 
-import com.beaver.auth.jwt.JwtService;
+import com.beaver.gateway.auth.VerifiedClaims;
+import com.beaver.gateway.config.HotConfigHolder;
+import com.beaver.gateway.metrics.GatewayMetrics;
+import com.beaver.gateway.metrics.LatencyHistogram;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Component;
-import org.springframework.beans.factory.annotation.Value;
-import reactor.core.publisher.Mono;
 
 @Slf4j
 @Component
 public class ContextEnrichmentFilter extends AbstractGatewayFilterFactory<ContextEnrichmentFilter.Config> {
 
-    private final JwtService jwtService;
-    private final String gatewaySecret;
+    public static final String USER_ID_HEADER = "X-User-Id";
+    public static final String WORKSPACE_ID_HEADER = "X-Workspace-Id";
+    public static final String USER_ROLE_HEADER = "X-User-Role";
+    public static final String GATEWAY_SECRET_HEADER = "X-Gateway-Secret";
 
-    public ContextEnrichmentFilter(JwtService jwtService, @Value("${gateway.secret}") String gatewaySecret) {
+    private final HotConfigHolder hotConfig;
+    private final GatewayMetrics metrics;
+
+    public ContextEnrichmentFilter(HotConfigHolder hotConfig, GatewayMetrics metrics) {
         super(Config.class);
-        this.jwtService = jwtService;
-        this.gatewaySecret = gatewaySecret;
+        this.hotConfig = hotConfig;
+        this.metrics = metrics;
     }
 
     @Override
     public GatewayFilter apply(Config config) {
+        LatencyHistogram latency = metrics.filterLatency(GatewayMetrics.CONTEXT_ENRICHMENT, config.getRouteId());
         return (exchange, chain) -> {
-            String path = exchange.getRequest().getPath().value();
-
-            var requestBuilder = exchange.getRequest().mutate();
-            requestBuilder.header("X-Gateway-Secret", gatewaySecret);
-
-            // Get the validated token from exchange attributes (set by AuthenticationFilter)
-            String token = exchange.getAttribute("validated-access-token");
-            if (token == null) {
-                log.debug("No validated JWT token found for path: {} - adding gateway secret only", path);
-                var modifiedRequest = requestBuilder.build();
-                var modifiedExchange = exchange.mutate().request(modifiedRequest).build();
-                return chain.filter(modifiedExchange);
-            }
+            long start = System.nanoTime();
+            // Typed claims parsed once by AuthenticationFilter; absent on public routes
+            VerifiedClaims claims = exchange.getAttribute(AuthenticationFilter.VERIFIED_CLAIMS_ATTR);
 
-            return Mono.zip(
-                jwtService.extractUserId(token).defaultIfEmpty(""),
-                jwtService.extractWorkspaceId(token).defaultIfEmpty(""),
-                jwtService.extractRole(token).defaultIfEmpty("")
-            ).flatMap(tuple -> {
-                String userId = tuple.getT1();
-                String workspaceId = tuple.getT2();
-                String role = tuple.getT3();
-
-                if (!userId.isEmpty()) {
-                    requestBuilder.header("X-User-Id", userId);
-                }
+            String gatewaySecret = hotConfig.current().gatewaySecret();
+            var modifiedExchange = exchange.mutate()
+                    .request(builder -> builder.headers(headers -> writeContextHeaders(headers, claims, gatewaySecret)))
+                    .build();
 
-                if (!workspaceId.isEmpty()) {
-                    requestBuilder.header("X-Workspace-Id", workspaceId);
+            if (log.isDebugEnabled()) {
+                String path = exchange.getRequest().getPath().value();
+                if (claims == null) {
+                    log.debug("No verified claims found for path: {} - adding gateway secret only", path);
+                } else {
+                    log.debug("Added auth headers for user {} in workspace {} with role {} for path: {}",
+                            claims.userId(), claims.workspaceId(), claims.role(), path);
                 }
+            }
 
-                if (!role.isEmpty()) {
-                    requestBuilder.header("X-User-Role", role);
-                }
+            latency.record(System.nanoTime() - start);
+            return chain.filter(modifiedExchange);
+        };
+    }
 
-                var modifiedRequest = requestBuilder.build();
-                var modifiedExchange = exchange.mutate().request(modifiedRequest).build();
+    /**
+     * Writes every context header in one pass. Identity headers sent by the client are always
+     * dropped so downstream services only ever see values taken from a verified token.
+     */
+    private static void writeContextHeaders(HttpHeaders headers, VerifiedClaims claims, String gatewaySecret) {
+        headers.remove(USER_ID_HEADER);
+        headers.remove(WORKSPACE_ID_HEADER);
+        headers.remove(USER_ROLE_HEADER);
+        headers.set(GATEWAY_SECRET_HEADER, gatewaySecret);
 
-                log.debug("Added auth headers for user {} in workspace {} with role {} for path: {}",
-                         userId, workspaceId, role, path);
+        if (claims == null) {
+            return;
+        }
 
-                return chain.filter(modifiedExchange);
-            }).onErrorResume(ex -> {
-                log.warn("Failed to extract claims from JWT for path: {}", path, ex);
-                var modifiedRequest = requestBuilder.build();
-                var modifiedExchange = exchange.mutate().request(modifiedRequest).build();
-                return chain.filter(modifiedExchange);
-            });
-        };
+        if (!claims.userId().isEmpty()) {
+            headers.set(USER_ID_HEADER, claims.userId());
+        }
+
+        if (!claims.workspaceId().isEmpty()) {
+            headers.set(WORKSPACE_ID_HEADER, claims.workspaceId());
+        }
+
+        if (!claims.role().isEmpty()) {
+            headers.set(USER_ROLE_HEADER, claims.role());
+        }
     }
 
-    public static class Config { }
+    public static class Config implements HasRouteId {
+        private String routeId;
+
+        @Override
+        public void setRouteId(String routeId) {
+            this.routeId = routeId;
+        }
+
+        @Override
+        public String getRouteId() {
+            return routeId;
+        }
+    }
 }
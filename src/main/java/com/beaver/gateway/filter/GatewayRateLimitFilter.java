@@ -0,0 +1,138 @@
+package com.beaver.gateway.filter;
+
+import com.beaver.gateway.auth.VerifiedClaims;
+import com.beaver.gateway.error.ErrorResponseRenderer;
+import com.beaver.gateway.metrics.GatewayMetrics;
+import com.beaver.gateway.metrics.LatencyHistogram;
+import com.beaver.gateway.ratelimit.ClientAddressResolver;
+import com.beaver.gateway.ratelimit.ClientKeys;
+import com.beaver.gateway.ratelimit.GatewayRateLimiter;
+import com.beaver.gateway.ratelimit.RateLimitDecision;
+import com.beaver.gateway.ratelimit.RouteLimits;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Applies the per-route rate limits once a route has been matched. It runs after the route's own
+ * filters (ordered by position from 1), so AuthenticationFilter has already attached the verified
+ * claims that key the workspace and user levels. {@link RequestCoalescingFilter} and
+ * {@link ResponseCacheFilter} order themselves after it, so requests they answer are charged too.
+ * Requests that never get this far, such as those rejected by AuthenticationFilter, are covered by
+ * {@link PreAuthRateLimitFilter}.
+ */
+@Component
+public class GatewayRateLimitFilter implements GlobalFilter, Ordered {
+
+    public static final int ORDER = 100;
+
+    /** Retry-After values for the common case, so rejections do not format numbers. */
+    private static final String[] RETRY_AFTER_SECONDS = new String[121];
+
+    static {
+        for (int i = 0; i < RETRY_AFTER_SECONDS.length; i++) {
+            RETRY_AFTER_SECONDS[i] = Integer.toString(i);
+        }
+    }
+
+    private final GatewayRateLimiter rateLimiter;
+    private final ClientAddressResolver clientAddressResolver;
+    private final ErrorResponseRenderer errorRenderer;
+    private final ErrorResponseRenderer.Template rejection;
+    private final GatewayMetrics metrics;
+    /** This filter's histogram per route id, so recording takes one lookup on the id's cached hash. */
+    private final Map<String, LatencyHistogram> latencyByRoute = new ConcurrentHashMap<>();
+    private final LatencyHistogram unknownRouteLatency;
+
+    public GatewayRateLimitFilter(GatewayRateLimiter rateLimiter, ClientAddressResolver clientAddressResolver,
+                                  ErrorResponseRenderer errorRenderer, GatewayMetrics metrics) {
+        this.rateLimiter = rateLimiter;
+        this.clientAddressResolver = clientAddressResolver;
+        this.errorRenderer = errorRenderer;
+        this.metrics = metrics;
+        this.rejection = rejectionTemplate(errorRenderer);
+        this.unknownRouteLatency = metrics.filterLatency(GatewayMetrics.RATE_LIMIT, null);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        long start = System.nanoTime();
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : null;
+        RouteLimits limits = rateLimiter.limitsFor(routeId);
+
+        VerifiedClaims claims = exchange.getAttribute(AuthenticationFilter.VERIFIED_CLAIMS_ATTR);
+        long workspaceKey = GatewayRateLimiter.NO_WORKSPACE;
+        long clientKey;
+        GatewayMetrics.KeyClass keyClass;
+        if (claims != null && !claims.userId().isEmpty()) {
+            // Authenticated callers are limited per user, so a shared NAT address does not pool them
+            clientKey = ClientKeys.of(claims.userId());
+            keyClass = GatewayMetrics.KeyClass.USER;
+            if (!claims.workspaceId().isEmpty()) {
+                workspaceKey = ClientKeys.of(claims.workspaceId());
+            }
+        } else {
+            clientKey = clientAddressResolver.resolve(exchange.getRequest());
+            keyClass = clientKey == ClientAddressResolver.UNKNOWN ? GatewayMetrics.KeyClass.UNKNOWN
+                    : ClientKeys.isIpv4(clientKey) ? GatewayMetrics.KeyClass.IPV4 : GatewayMetrics.KeyClass.IPV6;
+        }
+
+        long decision = rateLimiter.tryAcquire(limits, workspaceKey, clientKey);
+        boolean allowed = RateLimitDecision.isAllowed(decision);
+        metrics.rateLimitDecision(keyClass, allowed);
+        latency(routeId).record(System.nanoTime() - start);
+        if (allowed) {
+            return chain.filter(exchange);
+        }
+        return reject(exchange, decision, errorRenderer, rejection);
+    }
+
+    private LatencyHistogram latency(String routeId) {
+        if (routeId == null) {
+            return unknownRouteLatency;
+        }
+        LatencyHistogram histogram = latencyByRoute.get(routeId);
+        return histogram != null ? histogram
+                : latencyByRoute.computeIfAbsent(routeId, id -> metrics.filterLatency(GatewayMetrics.RATE_LIMIT, id));
+    }
+
+    static ErrorResponseRenderer.Template rejectionTemplate(ErrorResponseRenderer errorRenderer) {
+        return errorRenderer.template(HttpStatus.TOO_MANY_REQUESTS, "Rate Limit Exceeded",
+                "Too many requests. Please slow down.");
+    }
+
+    /**
+     * Writes the 429 straight to the response. The flood case is the hottest path under attack, so
+     * it creates no exception and skips error-handler dispatch and JSON serialisation entirely.
+     */
+    static Mono<Void> reject(ServerWebExchange exchange, long decision, ErrorResponseRenderer errorRenderer,
+                             ErrorResponseRenderer.Template rejection) {
+        String retryAfter = retryAfter(RateLimitDecision.retryAfterSeconds(decision));
+
+        HttpHeaders headers = exchange.getResponse().getHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, retryAfter);
+        headers.set("X-RateLimit-Remaining", "0");
+        headers.set("X-RateLimit-Retry-After-Seconds", retryAfter);
+        return errorRenderer.write(exchange, rejection);
+    }
+
+    private static String retryAfter(long seconds) {
+        return seconds < RETRY_AFTER_SECONDS.length ? RETRY_AFTER_SECONDS[(int) seconds] : Long.toString(seconds);
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+}
@@ -0,0 +1,305 @@
+package com.beaver.gateway.filter;
+
+import com.beaver.gateway.config.DownstreamProperties;
+import com.beaver.gateway.downstream.HedgeBudget;
+import com.beaver.gateway.downstream.RollingQuantile;
+import com.beaver.gateway.metrics.GatewayMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.RouteToRequestUrlFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebExchangeDecorator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hedged requests for routes that opt in with {@code gateway.downstream.routes.<id>.hedging}. A GET
+ * or HEAD that has had no response from downstream after about the route's p95 latency is sent a
+ * second time, and whichever response headers arrive first are used; the other attempt is cancelled,
+ * or its connection closed if it answered too late. A {@link HedgeBudget} keeps hedges to a fixed
+ * fraction of requests, so a downstream that is slow across the board is not sent extra load.
+ * <p>
+ * Each attempt runs the rest of the chain, which is the actual routing, on its own view of the
+ * exchange: attributes and response headers are private to the attempt until it wins, when they are
+ * copied to the real exchange for {@code NettyWriteResponseFilter} to stream the body from. It runs
+ * after the concurrency limit, so one slot covers both attempts, and after the request URL is
+ * resolved. Only requests without a body are hedged.
+ */
+@Slf4j
+@Component
+public class HedgingFilter implements GlobalFilter, Ordered {
+
+    public static final int ORDER = RouteToRequestUrlFilter.ROUTE_TO_URL_FILTER_ORDER + 1;
+
+    private static final long QUANTILE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final long QUANTILE_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Map<String, RouteHedging> routes = new HashMap<>();
+    private final GatewayMetrics metrics;
+
+    public HedgingFilter(DownstreamProperties properties, GatewayMetrics metrics) {
+        this.metrics = metrics;
+        properties.getRoutes().forEach((routeId, settings) -> {
+            if (settings.getHedging().isEnabled()) {
+                routes.put(routeId, new RouteHedging(settings.getHedging()));
+            }
+        });
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (routes.isEmpty()) {
+            return chain.filter(exchange);
+        }
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        RouteHedging hedging = route != null ? routes.get(route.getId()) : null;
+        if (hedging == null || !isHedgeable(exchange)) {
+            return chain.filter(exchange);
+        }
+
+        hedging.budget.deposit();
+        long start = System.nanoTime();
+        long delayNanos = hedging.delayNanos();
+        if (delayNanos < 0) {
+            // Still learning the route's latency
+            return chain.filter(exchange).doOnSuccess(ignored -> hedging.latency.record(System.nanoTime() - start));
+        }
+
+        Race race = new Race();
+        Mono<Attempt> primary = race.run(new Attempt(exchange), chain)
+                .doOnSuccess(attempt -> hedging.latency.record(System.nanoTime() - start))
+                // Cancelled because the hedge won: slower than the delay, which is what matters for the quantile
+                .doOnCancel(() -> hedging.latency.record(System.nanoTime() - start));
+        Mono<Attempt> hedge = Mono.delay(Duration.ofNanos(delayNanos)).flatMap(tick -> {
+            if (!race.canHedge()) {
+                return Mono.never();
+            }
+            if (!hedging.budget.tryWithdraw()) {
+                metrics.hedgingOutcome(GatewayMetrics.HedgingOutcome.BUDGET_EXHAUSTED);
+                return Mono.never();
+            }
+            if (!race.launchHedge()) {
+                return Mono.never();
+            }
+            metrics.hedgingOutcome(GatewayMetrics.HedgingOutcome.HEDGED);
+            log.debug("Hedging {} {} after {} µs", route.getId(), exchange.getRequest().getPath(), delayNanos / 1_000);
+            return race.run(new Attempt(exchange), chain)
+                    .doOnSuccess(attempt -> metrics.hedgingOutcome(GatewayMetrics.HedgingOutcome.HEDGE_WON));
+        });
+
+        return Mono.firstWithSignal(primary, hedge)
+                .doOnNext(winner -> winner.commitTo(exchange))
+                .then();
+    }
+
+    private static boolean isHedgeable(ServerWebExchange exchange) {
+        ServerHttpRequest request = exchange.getRequest();
+        HttpHeaders headers = request.getHeaders();
+        URI url = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+        return (request.getMethod() == HttpMethod.GET || request.getMethod() == HttpMethod.HEAD)
+                && headers.getContentLength() <= 0 && !headers.containsKey(HttpHeaders.TRANSFER_ENCODING)
+                && !headers.containsKey(HttpHeaders.UPGRADE)
+                && url != null && ("http".equals(url.getScheme()) || "https".equals(url.getScheme()))
+                && !ServerWebExchangeUtils.isAlreadyRouted(exchange);
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    private static final class RouteHedging {
+        final RollingQuantile latency;
+        final HedgeBudget budget;
+        final long minSamples;
+        final long minDelayNanos;
+        final long maxDelayNanos;
+
+        RouteHedging(DownstreamProperties.Hedging settings) {
+            this.latency = new RollingQuantile(settings.getPercentile(), QUANTILE_WINDOW_NANOS, QUANTILE_REFRESH_NANOS);
+            this.budget = new HedgeBudget(settings.getBudgetRatio(), settings.getBudgetBurst());
+            this.minSamples = settings.getMinSamples();
+            this.minDelayNanos = settings.getMinDelay().toNanos();
+            this.maxDelayNanos = settings.getMaxDelay().toNanos();
+        }
+
+        /** How long to wait before hedging, or -1 if too little is known about the route yet. */
+        long delayNanos() {
+            long quantile = latency.valueNanos(minSamples);
+            return quantile < 0 ? -1 : Math.max(minDelayNanos, Math.min(maxDelayNanos, quantile));
+        }
+    }
+
+    /**
+     * Decides between the attempts of one request. The first to get a response wins; one that fails
+     * only ends the request if no other attempt is still going.
+     */
+    private static final class Race {
+        private int running = 1;
+        private boolean decided;
+
+        synchronized boolean canHedge() {
+            return !decided && running > 0;
+        }
+
+        synchronized boolean launchHedge() {
+            if (decided || running == 0) {
+                return false;
+            }
+            running++;
+            return true;
+        }
+
+        private synchronized boolean claim() {
+            if (decided) {
+                return false;
+            }
+            decided = true;
+            return true;
+        }
+
+        private synchronized boolean lastToFail() {
+            running--;
+            if (running == 0 && !decided) {
+                decided = true;
+                return true;
+            }
+            return false;
+        }
+
+        Mono<Attempt> run(Attempt attempt, GatewayFilterChain chain) {
+            return chain.filter(attempt)
+                    .then(Mono.defer(() -> {
+                        if (claim()) {
+                            return Mono.just(attempt);
+                        }
+                        // Answered after the other attempt had already won
+                        attempt.discard();
+                        return Mono.<Attempt>never();
+                    }))
+                    .onErrorResume(error -> lastToFail() ? Mono.error(error) : Mono.never())
+                    .doOnCancel(attempt::discard);
+        }
+    }
+
+    /**
+     * One attempt's view of the exchange. The request has no body, so it can be sent twice, and the
+     * attributes and response status and headers the routing filter sets stay private to the attempt.
+     */
+    private static final class Attempt extends ServerWebExchangeDecorator {
+
+        private final Map<String, Object> attributes;
+        private final ServerHttpRequest request;
+        private final AttemptResponse response;
+
+        Attempt(ServerWebExchange exchange) {
+            super(exchange);
+            this.attributes = new ConcurrentHashMap<>(exchange.getAttributes());
+            this.request = new ServerHttpRequestDecorator(exchange.getRequest()) {
+                @Override
+                public Flux<DataBuffer> getBody() {
+                    return Flux.empty();
+                }
+            };
+            this.response = new AttemptResponse(exchange.getResponse());
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public ServerHttpRequest getRequest() {
+            return request;
+        }
+
+        @Override
+        public ServerHttpResponse getResponse() {
+            return response;
+        }
+
+        void commitTo(ServerWebExchange exchange) {
+            ServerHttpResponse target = exchange.getResponse();
+            if (response.status != null) {
+                target.setStatusCode(response.status);
+            }
+            if (response.headers.containsKey(HttpHeaders.CONTENT_LENGTH)
+                    && !response.headers.containsKey(HttpHeaders.TRANSFER_ENCODING)) {
+                target.getHeaders().remove(HttpHeaders.TRANSFER_ENCODING);
+            }
+            target.getHeaders().addAll(response.headers);
+            exchange.getAttributes().putAll(attributes);
+        }
+
+        void discard() {
+            Connection connection = (Connection) attributes.get(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR);
+            if (connection != null) {
+                connection.dispose();
+            }
+        }
+    }
+
+    private static final class AttemptResponse extends ServerHttpResponseDecorator {
+
+        private final HttpHeaders headers = new HttpHeaders();
+        private volatile HttpStatusCode status;
+
+        AttemptResponse(ServerHttpResponse delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public boolean setStatusCode(HttpStatusCode status) {
+            this.status = status;
+            return true;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() {
+            return status != null ? status : super.getStatusCode();
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            return Mono.error(new IllegalStateException("A hedged attempt cannot write the response body"));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return Mono.error(new IllegalStateException("A hedged attempt cannot write the response body"));
+        }
+
+        @Override
+        public Mono<Void> setComplete() {
+            return Mono.error(new IllegalStateException("A hedged attempt cannot complete the response"));
+        }
+    }
+}
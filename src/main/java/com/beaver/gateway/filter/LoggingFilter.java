@@ -0,0 +1,62 @@
+package com.beaver.gateway.filter;
+
+import com.beaver.gateway.auth.VerifiedClaims;
+import com.beaver.gateway.logging.AccessLog;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+
+/**
+ * Captures one fixed-schema access record per request once the response completes: route, method,
+ * path, status, latency, verified user and workspace, and request and response sizes taken from
+ * Content-Length (-1 when not declared). Records go to the asynchronous {@link AccessLog}; nothing
+ * is formatted or written on the request thread. List it first on a route so the latency covers
+ * the other filters.
+ */
+@Component
+public class LoggingFilter extends AbstractGatewayFilterFactory<LoggingFilter.Config> {
+
+    private final AccessLog accessLog;
+
+    public LoggingFilter(AccessLog accessLog) {
+        super(Config.class);
+        this.accessLog = accessLog;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        String routeId = config.getRouteId();
+        return (exchange, chain) -> {
+            long start = System.nanoTime();
+            return chain.filter(exchange).doFinally(signal -> {
+                ServerHttpRequest request = exchange.getRequest();
+                ServerHttpResponse response = exchange.getResponse();
+                HttpStatusCode status = response.getStatusCode();
+                VerifiedClaims claims = exchange.getAttribute(AuthenticationFilter.VERIFIED_CLAIMS_ATTR);
+
+                accessLog.record(System.currentTimeMillis(), routeId, request.getMethod().name(),
+                        request.getPath().value(), status != null ? status.value() : 0, System.nanoTime() - start,
+                        claims != null ? claims.userId() : null, claims != null ? claims.workspaceId() : null,
+                        request.getHeaders().getContentLength(), response.getHeaders().getContentLength());
+            });
+        };
+    }
+
+    public static class Config implements HasRouteId {
+        private String routeId;
+
+        @Override
+        public void setRouteId(String routeId) {
+            this.routeId = routeId;
+        }
+
+        @Override
+        public String getRouteId() {
+            return routeId;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.beaver.gateway.filter;
+
+import com.beaver.gateway.error.ErrorResponseRenderer;
+import com.beaver.gateway.metrics.GatewayMetrics;
+import com.beaver.gateway.ratelimit.ClientAddressResolver;
+import com.beaver.gateway.ratelimit.GatewayRateLimiter;
+import com.beaver.gateway.ratelimit.InMemoryRateLimiter;
+import com.beaver.gateway.ratelimit.RateLimitDecision;
+import com.beaver.gateway.ratelimit.RouteLimits;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Limits every request per client address before the gateway routes it, under
+ * {@code gateway.rate-limit.pre-auth}. {@link GatewayRateLimitFilter} only sees requests that have
+ * matched a route and passed authentication, so without this stage a flood of forged or expired
+ * tokens would cost a JWT verification each and never be throttled, and neither would requests
+ * matching no route.
+ * <p>
+ * The limit is node-local even when cluster limits are on: a flood is absorbed on the replica it
+ * lands on, and sprayed addresses never turn into leases against the shared store.
+ */
+@Component
+public class PreAuthRateLimitFilter implements WebFilter, Ordered {
+
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 100;
+
+    private final InMemoryRateLimiter rateLimiter;
+    private final ClientAddressResolver clientAddressResolver;
+    private final ErrorResponseRenderer errorRenderer;
+    private final ErrorResponseRenderer.Template rejection;
+    private final GatewayMetrics metrics;
+
+    public PreAuthRateLimitFilter(InMemoryRateLimiter rateLimiter, ClientAddressResolver clientAddressResolver,
+                                  ErrorResponseRenderer errorRenderer, GatewayMetrics metrics) {
+        this.rateLimiter = rateLimiter;
+        this.clientAddressResolver = clientAddressResolver;
+        this.errorRenderer = errorRenderer;
+        this.metrics = metrics;
+        this.rejection = GatewayRateLimitFilter.rejectionTemplate(errorRenderer);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        RouteLimits limits = rateLimiter.preAuthLimits();
+        if (!limits.enforces(RouteLimits.CLIENT)) {
+            return chain.filter(exchange);
+        }
+        long clientKey = clientAddressResolver.resolve(exchange.getRequest());
+        long decision = rateLimiter.tryAcquire(limits, GatewayRateLimiter.NO_WORKSPACE, clientKey);
+        if (RateLimitDecision.isAllowed(decision)) {
+            return chain.filter(exchange);
+        }
+        metrics.preAuthRejection();
+        return GatewayRateLimitFilter.reject(exchange, decision, errorRenderer, rejection);
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+}
@@ -0,0 +1,228 @@
+package com.beaver.gateway.filter;
+
+import com.beaver.gateway.cache.BodyAccumulator;
+import com.beaver.gateway.metrics.GatewayMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Single-flight coalescing of identical GETs. While one request is in flight downstream, identical
+ * ones (same route, path, query, {@code X-User-Id}/{@code X-Workspace-Id} and content negotiation
+ * headers) wait for it and are answered with a copy of its buffered response instead of making their
+ * own call. Nothing outlives the flight, so a request arriving after the response is never served
+ * anything older than a request of its own would have been.
+ * <p>
+ * Only 2xx and 3xx responses are shared. Waiters fall back to their own downstream call if the
+ * response has any other status, is over the size limit, is streamed, sets cookies or fails, or if
+ * it takes longer than the maximum wait. Headers that belong to the leader's request alone, such as
+ * its rate-limit balance, are not copied. Conditional and range requests are never coalesced.
+ * <p>
+ * Wherever it is listed, it runs at {@link #ORDER}: after {@link GatewayRateLimitFilter}, so every
+ * waiter is charged to its own caller's limits, and ahead of {@link ResponseCacheFilter}.
+ */
+@Slf4j
+@Component
+public class RequestCoalescingFilter extends AbstractGatewayFilterFactory<RequestCoalescingFilter.Config> {
+
+    public static final int ORDER = GatewayRateLimitFilter.ORDER + 1;
+
+    private static final Set<String> UNSHARED_HEADERS = Set.of(
+            "connection", "keep-alive", "transfer-encoding", "upgrade", "content-length", "set-cookie",
+            "retry-after");
+    /** Rate-limit headers describe the leader's own quota, not the waiter's. */
+    private static final String RATE_LIMIT_HEADER_PREFIX = "x-ratelimit-";
+
+    private final Map<FlightKey, Flight> inFlight = new ConcurrentHashMap<>();
+    private final GatewayMetrics metrics;
+    private final long maxResponseBytes;
+    private final Duration maxWait;
+
+    public RequestCoalescingFilter(GatewayMetrics metrics,
+                                   @Value("${gateway.coalescing.max-response-size:256KB}") DataSize maxResponseSize,
+                                   @Value("${gateway.coalescing.max-wait:2s}") Duration maxWait) {
+        super(Config.class);
+        this.metrics = metrics;
+        this.maxResponseBytes = maxResponseSize.toBytes();
+        this.maxWait = maxWait;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        String routeId = config.getRouteId();
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (request.getMethod() != HttpMethod.GET || isConditional(request.getHeaders())) {
+                return chain.filter(exchange);
+            }
+
+            FlightKey key = FlightKey.of(routeId, request);
+            Flight flight = new Flight();
+            Flight leader = inFlight.putIfAbsent(key, flight);
+            if (leader != null) {
+                return leader.response.asMono()
+                        .timeout(maxWait, Mono.empty())
+                        .flatMap(shared -> {
+                            metrics.coalescingOutcome(GatewayMetrics.CoalescingOutcome.SHARED);
+                            return write(exchange.getResponse(), shared).thenReturn(Boolean.TRUE);
+                        })
+                        .switchIfEmpty(Mono.defer(() -> {
+                            metrics.coalescingOutcome(GatewayMetrics.CoalescingOutcome.FALLBACK);
+                            return chain.filter(exchange).thenReturn(Boolean.TRUE);
+                        }))
+                        .then();
+            }
+
+            metrics.coalescingOutcome(GatewayMetrics.CoalescingOutcome.LEADER);
+            SharingResponse sharing = new SharingResponse(exchange.getResponse(), key, flight);
+            return chain.filter(exchange.mutate().response(sharing).build())
+                    .doFinally(signal -> sharing.finish(null));
+        }, ORDER);
+    }
+
+    int inFlight() {
+        return inFlight.size();
+    }
+
+    private static boolean isConditional(HttpHeaders headers) {
+        return headers.containsKey(HttpHeaders.IF_NONE_MATCH) || headers.containsKey(HttpHeaders.IF_MODIFIED_SINCE)
+                || headers.containsKey(HttpHeaders.IF_MATCH) || headers.containsKey(HttpHeaders.IF_UNMODIFIED_SINCE)
+                || headers.containsKey(HttpHeaders.RANGE);
+    }
+
+    private static Mono<Void> write(ServerHttpResponse response, SharedResponse shared) {
+        response.setStatusCode(shared.status());
+        response.getHeaders().putAll(shared.headers());
+        response.getHeaders().setContentLength(shared.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(shared.body())));
+    }
+
+    private record FlightKey(String routeId, String path, String query, String userId, String workspaceId,
+                             List<String> accept, List<String> acceptEncoding, List<String> acceptLanguage) {
+
+        static FlightKey of(String routeId, ServerHttpRequest request) {
+            HttpHeaders headers = request.getHeaders();
+            return new FlightKey(routeId, request.getPath().value(), request.getURI().getRawQuery(),
+                    headers.getFirst(ContextEnrichmentFilter.USER_ID_HEADER),
+                    headers.getFirst(ContextEnrichmentFilter.WORKSPACE_ID_HEADER),
+                    headers.getOrEmpty(HttpHeaders.ACCEPT), headers.getOrEmpty(HttpHeaders.ACCEPT_ENCODING),
+                    headers.getOrEmpty(HttpHeaders.ACCEPT_LANGUAGE));
+        }
+    }
+
+    private record SharedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+    }
+
+    private static final class Flight {
+        final Sinks.One<SharedResponse> response = Sinks.one();
+    }
+
+    /**
+     * The leader's response: streams to its own client while a copy is taken for the waiters.
+     */
+    private final class SharingResponse extends ServerHttpResponseDecorator {
+
+        private final FlightKey key;
+        private final Flight flight;
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        SharingResponse(ServerHttpResponse delegate, FlightKey key, Flight flight) {
+            super(delegate);
+            this.key = key;
+            this.flight = flight;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpHeaders headers = getHeaders();
+            if (!isShareable(getStatusCode()) || headers.containsKey(HttpHeaders.SET_COOKIE)
+                    || headers.getContentLength() > maxResponseBytes) {
+                finish(null);
+                return super.writeWith(body);
+            }
+
+            BodyAccumulator accumulator = new BodyAccumulator(headers.getContentLength(), maxResponseBytes);
+            return super.writeWith(Flux.from(body)
+                    .doOnNext(accumulator::append)
+                    .doOnComplete(() -> finish(accumulator.overflowed() ? null
+                            : new SharedResponse(getStatusCode(), sharedHeaders(headers), accumulator.toByteArray()))));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            finish(null);
+            return super.writeAndFlushWith(body);
+        }
+
+        /**
+         * Ends the flight, before waking the waiters so that later arrivals start a new one. A null
+         * response sends every waiter downstream on its own.
+         */
+        void finish(SharedResponse shared) {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            inFlight.remove(key, flight);
+            if (shared != null && shared.status() != null) {
+                flight.response.tryEmitValue(shared);
+            } else {
+                log.debug("Coalesced response for {} {} not shareable; waiters call downstream", key.routeId(), key.path());
+                flight.response.tryEmitEmpty();
+            }
+        }
+
+        private static boolean isShareable(HttpStatusCode status) {
+            // An error is no answer for a waiter whose own call might succeed
+            return status != null && (status.is2xxSuccessful() || status.is3xxRedirection());
+        }
+
+        private HttpHeaders sharedHeaders(HttpHeaders source) {
+            HttpHeaders shared = new HttpHeaders();
+            source.forEach((name, values) -> {
+                String lowerCase = name.toLowerCase(Locale.ROOT);
+                if (!UNSHARED_HEADERS.contains(lowerCase) && !lowerCase.startsWith(RATE_LIMIT_HEADER_PREFIX)) {
+                    shared.put(name, List.copyOf(values));
+                }
+            });
+            return HttpHeaders.readOnlyHttpHeaders(shared);
+        }
+    }
+
+    public static class Config implements HasRouteId {
+        private String routeId;
+
+        @Override
+        public void setRouteId(String routeId) {
+            this.routeId = routeId;
+        }
+
+        @Override
+        public String getRouteId() {
+            return routeId;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.beaver.gateway.filter;
+
+import com.beaver.gateway.cache.BodyAccumulator;
+import com.beaver.gateway.cache.ResponseCache;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Opt-in, per-user cache of downstream GET responses. The key is route, path, query and the
+ * {@code X-User-Id}/{@code X-Workspace-Id} headers ContextEnrichmentFilter sets, and requests
+ * without a verified user pass straight through.
+ * <p>
+ * Wherever it is listed, it runs at {@link #ORDER}: after the route's other filters and
+ * {@link GatewayRateLimitFilter}, so a hit is charged to the caller's limits like any other
+ * request, and before {@link ConcurrencyLimitFilter}, so a hit never takes a downstream slot.
+ * <p>
+ * A fresh hit is answered from {@link ResponseCache} without contacting downstream, as a 304 when
+ * the client's {@code If-None-Match} already matches. A stale entry with an ETag is revalidated
+ * with a conditional request and served from the cache on 304. A successful non-GET request
+ * invalidates the cached responses for its path.
+ */
+@Slf4j
+@Component
+public class ResponseCacheFilter extends AbstractGatewayFilterFactory<ResponseCacheFilter.Config> {
+
+    public static final int ORDER = RequestCoalescingFilter.ORDER + 1;
+
+    private final ResponseCache cache;
+
+    public ResponseCacheFilter(ResponseCache cache) {
+        super(Config.class);
+        this.cache = cache;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        String routeId = config.getRouteId();
+        Duration defaultTtl = config.getTtl();
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            String userId = request.getHeaders().getFirst(ContextEnrichmentFilter.USER_ID_HEADER);
+            if (userId == null) {
+                return chain.filter(exchange);
+            }
+
+            ResponseCache.Key key = new ResponseCache.Key(routeId, request.getPath().value(),
+                    request.getURI().getRawQuery(), userId,
+                    request.getHeaders().getFirst(ContextEnrichmentFilter.WORKSPACE_ID_HEADER));
+
+            if (request.getMethod() != HttpMethod.GET) {
+                return request.getMethod() == HttpMethod.HEAD || request.getMethod() == HttpMethod.OPTIONS
+                        ? chain.filter(exchange)
+                        : chain.filter(exchange).doOnSuccess(done -> invalidateAfterWrite(exchange, key));
+            }
+
+            String requestCacheControl = request.getHeaders().getCacheControl();
+            if (hasDirective(requestCacheControl, "no-store")) {
+                return chain.filter(exchange);
+            }
+
+            long now = System.currentTimeMillis();
+            ResponseCache.Entry entry = cache.lookup(key, request);
+            if (entry != null && entry.isFresh(now) && !hasDirective(requestCacheControl, "no-cache")) {
+                cache.recordHit();
+                return writeCached(exchange.getResponse(), entry, request.getHeaders().getIfNoneMatch().contains(entry.etag()),
+                        now);
+            }
+
+            cache.recordMiss();
+            ResponseCache.Entry revalidating = entry != null && entry.etag() != null
+                    && request.getHeaders().getIfNoneMatch().isEmpty() ? entry : null;
+            ServerWebExchange forwarded = exchange.mutate()
+                    .request(builder -> {
+                        if (revalidating != null) {
+                            builder.headers(headers -> headers.setIfNoneMatch(revalidating.etag()));
+                        }
+                    })
+                    .response(new CachingResponse(exchange.getResponse(), key, request, revalidating, defaultTtl))
+                    .build();
+            return chain.filter(forwarded);
+        }, ORDER);
+    }
+
+    private void invalidateAfterWrite(ServerWebExchange exchange, ResponseCache.Key key) {
+        HttpStatusCode status = exchange.getResponse().getStatusCode();
+        if (status == null || !status.isError()) {
+            cache.invalidate(key);
+            if (key.query() != null) {
+                cache.invalidate(new ResponseCache.Key(key.routeId(), key.path(), null, key.userId(), key.workspaceId()));
+            }
+        }
+    }
+
+    private static Mono<Void> writeCached(ServerHttpResponse response, ResponseCache.Entry entry, boolean notModified,
+                                          long now) {
+        HttpHeaders headers = response.getHeaders();
+        headers.putAll(entry.headers());
+        headers.set(HttpHeaders.AGE, Long.toString(entry.ageSeconds(now)));
+        if (notModified) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            headers.remove(HttpHeaders.CONTENT_TYPE);
+            return response.setComplete();
+        }
+        response.setStatusCode(HttpStatus.OK);
+        headers.setContentLength(entry.contentLength());
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(entry.body())));
+    }
+
+    private static boolean hasDirective(String cacheControl, String directive) {
+        return cacheControl != null && cacheControl.toLowerCase(Locale.ROOT).contains(directive);
+    }
+
+    /**
+     * Copies a cacheable body into a staging array as it streams to the client and stores it once
+     * complete. Bodies over the entry limit stop being copied and are simply passed through.
+     */
+    private final class CachingResponse extends ServerHttpResponseDecorator {
+
+        private final ResponseCache.Key key;
+        private final ServerHttpRequest request;
+        private final ResponseCache.Entry revalidating;
+        private final Duration defaultTtl;
+
+        CachingResponse(ServerHttpResponse delegate, ResponseCache.Key key, ServerHttpRequest request,
+                        ResponseCache.Entry revalidating, Duration defaultTtl) {
+            super(delegate);
+            this.key = key;
+            this.request = request;
+            this.revalidating = revalidating;
+            this.defaultTtl = defaultTtl;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpStatusCode status = getStatusCode();
+            if (revalidating != null && status != null && status.value() == HttpStatus.NOT_MODIFIED.value()) {
+                cache.recordRevalidation();
+                ResponseCache.Entry refreshed = cache.revalidated(key, revalidating, getHeaders(), defaultTtl);
+                getHeaders().clear();
+                return Flux.from(body).doOnNext(DataBufferUtils::release)
+                        .then(writeCached(getDelegate(), refreshed, false, System.currentTimeMillis()));
+            }
+            if (status == null || status.value() != HttpStatus.OK.value()
+                    || getHeaders().getContentLength() > cache.maxEntryBytes()) {
+                return super.writeWith(body);
+            }
+
+            BodyAccumulator accumulator = new BodyAccumulator(getHeaders().getContentLength(), cache.maxEntryBytes());
+            return super.writeWith(Flux.from(body)
+                    .doOnNext(accumulator::append)
+                    .doOnComplete(() -> {
+                        if (!accumulator.overflowed() && cache.store(key, request, getHeaders(), accumulator.bytes(),
+                                accumulator.length(), defaultTtl)) {
+                            log.debug("Cached response for {} {}", key.routeId(), key.path());
+                        }
+                    }));
+        }
+    }
+
+    public static class Config implements HasRouteId {
+        private String routeId;
+        /** Freshness for responses without {@code Cache-Control}; unset means they are only revalidated. */
+        private Duration ttl;
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        @Override
+        public void setRouteId(String routeId) {
+            this.routeId = routeId;
+        }
+
+        @Override
+        public String getRouteId() {
+            return routeId;
+        }
+    }
+}
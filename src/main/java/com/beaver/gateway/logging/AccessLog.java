@@ -0,0 +1,288 @@
+package com.beaver.gateway.logging;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous access log. Request threads only copy a fixed set of fields into {@link AccessLogRing};
+ * a single daemon thread drains it in batches, encodes JSON lines into a reused direct buffer and
+ * writes them to a size-rolled file through a {@link FileChannel}.
+ */
+@Slf4j
+public class AccessLog implements AutoCloseable {
+
+    /** Longest string field written; longer values are truncated so one record always fits the buffer. */
+    private static final int MAX_FIELD_CHARS = 2048;
+    /** Five string fields at up to six bytes per escaped char, plus the numbers and keys. */
+    private static final int MAX_RECORD_BYTES = 5 * 6 * MAX_FIELD_CHARS + 512;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final AccessLogRing ring;
+    private final Path file;
+    private final int batchSize;
+    private final long maxFileBytes;
+    private final int maxHistory;
+    private final ByteBuffer buffer;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+    private final AtomicLong writeFailures = new AtomicLong();
+    private final Thread writer;
+
+    private volatile boolean running = true;
+    private FileChannel channel;
+    private long fileBytes;
+    /** Records encoded into the buffer since the last flush. */
+    private int buffered;
+
+    public AccessLog(Path file, int bufferSize, int batchSize, long maxFileBytes, int maxHistory) {
+        this.ring = new AccessLogRing(bufferSize);
+        this.file = file;
+        this.batchSize = batchSize;
+        this.maxFileBytes = maxFileBytes;
+        this.maxHistory = maxHistory;
+        this.buffer = ByteBuffer.allocateDirect(Math.max(256 * 1024, MAX_RECORD_BYTES));
+        this.writer = new Thread(this::drainLoop, "access-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues one access record without blocking.
+     *
+     * @return {@code false} if the ring was full and the record was dropped
+     */
+    public boolean record(long timestampMillis, String route, String method, String path, int status,
+                          long latencyNanos, String userId, String workspaceId, long bytesIn, long bytesOut) {
+        return ring.offer(timestampMillis, route, method, path, status, latencyNanos, userId, workspaceId,
+                bytesIn, bytesOut);
+    }
+
+    public long written() {
+        return written.get();
+    }
+
+    public long dropped() {
+        return ring.dropped();
+    }
+
+    /** Records accepted into the ring but lost because their write failed. */
+    public long discarded() {
+        return discarded.get();
+    }
+
+    public long writeFailures() {
+        return writeFailures.get();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainLoop() {
+        while (running) {
+            if (drainBatch() == 0) {
+                flush();
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        // Write out whatever was queued before shutdown
+        while (drainBatch() > 0) {
+            // keep draining
+        }
+        flush();
+        closeChannel();
+    }
+
+    private int drainBatch() {
+        int drained = 0;
+        int slot;
+        while (drained < batchSize && (slot = ring.poll()) >= 0) {
+            if (buffer.remaining() < MAX_RECORD_BYTES) {
+                flush();
+            }
+            encode(slot);
+            ring.release(slot);
+            buffered++;
+            drained++;
+        }
+        if (drained > 0) {
+            flush();
+        }
+        return drained;
+    }
+
+    private void encode(int slot) {
+        ByteBuffer out = buffer;
+        putAscii(out, "{\"ts\":");
+        putLong(out, ring.timestamps[slot]);
+        putAscii(out, ",\"route\":");
+        putString(out, ring.routes[slot]);
+        putAscii(out, ",\"method\":");
+        putString(out, ring.methods[slot]);
+        putAscii(out, ",\"path\":");
+        putString(out, ring.paths[slot]);
+        putAscii(out, ",\"status\":");
+        putLong(out, ring.statuses[slot]);
+        putAscii(out, ",\"latency_us\":");
+        putLong(out, TimeUnit.NANOSECONDS.toMicros(ring.latencyNanos[slot]));
+        putAscii(out, ",\"user_id\":");
+        putString(out, ring.userIds[slot]);
+        putAscii(out, ",\"workspace_id\":");
+        putString(out, ring.workspaceIds[slot]);
+        putAscii(out, ",\"bytes_in\":");
+        putLong(out, ring.bytesIn[slot]);
+        putAscii(out, ",\"bytes_out\":");
+        putLong(out, ring.bytesOut[slot]);
+        putAscii(out, "}\n");
+    }
+
+    private void flush() {
+        if (buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        try {
+            if (channel == null) {
+                open();
+            }
+            while (buffer.hasRemaining()) {
+                fileBytes += channel.write(buffer);
+            }
+            written.addAndGet(buffered);
+            if (fileBytes >= maxFileBytes) {
+                roll();
+            }
+        } catch (IOException ex) {
+            // A failed roll comes after the records were written
+            if (buffer.hasRemaining()) {
+                discarded.addAndGet(buffered);
+            }
+            if (writeFailures.getAndIncrement() == 0) {
+                log.warn("Access log write to {} failed; records are being discarded until it recovers", file, ex);
+            }
+            closeChannel();
+        } finally {
+            buffer.clear();
+            buffered = 0;
+        }
+    }
+
+    private void open() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        fileBytes = channel.size();
+    }
+
+    /**
+     * Shifts {@code access.log.N} to {@code N+1}, dropping the oldest, and starts a fresh file.
+     */
+    private void roll() throws IOException {
+        closeChannel();
+        if (maxHistory > 0) {
+            Files.deleteIfExists(rolled(maxHistory));
+            for (int i = maxHistory - 1; i >= 1; i--) {
+                Path source = rolled(i);
+                if (Files.exists(source)) {
+                    Files.move(source, rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(file, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.deleteIfExists(file);
+        }
+        open();
+    }
+
+    private Path rolled(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Nothing left to do with a channel we are abandoning
+            }
+            channel = null;
+        }
+    }
+
+    private static void putAscii(ByteBuffer out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            out.put((byte) value.charAt(i));
+        }
+    }
+
+    private static void putLong(ByteBuffer out, long value) {
+        if (value < 0) {
+            out.put((byte) '-');
+            if (value == Long.MIN_VALUE) {
+                putAscii(out, "9223372036854775808");
+                return;
+            }
+            value = -value;
+        }
+        if (value >= 10) {
+            putLong(out, value / 10);
+        }
+        out.put((byte) ('0' + value % 10));
+    }
+
+    /**
+     * Writes a JSON string as UTF-8, or {@code null}. Control characters, quotes and backslashes
+     * are escaped so a crafted path cannot break the line-per-record framing.
+     */
+    private static void putString(ByteBuffer out, String value) {
+        if (value == null) {
+            putAscii(out, "null");
+            return;
+        }
+        out.put((byte) '"');
+        int length = Math.min(value.length(), MAX_FIELD_CHARS);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.put((byte) '\\').put((byte) c);
+            } else if (c < 0x20) {
+                putAscii(out, "\\u00");
+                out.put(HEX[c >> 4]).put(HEX[c & 0xF]);
+            } else if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | (c >> 6))).put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out.put((byte) (0xF0 | (codePoint >> 18))).put((byte) (0x80 | ((codePoint >> 12) & 0x3F)))
+                        .put((byte) (0x80 | ((codePoint >> 6) & 0x3F))).put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                out.put((byte) '?');
+            } else {
+                out.put((byte) (0xE0 | (c >> 12))).put((byte) (0x80 | ((c >> 6) & 0x3F))).put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        out.put((byte) '"');
+    }
+}
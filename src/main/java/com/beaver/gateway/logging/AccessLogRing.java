@@ -0,0 +1,113 @@
+package com.beaver.gateway.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded multi-producer, single-consumer ring of access records, stored column-wise in
+ * preallocated arrays. Producers claim a slot with one CAS and publish it with a release store of
+ * the slot's sequence; when the ring is full the record is dropped rather than waited for, so
+ * event-loop threads never block on logging.
+ */
+final class AccessLogRing {
+
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private long head;
+
+    final long[] timestamps;
+    final String[] routes;
+    final String[] methods;
+    final String[] paths;
+    final int[] statuses;
+    final long[] latencyNanos;
+    final String[] userIds;
+    final String[] workspaceIds;
+    final long[] bytesIn;
+    final long[] bytesOut;
+
+    AccessLogRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        timestamps = new long[size];
+        routes = new String[size];
+        methods = new String[size];
+        paths = new String[size];
+        statuses = new int[size];
+        latencyNanos = new long[size];
+        userIds = new String[size];
+        workspaceIds = new String[size];
+        bytesIn = new long[size];
+        bytesOut = new long[size];
+    }
+
+    /**
+     * @return whether the record was queued; {@code false} means it was dropped and counted
+     */
+    boolean offer(long timestamp, String route, String method, String path, int status, long latency,
+                  String userId, String workspaceId, long in, long out) {
+        long position = tail.get();
+        while (true) {
+            int slot = (int) position & mask;
+            long sequence = sequences.get(slot);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = tail.get();
+            } else if (sequence < position) {
+                // The consumer has not freed this slot yet: the ring is full
+                dropped.incrementAndGet();
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+
+        int slot = (int) position & mask;
+        timestamps[slot] = timestamp;
+        routes[slot] = route;
+        methods[slot] = method;
+        paths[slot] = path;
+        statuses[slot] = status;
+        latencyNanos[slot] = latency;
+        userIds[slot] = userId;
+        workspaceIds[slot] = workspaceId;
+        bytesIn[slot] = in;
+        bytesOut[slot] = out;
+        sequences.lazySet(slot, position + 1);
+        return true;
+    }
+
+    /**
+     * Returns the slot of the next published record, or -1 if there is none. Only the writer
+     * thread may call this, and it must {@link #release} the slot once the record is encoded.
+     */
+    int poll() {
+        int slot = (int) head & mask;
+        return sequences.get(slot) == head + 1 ? slot : -1;
+    }
+
+    void release(int slot) {
+        routes[slot] = null;
+        paths[slot] = null;
+        userIds[slot] = null;
+        workspaceIds[slot] = null;
+        sequences.lazySet(slot, head + mask + 1);
+        head++;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    long dropped() {
+        return dropped.get();
+    }
+}
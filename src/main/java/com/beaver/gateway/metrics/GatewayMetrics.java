@@ -0,0 +1,138 @@
+package com.beaver.gateway.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hot-path counters and filter latency histograms. Route filters resolve their histogram once when
+ * the route is built; global filters have no such step and keep their own map from route id, one
+ * lookup per request. Counters are indexed by enum ordinal, so recording a request never
+ * allocates. {@link PrometheusExporter} renders everything on scrape.
+ */
+@Component
+public class GatewayMetrics {
+
+    public static final String AUTHENTICATION = "authentication";
+    public static final String CONTEXT_ENRICHMENT = "context_enrichment";
+    public static final String RATE_LIMIT = "rate_limit";
+
+    private static final String UNKNOWN_ROUTE = "unknown";
+
+    /** Which kind of key a rate-limit decision was made for. */
+    public enum KeyClass {
+        USER, IPV4, IPV6, UNKNOWN;
+
+        final String label = name().toLowerCase();
+    }
+
+    public enum JwtOutcome {
+        ACCEPTED, MISSING, INVALID, REVOKED, ERROR;
+
+        final String label = name().toLowerCase();
+    }
+
+    /** How a coalescable request was answered: as the downstream call, from another's, or on its own after all. */
+    public enum CoalescingOutcome {
+        LEADER, SHARED, FALLBACK;
+
+        final String label = name().toLowerCase();
+    }
+
+    /** Hedging events: a hedge was sent, it answered first, or the budget had none to spare. */
+    public enum HedgingOutcome {
+        HEDGED, HEDGE_WON, BUDGET_EXHAUSTED;
+
+        final String label = name().toLowerCase();
+    }
+
+    private final Map<String, Map<String, LatencyHistogram>> filterLatency = new ConcurrentHashMap<>();
+    private final LongAdder[] rateLimitAllowed = adders(KeyClass.values().length);
+    private final LongAdder[] rateLimitRejected = adders(KeyClass.values().length);
+    private final LongAdder preAuthRejected = new LongAdder();
+    private final LongAdder[] jwtOutcomes = adders(JwtOutcome.values().length);
+    private final LongAdder[] coalescingOutcomes = adders(CoalescingOutcome.values().length);
+    private final LongAdder[] hedgingOutcomes = adders(HedgingOutcome.values().length);
+    /** Concurrency-limit decisions: normal admitted, normal shed, priority admitted, priority shed. */
+    private final LongAdder[] concurrencyDecisions = adders(4);
+
+    /**
+     * Returns the latency histogram for a filter on a route, creating it on first use. Two map
+     * lookups, so resolve it once rather than per request.
+     */
+    public LatencyHistogram filterLatency(String filter, String routeId) {
+        String route = routeId != null ? routeId : UNKNOWN_ROUTE;
+        Map<String, LatencyHistogram> routes = filterLatency.get(filter);
+        if (routes == null) {
+            routes = filterLatency.computeIfAbsent(filter, f -> new ConcurrentHashMap<>());
+        }
+        LatencyHistogram histogram = routes.get(route);
+        return histogram != null ? histogram : routes.computeIfAbsent(route, r -> new LatencyHistogram());
+    }
+
+    public void rateLimitDecision(KeyClass keyClass, boolean allowed) {
+        (allowed ? rateLimitAllowed : rateLimitRejected)[keyClass.ordinal()].increment();
+    }
+
+    public void preAuthRejection() {
+        preAuthRejected.increment();
+    }
+
+    public void jwtOutcome(JwtOutcome outcome) {
+        jwtOutcomes[outcome.ordinal()].increment();
+    }
+
+    public void coalescingOutcome(CoalescingOutcome outcome) {
+        coalescingOutcomes[outcome.ordinal()].increment();
+    }
+
+    public void hedgingOutcome(HedgingOutcome outcome) {
+        hedgingOutcomes[outcome.ordinal()].increment();
+    }
+
+    public void concurrencyDecision(boolean priority, boolean admitted) {
+        concurrencyDecisions[(priority ? 2 : 0) + (admitted ? 0 : 1)].increment();
+    }
+
+    public long rateLimitDecisions(KeyClass keyClass, boolean allowed) {
+        return (allowed ? rateLimitAllowed : rateLimitRejected)[keyClass.ordinal()].sum();
+    }
+
+    public long preAuthRejections() {
+        return preAuthRejected.sum();
+    }
+
+    public long jwtOutcomes(JwtOutcome outcome) {
+        return jwtOutcomes[outcome.ordinal()].sum();
+    }
+
+    public long coalescingOutcomes(CoalescingOutcome outcome) {
+        return coalescingOutcomes[outcome.ordinal()].sum();
+    }
+
+    public long hedgingOutcomes(HedgingOutcome outcome) {
+        return hedgingOutcomes[outcome.ordinal()].sum();
+    }
+
+    public long concurrencyDecisions(boolean priority, boolean admitted) {
+        return concurrencyDecisions[(priority ? 2 : 0) + (admitted ? 0 : 1)].sum();
+    }
+
+    void forEachFilterLatency(FilterLatencyVisitor visitor) {
+        filterLatency.forEach((filter, routes) -> routes.forEach((route, histogram) -> visitor.visit(filter, route, histogram)));
+    }
+
+    interface FilterLatencyVisitor {
+        void visit(String filter, String routeId, LatencyHistogram histogram);
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
@@ -0,0 +1,63 @@
+package com.beaver.gateway.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.HttpHeaders;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * Serves {@code GET /metrics} on its own management port. Keeping the scrape endpoint off the
+ * public port means clients cannot read it, and the gateway's own handler cannot shadow a
+ * {@code /metrics} path on a downstream route.
+ */
+@Slf4j
+public class MetricsServer implements SmartLifecycle {
+
+    private final PrometheusExporter exporter;
+    private final String address;
+    private final int port;
+    private volatile DisposableServer server;
+
+    public MetricsServer(PrometheusExporter exporter, String address, int port) {
+        this.exporter = exporter;
+        this.address = address;
+        this.port = port;
+    }
+
+    @Override
+    public void start() {
+        server = HttpServer.create()
+                .host(address)
+                .port(port)
+                .route(routes -> routes.get("/metrics", (request, response) -> response
+                        .header(HttpHeaders.CONTENT_TYPE, PrometheusExporter.CONTENT_TYPE)
+                        .sendString(Mono.fromSupplier(exporter::scrape))))
+                .bindNow();
+        log.info("Metrics served on {}:{}/metrics", address, server.port());
+    }
+
+    @Override
+    public void stop() {
+        DisposableServer current = server;
+        server = null;
+        if (current != null) {
+            current.disposeNow();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    /** The bound port, which differs from the configured one when that is 0. */
+    public int port() {
+        DisposableServer current = server;
+        if (current == null) {
+            throw new IllegalStateException("Metrics server is not running");
+        }
+        return current.port();
+    }
+}
@@ -0,0 +1,217 @@
+package com.beaver.gateway.metrics;
+
+import com.beaver.gateway.auth.JwtClaimsCache;
+import com.beaver.gateway.cache.ResponseCache;
+import com.beaver.gateway.concurrency.ConcurrencyLimiters;
+import com.beaver.gateway.concurrency.FairQueue;
+import com.beaver.gateway.auth.TokenRevocationList;
+import com.beaver.gateway.logging.AccessLog;
+import com.beaver.gateway.ratelimit.BucketStore;
+import com.beaver.gateway.ratelimit.ClusterRateLimiter;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Renders {@link GatewayMetrics} and the rate-limit, claims-cache and access-log gauges in the
+ * Prometheus text exposition format. All formatting happens here, on scrape, never on the request path.
+ */
+@Component
+public class PrometheusExporter {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final GatewayMetrics metrics;
+    private final BucketStore buckets;
+    private final JwtClaimsCache claimsCache;
+    private final TokenRevocationList revocations;
+    private final AccessLog accessLog;
+    private final ResponseCache responseCache;
+    private final ConcurrencyLimiters concurrencyLimiters;
+    private final ObjectProvider<ClusterRateLimiter> clusterRateLimiter;
+
+    public PrometheusExporter(GatewayMetrics metrics, BucketStore buckets, JwtClaimsCache claimsCache,
+                              TokenRevocationList revocations, AccessLog accessLog, ResponseCache responseCache,
+                              ConcurrencyLimiters concurrencyLimiters, ObjectProvider<ClusterRateLimiter> clusterRateLimiter) {
+        this.metrics = metrics;
+        this.buckets = buckets;
+        this.claimsCache = claimsCache;
+        this.revocations = revocations;
+        this.accessLog = accessLog;
+        this.responseCache = responseCache;
+        this.concurrencyLimiters = concurrencyLimiters;
+        this.clusterRateLimiter = clusterRateLimiter;
+    }
+
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        writeFilterLatency(out);
+        writeRateLimit(out);
+        writeJwt(out);
+        writeAccessLog(out);
+        writeResponseCache(out);
+        writeCoalescing(out);
+        writeHedging(out);
+        writeConcurrencyLimits(out);
+        return out.toString();
+    }
+
+    private void writeFilterLatency(StringBuilder out) {
+        header(out, "gateway_filter_duration_seconds", "histogram", "Time spent in a gateway filter before handing off, by route.");
+        metrics.forEachFilterLatency((filter, route, histogram) -> {
+            for (int i = 0; i <= LatencyHistogram.BOUNDS_NANOS.length; i++) {
+                String le = i < LatencyHistogram.BOUNDS_NANOS.length
+                        ? Double.toString(LatencyHistogram.BOUNDS_NANOS[i] / NANOS_PER_SECOND)
+                        : "+Inf";
+                out.append("gateway_filter_duration_seconds_bucket{filter=\"").append(filter)
+                        .append("\",route=\"").append(escape(route)).append("\",le=\"").append(le).append("\"} ")
+                        .append(histogram.cumulativeCount(i)).append('\n');
+            }
+            out.append("gateway_filter_duration_seconds_sum{filter=\"").append(filter).append("\",route=\"")
+                    .append(escape(route)).append("\"} ").append(histogram.sumNanos() / NANOS_PER_SECOND).append('\n');
+            out.append("gateway_filter_duration_seconds_count{filter=\"").append(filter).append("\",route=\"")
+                    .append(escape(route)).append("\"} ").append(histogram.count()).append('\n');
+        });
+    }
+
+    private void writeRateLimit(StringBuilder out) {
+        header(out, "gateway_rate_limit_decisions_total", "counter", "Rate-limit decisions by client key class.");
+        for (GatewayMetrics.KeyClass keyClass : GatewayMetrics.KeyClass.values()) {
+            sample(out, "gateway_rate_limit_decisions_total", "key_class=\"" + keyClass.label + "\",outcome=\"allowed\"",
+                    metrics.rateLimitDecisions(keyClass, true));
+            sample(out, "gateway_rate_limit_decisions_total", "key_class=\"" + keyClass.label + "\",outcome=\"rejected\"",
+                    metrics.rateLimitDecisions(keyClass, false));
+        }
+        header(out, "gateway_rate_limit_pre_auth_rejected_total", "counter",
+                "Requests rejected by the per-address limit before routing and authentication.");
+        sample(out, "gateway_rate_limit_pre_auth_rejected_total", null, metrics.preAuthRejections());
+
+        header(out, "gateway_rate_limit_buckets", "gauge", "Live rate-limit buckets.");
+        sample(out, "gateway_rate_limit_buckets", null, buckets.size());
+        header(out, "gateway_rate_limit_buckets_max", "gauge", "Bucket table capacity.");
+        sample(out, "gateway_rate_limit_buckets_max", null, buckets.capacity());
+        header(out, "gateway_rate_limit_bucket_evictions_total", "counter", "Buckets reclaimed for new keys.");
+        sample(out, "gateway_rate_limit_bucket_evictions_total", "reason=\"idle\"", buckets.idleEvictions());
+        sample(out, "gateway_rate_limit_bucket_evictions_total", "reason=\"capacity\"", buckets.capacityEvictions());
+
+        ClusterRateLimiter cluster = clusterRateLimiter.getIfAvailable();
+        if (cluster != null) {
+            header(out, "gateway_rate_limit_cluster_store_up", "gauge", "Whether the shared quota store is reachable.");
+            sample(out, "gateway_rate_limit_cluster_store_up", null, cluster.isStoreAvailable() ? 1 : 0);
+            header(out, "gateway_rate_limit_cluster_leases_total", "counter", "Quota leases requested from the shared store.");
+            sample(out, "gateway_rate_limit_cluster_leases_total", null, cluster.leaseRequests());
+            header(out, "gateway_rate_limit_cluster_lease_failures_total", "counter", "Quota leases that failed.");
+            sample(out, "gateway_rate_limit_cluster_lease_failures_total", null, cluster.leaseFailures());
+            header(out, "gateway_rate_limit_cluster_lease_rejections_total", "counter",
+                    "Leases not requested because the lease queue was full.");
+            sample(out, "gateway_rate_limit_cluster_lease_rejections_total", null, cluster.leaseRejections());
+        }
+    }
+
+    private void writeJwt(StringBuilder out) {
+        header(out, "gateway_jwt_validations_total", "counter", "Access-token checks by outcome.");
+        for (GatewayMetrics.JwtOutcome outcome : GatewayMetrics.JwtOutcome.values()) {
+            sample(out, "gateway_jwt_validations_total", "outcome=\"" + outcome.label + "\"", metrics.jwtOutcomes(outcome));
+        }
+
+        CacheStats stats = claimsCache.stats();
+        header(out, "gateway_jwt_cache_requests_total", "counter", "Verified-claims cache lookups.");
+        sample(out, "gateway_jwt_cache_requests_total", "result=\"hit\"", stats.hitCount());
+        sample(out, "gateway_jwt_cache_requests_total", "result=\"miss\"", stats.missCount());
+        header(out, "gateway_jwt_cache_evictions_total", "counter", "Verified-claims cache evictions.");
+        sample(out, "gateway_jwt_cache_evictions_total", null, stats.evictionCount());
+        header(out, "gateway_jwt_cache_size", "gauge", "Estimated verified-claims cache entries.");
+        sample(out, "gateway_jwt_cache_size", null, claimsCache.estimatedSize());
+        header(out, "gateway_jwt_revocations", "gauge", "Revoked access tokens on the denylist.");
+        sample(out, "gateway_jwt_revocations", null, revocations.size());
+        header(out, "gateway_jwt_revocation_false_positives_total", "counter", "Denylist Bloom filter hits not on the exact list.");
+        sample(out, "gateway_jwt_revocation_false_positives_total", null, revocations.bloomFalsePositives());
+    }
+
+    private void writeAccessLog(StringBuilder out) {
+        header(out, "gateway_access_log_records_total", "counter",
+                "Access records written, dropped because the buffer was full, or discarded because the write failed.");
+        sample(out, "gateway_access_log_records_total", "result=\"written\"", accessLog.written());
+        sample(out, "gateway_access_log_records_total", "result=\"dropped\"", accessLog.dropped());
+        sample(out, "gateway_access_log_records_total", "result=\"discarded\"", accessLog.discarded());
+        header(out, "gateway_access_log_write_failures_total", "counter", "Failed access log writes.");
+        sample(out, "gateway_access_log_write_failures_total", null, accessLog.writeFailures());
+    }
+
+    private void writeResponseCache(StringBuilder out) {
+        header(out, "gateway_response_cache_requests_total", "counter", "Cacheable GETs by how they were answered.");
+        sample(out, "gateway_response_cache_requests_total", "result=\"hit\"", responseCache.hits());
+        sample(out, "gateway_response_cache_requests_total", "result=\"miss\"", responseCache.misses());
+        sample(out, "gateway_response_cache_requests_total", "result=\"revalidated\"", responseCache.revalidations());
+        header(out, "gateway_response_cache_stores_total", "counter", "Responses written to the cache.");
+        sample(out, "gateway_response_cache_stores_total", null, responseCache.stores());
+        header(out, "gateway_response_cache_entries", "gauge", "Estimated cached responses.");
+        sample(out, "gateway_response_cache_entries", null, responseCache.estimatedSize());
+        header(out, "gateway_response_cache_bytes", "gauge", "Weighted size of cached responses in bytes.");
+        sample(out, "gateway_response_cache_bytes", null, responseCache.weightedBytes());
+    }
+
+    private void writeCoalescing(StringBuilder out) {
+        header(out, "gateway_coalesced_requests_total", "counter", "Identical in-flight GETs by how they were answered.");
+        for (GatewayMetrics.CoalescingOutcome outcome : GatewayMetrics.CoalescingOutcome.values()) {
+            sample(out, "gateway_coalesced_requests_total", "outcome=\"" + outcome.label + "\"", metrics.coalescingOutcomes(outcome));
+        }
+    }
+
+    private void writeHedging(StringBuilder out) {
+        header(out, "gateway_hedged_requests_total", "counter", "Hedged downstream requests by outcome.");
+        for (GatewayMetrics.HedgingOutcome outcome : GatewayMetrics.HedgingOutcome.values()) {
+            sample(out, "gateway_hedged_requests_total", "outcome=\"" + outcome.label + "\"", metrics.hedgingOutcomes(outcome));
+        }
+    }
+
+    private void writeConcurrencyLimits(StringBuilder out) {
+        header(out, "gateway_concurrency_decisions_total", "counter", "Concurrency-limit decisions by request class.");
+        for (boolean priority : new boolean[] {false, true}) {
+            String requestClass = priority ? "priority" : "normal";
+            sample(out, "gateway_concurrency_decisions_total", "class=\"" + requestClass + "\",outcome=\"admitted\"",
+                    metrics.concurrencyDecisions(priority, true));
+            sample(out, "gateway_concurrency_decisions_total", "class=\"" + requestClass + "\",outcome=\"shed\"",
+                    metrics.concurrencyDecisions(priority, false));
+        }
+
+        header(out, "gateway_concurrency_limit", "gauge", "Current adaptive in-flight limit by limiter group.");
+        for (FairQueue queue : concurrencyLimiters.all()) {
+            sample(out, "gateway_concurrency_limit", "group=\"" + escape(queue.name()) + "\"", queue.limiter().limit());
+        }
+        header(out, "gateway_concurrency_in_flight", "gauge", "Requests in flight downstream by limiter group.");
+        for (FairQueue queue : concurrencyLimiters.all()) {
+            sample(out, "gateway_concurrency_in_flight", "group=\"" + escape(queue.name()) + "\"", queue.limiter().inFlight());
+        }
+        header(out, "gateway_concurrency_waiting", "gauge", "Requests waiting for a slot by limiter group.");
+        for (FairQueue queue : concurrencyLimiters.all()) {
+            sample(out, "gateway_concurrency_waiting", "group=\"" + escape(queue.name()) + "\"", queue.waiting());
+        }
+        header(out, "gateway_concurrency_queue_total", "counter", "Fair-queue events by limiter group and outcome.");
+        for (FairQueue queue : concurrencyLimiters.all()) {
+            String group = "group=\"" + escape(queue.name()) + "\"";
+            sample(out, "gateway_concurrency_queue_total", group + ",outcome=\"queued\"", queue.queued());
+            sample(out, "gateway_concurrency_queue_total", group + ",outcome=\"full\"", queue.full());
+            sample(out, "gateway_concurrency_queue_total", group + ",outcome=\"timed_out\"", queue.timedOut());
+        }
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, long value) {
+        out.append(name);
+        if (labels != null) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static String escape(String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
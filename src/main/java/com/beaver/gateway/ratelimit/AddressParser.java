@@ -0,0 +1,219 @@
+package com.beaver.gateway.ratelimit;
+
+/**
+ * Allocation-free parser for IPv4 and IPv6 literals embedded in header values. Addresses are
+ * produced as 128 bits in two longs, with IPv4 in its IPv4-mapped IPv6 form ({@code ::ffff:a.b.c.d}).
+ * Surrounding whitespace, {@code [..]} brackets, ports and IPv6 zone ids are tolerated.
+ */
+final class AddressParser {
+
+    static final long IPV4_MAPPED_LO = 0x0000_FFFF_0000_0000L;
+
+    private AddressParser() {
+    }
+
+    /**
+     * Parses {@code value[from, to)} into {@code out[0]} (upper 64 bits) and {@code out[1]} (lower 64 bits).
+     *
+     * @return whether the range held an address
+     */
+    static boolean parse(CharSequence value, int from, int to, long[] out) {
+        while (from < to && value.charAt(from) == ' ') {
+            from++;
+        }
+        while (to > from && value.charAt(to - 1) == ' ') {
+            to--;
+        }
+        if (from >= to) {
+            return false;
+        }
+
+        if (value.charAt(from) == '[') {
+            int close = indexOf(value, ']', from + 1, to);
+            return close > 0 && parseIpv6(value, from + 1, close, out);
+        }
+
+        int colons = 0;
+        int lastColon = -1;
+        for (int i = from; i < to; i++) {
+            if (value.charAt(i) == ':') {
+                colons++;
+                lastColon = i;
+            }
+        }
+        if (colons == 0) {
+            return parseIpv4(value, from, to, out);
+        }
+        if (colons == 1) {
+            // a.b.c.d:port
+            return parseIpv4(value, from, lastColon, out);
+        }
+        return parseIpv6(value, from, to, out);
+    }
+
+    static boolean isIpv4Mapped(long hi, long lo) {
+        return hi == 0 && (lo & 0xFFFF_FFFF_0000_0000L) == IPV4_MAPPED_LO;
+    }
+
+    private static boolean parseIpv4(CharSequence value, int from, int to, long[] out) {
+        long address = ipv4(value, from, to);
+        if (address < 0) {
+            return false;
+        }
+        out[0] = 0;
+        out[1] = IPV4_MAPPED_LO | address;
+        return true;
+    }
+
+    private static long ipv4(CharSequence value, int from, int to) {
+        long address = 0;
+        int octet = 0;
+        int digits = 0;
+        int dots = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = octet * 10 + (c - '0');
+                if (++digits > 3 || octet > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && digits > 0 && dots < 3) {
+                address = (address << 8) | octet;
+                octet = 0;
+                digits = 0;
+                dots++;
+            } else {
+                return -1;
+            }
+        }
+        if (dots != 3 || digits == 0) {
+            return -1;
+        }
+        return (address << 8) | octet;
+    }
+
+    private static boolean parseIpv6(CharSequence value, int from, int to, long[] out) {
+        int zone = indexOf(value, '%', from, to);
+        if (zone >= 0) {
+            to = zone;
+        }
+
+        // Groups before "::" accumulate in head, groups after it in tail
+        long headHi = 0;
+        long headLo = 0;
+        long tailHi = 0;
+        long tailLo = 0;
+        int headGroups = 0;
+        int tailGroups = 0;
+        boolean compressed = false;
+
+        int i = from;
+        if (to - from >= 2 && value.charAt(from) == ':' && value.charAt(from + 1) == ':') {
+            compressed = true;
+            i += 2;
+        } else if (value.charAt(from) == ':') {
+            return false;
+        }
+
+        while (i < to) {
+            int end = i;
+            int group = 0;
+            while (end < to && end - i < 5 && hexValue(value.charAt(end)) >= 0) {
+                group = (group << 4) | hexValue(value.charAt(end));
+                end++;
+            }
+
+            if (end < to && value.charAt(end) == '.') {
+                // Trailing embedded IPv4 fills the last two groups
+                long ipv4 = ipv4(value, i, to);
+                if (ipv4 < 0) {
+                    return false;
+                }
+                if (compressed) {
+                    tailHi = (tailHi << 32) | (tailLo >>> 32);
+                    tailLo = (tailLo << 32) | ipv4;
+                    tailGroups += 2;
+                } else {
+                    headHi = (headHi << 32) | (headLo >>> 32);
+                    headLo = (headLo << 32) | ipv4;
+                    headGroups += 2;
+                }
+                i = to;
+                break;
+            }
+
+            if (end == i || end - i > 4) {
+                return false;
+            }
+            if (compressed) {
+                tailHi = (tailHi << 16) | (tailLo >>> 48);
+                tailLo = (tailLo << 16) | group;
+                tailGroups++;
+            } else {
+                headHi = (headHi << 16) | (headLo >>> 48);
+                headLo = (headLo << 16) | group;
+                headGroups++;
+            }
+
+            i = end;
+            if (i < to) {
+                if (value.charAt(i) != ':') {
+                    return false;
+                }
+                i++;
+                if (i < to && value.charAt(i) == ':') {
+                    if (compressed) {
+                        return false;
+                    }
+                    compressed = true;
+                    i++;
+                } else if (i == to) {
+                    return false;
+                }
+            }
+        }
+
+        int groups = headGroups + tailGroups;
+        if (groups > 8 || (!compressed && groups != 8) || (compressed && groups == 8)) {
+            return false;
+        }
+
+        // Shift head into the most significant groups, then lay tail into the least significant ones
+        int shift = 16 * (8 - headGroups);
+        if (shift >= 128) {
+            headHi = 0;
+            headLo = 0;
+        } else if (shift >= 64) {
+            headHi = headLo << (shift - 64);
+            headLo = 0;
+        } else if (shift > 0) {
+            headHi = (headHi << shift) | (headLo >>> (64 - shift));
+            headLo = headLo << shift;
+        }
+        out[0] = headHi | tailHi;
+        out[1] = headLo | tailLo;
+        return true;
+    }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private static int indexOf(CharSequence value, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (value.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,158 @@
+package com.beaver.gateway.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-capacity, lock-free table of rate-limit buckets keyed by 64-bit {@link ClientKeys}.
+ * <p>
+ * Each bucket is a single word: the theoretical arrival time (TAT) of the generic cell rate
+ * algorithm, in {@link System#nanoTime()} units. A decision is one CAS on that word, refill is
+ * continuous rather than stepped, and the wait until the next conforming request falls out exactly.
+ * <p>
+ * All state lives in preallocated primitive arrays, so the heap footprint is set at startup and
+ * does not grow with the number of distinct clients. Keys are placed by open addressing within a
+ * short probe window; when no slot in the window is free, an idle bucket is reused first and the
+ * fullest one otherwise, which makes the capacity a hard cap. A bucket whose TAT lies further in
+ * the past than the idle timeout is full, so reusing it loses no limiting state.
+ * <p>
+ * Slot reuse is not atomic with respect to a concurrent decision on the evicted key; the worst
+ * case is one decision landing on a freshly reset bucket, which only ever errs towards allowing.
+ */
+public class BucketStore {
+
+    static final int PROBE_WINDOW = 16;
+
+    private static final int ARRAYS = 2;
+
+    private final int mask;
+    private final long idleTimeoutNanos;
+
+    private final AtomicLongArray keys;
+    private final AtomicLongArray tats;
+
+    private final LongAdder occupied = new LongAdder();
+    private final LongAdder idleEvictions = new LongAdder();
+    private final LongAdder capacityEvictions = new LongAdder();
+
+    public BucketStore(int maxBuckets, long idleTimeoutNanos) {
+        if (maxBuckets < PROBE_WINDOW) {
+            throw new IllegalArgumentException("maxBuckets must be at least " + PROBE_WINDOW);
+        }
+        int capacity = Integer.highestOneBit(maxBuckets - 1) << 1;
+        this.mask = capacity - 1;
+        this.idleTimeoutNanos = idleTimeoutNanos;
+        this.keys = new AtomicLongArray(capacity);
+        this.tats = new AtomicLongArray(capacity);
+    }
+
+    /**
+     * Charges {@code increment} (cost times emission interval) to the bucket in {@code slot} if the
+     * result stays within {@code tolerance} (capacity times emission interval).
+     *
+     * @return a {@link RateLimitDecision}
+     */
+    public long tryConsume(int slot, long increment, long tolerance, long emissionInterval, long nowNanos) {
+        while (true) {
+            long tat = tats.get(slot);
+            long newTat = Math.max(tat, nowNanos) + increment;
+            long wait = newTat - nowNanos - tolerance;
+            if (wait > 0) {
+                return RateLimitDecision.denied(wait);
+            }
+            if (tats.compareAndSet(slot, tat, newTat)) {
+                return RateLimitDecision.allowed((tolerance - (newTat - nowNanos)) / emissionInterval);
+            }
+        }
+    }
+
+    /**
+     * Returns a charge taken by {@link #tryConsume} when a later level rejected the request.
+     */
+    public void refund(int slot, long increment) {
+        tats.getAndAdd(slot, -increment);
+    }
+
+    /**
+     * Finds the slot holding {@code key}, claiming a full bucket for it if the key is not present.
+     */
+    public int slotFor(long key, long nowNanos) {
+        int start = (int) ClientKeys.mix(key) & mask;
+
+        while (true) {
+            int empty = -1;
+            int idle = -1;
+            int fullest = -1;
+            long fullestTat = Long.MAX_VALUE;
+
+            for (int i = 0; i < PROBE_WINDOW; i++) {
+                int slot = (start + i) & mask;
+                long current = keys.get(slot);
+                if (current == key) {
+                    return slot;
+                }
+                if (current == ClientKeys.EMPTY) {
+                    if (empty < 0) {
+                        empty = slot;
+                    }
+                    continue;
+                }
+                long tat = tats.get(slot);
+                if (idle < 0 && nowNanos - tat > idleTimeoutNanos) {
+                    idle = slot;
+                }
+                if (tat - fullestTat < 0 || fullest < 0) {
+                    fullestTat = tat;
+                    fullest = slot;
+                }
+            }
+
+            if (empty >= 0 && keys.compareAndSet(empty, ClientKeys.EMPTY, key)) {
+                occupied.increment();
+                return initialise(empty, nowNanos);
+            }
+            if (empty < 0 && idle >= 0 && replace(idle, key)) {
+                idleEvictions.increment();
+                return initialise(idle, nowNanos);
+            }
+            if (empty < 0 && idle < 0 && fullest >= 0 && replace(fullest, key)) {
+                capacityEvictions.increment();
+                return initialise(fullest, nowNanos);
+            }
+            // Lost a race for the chosen slot; rescan the window
+        }
+    }
+
+    private boolean replace(int slot, long key) {
+        long victim = keys.get(slot);
+        return victim != ClientKeys.EMPTY && victim != key && keys.compareAndSet(slot, victim, key);
+    }
+
+    private int initialise(int slot, long nowNanos) {
+        tats.set(slot, nowNanos);
+        return slot;
+    }
+
+    /** Number of slots currently holding a bucket, idle or not. */
+    public long size() {
+        return occupied.sum();
+    }
+
+    /** Hard cap on the number of buckets. */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public long idleEvictions() {
+        return idleEvictions.sum();
+    }
+
+    public long capacityEvictions() {
+        return capacityEvictions.sum();
+    }
+
+    /** Bytes held by the slot arrays; fixed for the lifetime of the store. */
+    public long memoryBytes() {
+        return (long) ARRAYS * Long.BYTES * capacity();
+    }
+}
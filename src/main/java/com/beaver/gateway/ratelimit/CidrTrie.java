@@ -0,0 +1,113 @@
+package com.beaver.gateway.ratelimit;
+
+import java.util.Arrays;
+
+/**
+ * Binary prefix trie over 128-bit addresses, for matching a handful of trusted-proxy CIDR blocks.
+ * Nodes live in two parallel int arrays of child indexes, so a lookup is at most one array read
+ * per prefix bit and never allocates. IPv4 blocks are stored under {@code ::ffff:0:0/96}.
+ */
+final class CidrTrie {
+
+    private static final int NONE = 0;
+    private static final int ROOT = 1;
+
+    private int[] zero = new int[16];
+    private int[] one = new int[16];
+    private boolean[] terminal = new boolean[16];
+    private int nodes = 2;
+    private boolean empty = true;
+
+    /**
+     * Compiles blocks written as {@code address/prefix}, or a bare address for a single host.
+     *
+     * @throws IllegalArgumentException if a block is not a valid CIDR
+     */
+    static CidrTrie compile(Iterable<String> blocks) {
+        CidrTrie trie = new CidrTrie();
+        long[] address = new long[2];
+        for (String block : blocks) {
+            String cidr = block.trim();
+            int slash = cidr.indexOf('/');
+            int end = slash < 0 ? cidr.length() : slash;
+            if (!AddressParser.parse(cidr, 0, end, address)) {
+                throw new IllegalArgumentException("Invalid trusted proxy address: " + block);
+            }
+
+            boolean ipv4 = AddressParser.isIpv4Mapped(address[0], address[1]) && cidr.indexOf(':') < 0;
+            int maxPrefix = ipv4 ? 32 : 128;
+            int prefix = maxPrefix;
+            if (slash >= 0) {
+                try {
+                    prefix = Integer.parseInt(cidr.substring(slash + 1));
+                } catch (NumberFormatException ex) {
+                    throw new IllegalArgumentException("Invalid trusted proxy prefix: " + block);
+                }
+                if (prefix < 0 || prefix > maxPrefix) {
+                    throw new IllegalArgumentException("Invalid trusted proxy prefix: " + block);
+                }
+            }
+            trie.insert(address[0], address[1], ipv4 ? prefix + 96 : prefix);
+        }
+        return trie;
+    }
+
+    boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * Returns whether the address falls inside any compiled block.
+     */
+    boolean contains(long hi, long lo) {
+        int node = ROOT;
+        for (int bit = 0; bit < 128; bit++) {
+            if (terminal[node]) {
+                return true;
+            }
+            node = bitAt(hi, lo, bit) ? one[node] : zero[node];
+            if (node == NONE) {
+                return false;
+            }
+        }
+        return terminal[node];
+    }
+
+    private void insert(long hi, long lo, int prefix) {
+        empty = false;
+        int node = ROOT;
+        for (int bit = 0; bit < prefix; bit++) {
+            if (terminal[node]) {
+                // Already covered by a shorter block
+                return;
+            }
+            boolean set = bitAt(hi, lo, bit);
+            int child = set ? one[node] : zero[node];
+            if (child == NONE) {
+                // Grow first, then link into the possibly reallocated arrays
+                child = newNode();
+                if (set) {
+                    one[node] = child;
+                } else {
+                    zero[node] = child;
+                }
+            }
+            node = child;
+        }
+        terminal[node] = true;
+    }
+
+    private int newNode() {
+        if (nodes == terminal.length) {
+            int capacity = nodes * 2;
+            zero = Arrays.copyOf(zero, capacity);
+            one = Arrays.copyOf(one, capacity);
+            terminal = Arrays.copyOf(terminal, capacity);
+        }
+        return nodes++;
+    }
+
+    private static boolean bitAt(long hi, long lo, int bit) {
+        return bit < 64 ? (hi << bit) < 0 : (lo << (bit - 64)) < 0;
+    }
+}
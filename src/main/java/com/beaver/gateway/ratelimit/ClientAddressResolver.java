@@ -0,0 +1,144 @@
+package com.beaver.gateway.ratelimit;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+/**
+ * Resolves the originating client of a request as a {@link ClientKeys} key.
+ * <p>
+ * Forwarding headers are only believed when the direct peer is a trusted proxy. X-Forwarded-For
+ * is then walked right to left, skipping hops that are themselves trusted proxies, and the first
+ * untrusted hop is the client: everything to its left was written by the client and can be forged.
+ * X-Real-IP is used only when there is no X-Forwarded-For. Parsing and CIDR matching work on the
+ * header characters in place, so a request allocates nothing here beyond the peer address bytes.
+ */
+public class ClientAddressResolver {
+
+    public static final String X_FORWARDED_FOR = "X-Forwarded-For";
+    public static final String X_REAL_IP = "X-Real-IP";
+
+    /** Key for requests whose peer address is not known, e.g. some in-process test transports. */
+    public static final long UNKNOWN = ClientKeys.of("unknown");
+
+    private static final ThreadLocal<long[]> SCRATCH = ThreadLocal.withInitial(() -> new long[2]);
+
+    private final CidrTrie trustedProxies;
+
+    /**
+     * @throws IllegalArgumentException if a trusted proxy block is not a valid CIDR
+     */
+    public ClientAddressResolver(List<String> trustedProxies) {
+        this.trustedProxies = CidrTrie.compile(trustedProxies);
+    }
+
+    public long resolve(ServerHttpRequest request) {
+        long[] address = SCRATCH.get();
+        if (!peerAddress(request.getRemoteAddress(), address)) {
+            return UNKNOWN;
+        }
+        if (!isTrusted(address)) {
+            return ClientKeys.ofAddress(address);
+        }
+
+        HttpHeaders headers = request.getHeaders();
+        List<String> forwarded = headers.get(X_FORWARDED_FOR);
+        if (forwarded != null && !forwarded.isEmpty()) {
+            return resolveForwarded(forwarded, address);
+        }
+
+        String realIp = headers.getFirst(X_REAL_IP);
+        if (realIp != null) {
+            // Leaves the proxy's own address in place when the value does not parse
+            AddressParser.parse(realIp, 0, realIp.length(), address);
+        }
+        return ClientKeys.ofAddress(address);
+    }
+
+    /**
+     * Textual form of {@link #resolve} for APIs keyed by strings, such as a {@code KeyResolver}.
+     * IPv6 clients come back as their /64 prefix, and {@link ClientKeys#of} maps the text back to
+     * the same key.
+     */
+    public String resolveAddress(ServerHttpRequest request) {
+        long key = resolve(request);
+        if (key == UNKNOWN) {
+            return "unknown";
+        }
+        if (ClientKeys.isIpv4(key)) {
+            return ((key >>> 24) & 0xFF) + "." + ((key >>> 16) & 0xFF) + "." + ((key >>> 8) & 0xFF) + "." + (key & 0xFF);
+        }
+        return Long.toHexString(key >>> 48) + ":" + Long.toHexString((key >>> 32) & 0xFFFF) + ":"
+                + Long.toHexString((key >>> 16) & 0xFFFF) + ":" + Long.toHexString(key & 0xFFFF) + "::";
+    }
+
+    /**
+     * Walks every hop right to left, across repeated header lines from the last one. A hop that
+     * does not parse ends the walk at the nearest trusted hop, since nothing further left can be
+     * attributed to a proxy we trust.
+     */
+    private long resolveForwarded(List<String> forwarded, long[] address) {
+        for (int line = forwarded.size() - 1; line >= 0; line--) {
+            String value = forwarded.get(line);
+            int end = value.length();
+            while (end >= 0) {
+                int comma = lastIndexOf(value, ',', end);
+                if (!AddressParser.parse(value, comma + 1, end, address)) {
+                    return ClientKeys.ofAddress(address);
+                }
+                if (!isTrusted(address)) {
+                    return ClientKeys.ofAddress(address);
+                }
+                end = comma;
+            }
+        }
+        // Every hop was a trusted proxy; the leftmost is as close to the client as we can get
+        return ClientKeys.ofAddress(address);
+    }
+
+    private boolean isTrusted(long[] address) {
+        return !trustedProxies.isEmpty() && trustedProxies.contains(address[0], address[1]);
+    }
+
+    private static boolean peerAddress(InetSocketAddress remote, long[] out) {
+        if (remote == null || remote.getAddress() == null) {
+            return false;
+        }
+        byte[] bytes = remote.getAddress().getAddress();
+        if (bytes.length == 4) {
+            out[0] = 0;
+            out[1] = AddressParser.IPV4_MAPPED_LO | readInt(bytes);
+        } else {
+            out[0] = readLong(bytes, 0);
+            out[1] = readLong(bytes, 8);
+        }
+        return true;
+    }
+
+    private static int lastIndexOf(String value, char c, int end) {
+        for (int i = end - 1; i >= 0; i--) {
+            if (value.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long readInt(byte[] bytes) {
+        long value = 0;
+        for (int i = 0; i < 4; i++) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+}
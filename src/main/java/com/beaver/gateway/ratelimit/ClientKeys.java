@@ -0,0 +1,71 @@
+package com.beaver.gateway.ratelimit;
+
+/**
+ * Encodes client identifiers as 64-bit primitive keys for {@link BucketStore}.
+ * <p>
+ * IPv4 addresses map exactly into a tagged range, IPv6 addresses are keyed by their /64 prefix
+ * (the smallest block a single subscriber is normally assigned, so rotating the interface id
+ * does not mint new buckets), and anything else is hashed.
+ */
+public final class ClientKeys {
+
+    /** Upper bits of an IPv4 key; 0000:ffff::/32 is reserved IPv6 space, so it never collides with a /64 prefix. */
+    static final long IPV4_TAG = 0x0000_FFFF_0000_0000L;
+
+    /** Reserved by {@link BucketStore} to mark an empty slot. */
+    static final long EMPTY = 0L;
+
+    private ClientKeys() {
+    }
+
+    public static long ofIpv4(int address) {
+        return IPV4_TAG | (address & 0xFFFF_FFFFL);
+    }
+
+    public static boolean isIpv4(long key) {
+        return (key >>> 32) == (IPV4_TAG >>> 32);
+    }
+
+    public static long ofIpv6Prefix(long upper64) {
+        return upper64 == EMPTY ? 1L : upper64;
+    }
+
+    /**
+     * Returns the key for an address literal or arbitrary identifier. Literals are read by the same
+     * {@link AddressParser} that reads forwarding headers, so both produce the same key.
+     */
+    public static long of(String clientId) {
+        long[] address = new long[2];
+        if (AddressParser.parse(clientId, 0, clientId.length(), address)) {
+            return ofAddress(address);
+        }
+        return hash(clientId);
+    }
+
+    /** Key of a 128-bit address as {@link AddressParser} produces it. */
+    static long ofAddress(long[] address) {
+        if (AddressParser.isIpv4Mapped(address[0], address[1])) {
+            return ofIpv4((int) address[1]);
+        }
+        return ofIpv6Prefix(address[0]);
+    }
+
+    /**
+     * SplitMix64 finaliser; spreads keys across the table and across the rate-limit hierarchy.
+     */
+    public static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    static long hash(CharSequence value) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001B3L;
+        }
+        hash = mix(hash);
+        // Keep hashed keys out of the IPv4 range and away from the empty marker
+        return (hash >>> 32) == (IPV4_TAG >>> 32) || hash == EMPTY ? hash ^ Long.MIN_VALUE : hash;
+    }
+}
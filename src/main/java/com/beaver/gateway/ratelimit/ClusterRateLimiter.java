@@ -0,0 +1,377 @@
+package com.beaver.gateway.ratelimit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Cluster-wide limiter that leases blocks of tokens from a shared store speaking the Redis
+ * protocol and serves decisions from the local lease.
+ * <p>
+ * The two halves of a bucket are enforced separately. Burst is shaped on each node by the
+ * node-local {@link InMemoryRateLimiter}, which every request must also fit. The sustained rate is
+ * shared: a bucket may hand out {@code refillRate * window} tokens across all replicas per window,
+ * taken with {@code INCRBY} in blocks of at most {@code lease-size}. Windows slide: the previous
+ * window's total still counts for the share of it that overlaps the last {@code window}, so a
+ * client cannot spend two budgets back to back across a boundary. A burst larger than
+ * {@code refillRate * window} is therefore only usable cluster-wide if the window is long enough
+ * to hold it.
+ * <p>
+ * Requests never wait on the store: a lease is fetched on a background thread once the local
+ * balance runs low, and a node's balance carries over from one window to the next. While a lease
+ * is on its way, requests go through on credit and are owed to the lease, so a node overdraws by
+ * at most one block per key before the store has its say. If the store cannot be
+ * reached the limiter falls back to the local limits alone and probes the store until it is back. The same happens, decision by decision, while the lease queue
+ * is full.
+ */
+@Slf4j
+public class ClusterRateLimiter implements GatewayRateLimiter, DisposableBean {
+
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5_000;
+
+    private final InMemoryRateLimiter local;
+    private final RespClient store;
+    private final LeaseTable leases;
+    private final long windowMillis;
+    private final int leaseSize;
+    private final int maxPendingLeases;
+    private final long retryIntervalMillis;
+    private final LongSupplier clock;
+    private final ScheduledExecutorService leaseExecutor;
+
+    private volatile boolean storeAvailable = true;
+    private final AtomicBoolean probeScheduled = new AtomicBoolean();
+    private final LongAdder leaseRequests = new LongAdder();
+    private final LongAdder leaseFailures = new LongAdder();
+    private final LongAdder leaseRejections = new LongAdder();
+    private final AtomicInteger pendingLeases = new AtomicInteger();
+
+    public ClusterRateLimiter(InMemoryRateLimiter local, String host, int port, int timeoutMillis,
+                              long windowMillis, int leaseSize, int maxPendingLeases, long retryIntervalMillis) {
+        this(local, new RespClient(host, port, timeoutMillis), windowMillis, leaseSize, maxPendingLeases,
+                retryIntervalMillis, System::currentTimeMillis);
+    }
+
+    ClusterRateLimiter(InMemoryRateLimiter local, RespClient store, long windowMillis, int leaseSize,
+                       int maxPendingLeases, long retryIntervalMillis, LongSupplier clock) {
+        this.local = local;
+        this.store = store;
+        this.leases = new LeaseTable(local.getBuckets().capacity());
+        this.windowMillis = windowMillis;
+        this.leaseSize = leaseSize;
+        this.maxPendingLeases = maxPendingLeases;
+        this.retryIntervalMillis = retryIntervalMillis;
+        this.clock = clock;
+        this.leaseExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limit-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public RouteLimits limitsFor(String routeId) {
+        return local.limitsFor(routeId);
+    }
+
+    @Override
+    public long tryAcquire(RouteLimits limits, long workspaceKey, long clientKey) {
+        long localDecision = local.tryAcquire(limits, workspaceKey, clientKey);
+        if (!storeAvailable || !RateLimitDecision.isAllowed(localDecision)) {
+            return localDecision;
+        }
+        long decision = tryAcquireShared(limits, workspaceKey, clientKey);
+        if (!RateLimitDecision.isAllowed(decision)) {
+            local.refund(limits, workspaceKey, clientKey);
+            return decision;
+        }
+        return RateLimitDecision.allowed(Math.min(RateLimitDecision.remaining(localDecision),
+                RateLimitDecision.remaining(decision)));
+    }
+
+    private long tryAcquireShared(RouteLimits limits, long workspaceKey, long clientKey) {
+        long nowMillis = clock.getAsLong();
+        long windowIndex = nowMillis / windowMillis;
+        long remaining = Long.MAX_VALUE;
+
+        int clientSlot = -1;
+        if (limits.enforces(RouteLimits.CLIENT)) {
+            long bucketKey = limits.bucketKey(RouteLimits.CLIENT, clientKey);
+            clientSlot = leases.slotFor(bucketKey);
+            long decision = charge(limits, RouteLimits.CLIENT, bucketKey, clientSlot, windowIndex, nowMillis);
+            if (!RateLimitDecision.isAllowed(decision)) {
+                return decision;
+            }
+            remaining = decision;
+        }
+
+        int workspaceSlot = -1;
+        if (workspaceKey != NO_WORKSPACE && limits.enforces(RouteLimits.WORKSPACE)) {
+            long bucketKey = limits.bucketKey(RouteLimits.WORKSPACE, workspaceKey);
+            workspaceSlot = leases.slotFor(bucketKey);
+            long decision = charge(limits, RouteLimits.WORKSPACE, bucketKey, workspaceSlot, windowIndex, nowMillis);
+            if (!RateLimitDecision.isAllowed(decision)) {
+                refund(limits, clientSlot);
+                return decision;
+            }
+            remaining = Math.min(remaining, decision);
+        }
+
+        if (limits.enforces(RouteLimits.GLOBAL)) {
+            long bucketKey = limits.bucketKey(RouteLimits.GLOBAL, 0);
+            long decision = charge(limits, RouteLimits.GLOBAL, bucketKey, leases.slotFor(bucketKey), windowIndex,
+                    nowMillis);
+            if (!RateLimitDecision.isAllowed(decision)) {
+                refund(limits, workspaceSlot);
+                refund(limits, clientSlot);
+                return decision;
+            }
+            remaining = Math.min(remaining, decision);
+        }
+        return RateLimitDecision.allowed(remaining);
+    }
+
+    private long charge(RouteLimits limits, int level, long bucketKey, int slot, long windowIndex, long nowMillis) {
+        // Only compared for equality, so wrapping the index into the lease word is harmless
+        int window = (int) windowIndex;
+        int cost = limits.cost();
+        long limit = windowLimit(limits, level);
+        int block = blockSize(limit, cost);
+
+        while (true) {
+            long word = leases.word(slot);
+            if (LeaseTable.window(word) != window) {
+                // Unspent tokens and debt carry over; only exhaustion belongs to the old window
+                long carried = LeaseTable.pack(window, LeaseTable.flags(word) & LeaseTable.IN_FLIGHT,
+                        LeaseTable.tokens(word));
+                leases.compareAndSet(slot, word, carried);
+                continue;
+            }
+
+            long flags = LeaseTable.flags(word);
+            long tokens = LeaseTable.tokens(word);
+            boolean exhausted = (flags & LeaseTable.EXHAUSTED) != 0;
+            boolean inFlight = (flags & LeaseTable.IN_FLIGHT) != 0;
+            if (exhausted && nowMillis >= leases.retryAt(slot)) {
+                // Enough of the previous window has slid out that the store may have tokens again
+                if (!reserveLease()) {
+                    return RateLimitDecision.allowed(Math.max(0, tokens));
+                }
+                if (leases.compareAndSet(slot, word, LeaseTable.pack(window, LeaseTable.IN_FLIGHT, tokens))) {
+                    scheduleLease(slot, bucketKey, windowIndex, limit, block);
+                } else {
+                    pendingLeases.decrementAndGet();
+                }
+                continue;
+            }
+            if (exhausted && tokens < cost) {
+                return RateLimitDecision.denied(TimeUnit.MILLISECONDS.toNanos(leases.retryAt(slot) - nowMillis));
+            }
+
+            boolean requestLease = !exhausted && !inFlight && tokens - cost < block / 2;
+            if (requestLease && !reserveLease()) {
+                // The lease queue is full: the local bucket, already charged, decides this request
+                return RateLimitDecision.allowed(Math.max(0, tokens));
+            }
+
+            // Short of tokens with a lease on its way, the request is owed to the lease, up to one block
+            boolean overdrawn = tokens - cost < -block;
+            long balance = overdrawn ? tokens : tokens - cost;
+            long update = LeaseTable.pack(window, requestLease ? flags | LeaseTable.IN_FLIGHT : flags, balance);
+            if (leases.compareAndSet(slot, word, update)) {
+                if (requestLease) {
+                    scheduleLease(slot, bucketKey, windowIndex, limit, block);
+                }
+                return overdrawn
+                        ? RateLimitDecision.denied(limits.emissionInterval(level))
+                        : RateLimitDecision.allowed(Math.max(0, balance));
+            }
+            if (requestLease) {
+                pendingLeases.decrementAndGet();
+            }
+        }
+    }
+
+    private void refund(RouteLimits limits, int slot) {
+        if (slot < 0) {
+            return;
+        }
+        while (true) {
+            long word = leases.word(slot);
+            long update = LeaseTable.pack(LeaseTable.window(word), LeaseTable.flags(word),
+                    LeaseTable.tokens(word) + limits.cost());
+            if (leases.compareAndSet(slot, word, update)) {
+                return;
+            }
+        }
+    }
+
+    private long windowLimit(RouteLimits limits, int level) {
+        return Math.max(limits.cost(), limits.refillRate(level) * windowMillis / 1000);
+    }
+
+    private int blockSize(long limit, int cost) {
+        return (int) Math.max(cost, Math.min(leaseSize, limit / 4));
+    }
+
+    /**
+     * Takes one of the {@code max-pending-leases} places in the lease queue. Every new key needs a
+     * lease, so without a bound a spray of addresses would queue store calls faster than the single
+     * lease thread can make them.
+     */
+    private boolean reserveLease() {
+        if (pendingLeases.incrementAndGet() > maxPendingLeases) {
+            pendingLeases.decrementAndGet();
+            leaseRejections.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /** Queues a lease for a place already taken with {@link #reserveLease()}. */
+    private void scheduleLease(int slot, long key, long windowIndex, long limit, int block) {
+        leaseRequests.increment();
+        leaseExecutor.execute(() -> {
+            try {
+                lease(slot, key, windowIndex, limit, block);
+            } finally {
+                pendingLeases.decrementAndGet();
+            }
+        });
+    }
+
+    private void lease(int slot, long key, long windowIndex, long limit, int block) {
+        int window = (int) windowIndex;
+        String keyPrefix = "rl:" + Long.toHexString(key) + ':';
+        String storeKey = keyPrefix + window;
+        long windowEnd = (windowIndex + 1) * windowMillis;
+        long granted = 0;
+        long retryAt = windowEnd;
+        try {
+            long total = store.incrBy(storeKey, block);
+            if (total == block) {
+                store.pexpire(storeKey, windowMillis * 2);
+            }
+            // The previous window counts for the part of it still inside the sliding window
+            long previous = Math.min(limit, store.getCounter(keyPrefix + (window - 1)));
+            long overlap = Math.max(0, windowEnd - clock.getAsLong());
+            long carried = (previous * overlap + windowMillis - 1) / windowMillis;
+            long used = total - block;
+            granted = Math.max(0, Math.min(block, limit - carried - used));
+            if (granted < block) {
+                // Hand back the part not granted, so the count stays what was actually leased
+                store.incrBy(storeKey, granted - block);
+                long room = limit - used - granted - block;
+                if (room >= 0 && previous > 0) {
+                    // Retry once the previous window has slid out far enough to free another block
+                    retryAt = windowEnd - room * windowMillis / previous;
+                }
+            }
+        } catch (IOException ex) {
+            leaseFailures.increment();
+            markStoreUnavailable(ex);
+        }
+        credit(slot, key, window, granted, granted < block, retryAt);
+    }
+
+    /**
+     * Adds a lease to the slot. Tokens granted for a window that has since ended are still credited,
+     * since the slot carries its balance over, but they no longer mark the new window exhausted.
+     */
+    private void credit(int slot, long key, int window, long granted, boolean exhausted, long retryAt) {
+        if (exhausted) {
+            leases.retryAt(slot, retryAt);
+        }
+        while (leases.holds(slot, key)) {
+            long word = leases.word(slot);
+            long flags = LeaseTable.flags(word) & ~LeaseTable.IN_FLIGHT;
+            if (exhausted && storeAvailable && LeaseTable.window(word) == window) {
+                flags |= LeaseTable.EXHAUSTED;
+            }
+            long update = LeaseTable.pack(LeaseTable.window(word), flags, LeaseTable.tokens(word) + granted);
+            if (leases.compareAndSet(slot, word, update)) {
+                return;
+            }
+        }
+    }
+
+    private void markStoreUnavailable(IOException ex) {
+        if (storeAvailable) {
+            log.warn("Rate-limit store unreachable, falling back to local limits: {}", ex.getMessage());
+        }
+        storeAvailable = false;
+        if (probeScheduled.compareAndSet(false, true)) {
+            leaseExecutor.schedule(this::probeStore, retryIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void probeStore() {
+        try {
+            store.ping();
+            probeScheduled.set(false);
+            storeAvailable = true;
+            log.info("Rate-limit store reachable again, resuming cluster limits");
+        } catch (IOException ex) {
+            leaseExecutor.schedule(this::probeStore, retryIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean isStoreAvailable() {
+        return storeAvailable;
+    }
+
+    public long leaseRequests() {
+        return leaseRequests.sum();
+    }
+
+    public long leaseFailures() {
+        return leaseFailures.sum();
+    }
+
+    /** Leases not requested because the queue was full; those decisions fell back to the local limits. */
+    public long leaseRejections() {
+        return leaseRejections.sum();
+    }
+
+    /** Leases queued or being fetched. */
+    int pendingLeases() {
+        return pendingLeases.get();
+    }
+
+    public BucketStore getBuckets() {
+        return local.getBuckets();
+    }
+
+    @Override
+    public Map<String, Object> getConfig() {
+        return Map.of(
+            "windowMillis", windowMillis,
+            "leaseSize", leaseSize,
+            "maxPendingLeases", maxPendingLeases,
+            "storeAvailable", storeAvailable
+        );
+    }
+
+    /**
+     * Stops the lease thread before closing the store connection, which is not thread-safe. A lease
+     * still talking to the store ends within the store timeout.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        leaseExecutor.shutdownNow();
+        if (leaseExecutor.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            store.close();
+        } else {
+            log.warn("Lease thread still busy after {}ms; leaving the store connection to it", SHUTDOWN_TIMEOUT_MILLIS);
+        }
+    }
+}
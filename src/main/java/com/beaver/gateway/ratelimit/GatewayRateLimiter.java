@@ -0,0 +1,43 @@
+package com.beaver.gateway.ratelimit;
+
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Route-aware limiter used by the gateway's rate-limit filter. The Spring Cloud Gateway
+ * {@link RateLimiter} contract is kept so implementations also work with {@code RequestRateLimiter}.
+ */
+public interface GatewayRateLimiter extends RateLimiter<Object> {
+
+    /** Workspace key for requests without a verified workspace; skips the workspace level. */
+    long NO_WORKSPACE = ClientKeys.EMPTY;
+
+    RouteLimits limitsFor(String routeId);
+
+    /**
+     * Charges the route's cost to every enforced level, or to none of them.
+     *
+     * @return a {@link RateLimitDecision}; when allowed it carries the smallest remaining balance
+     */
+    long tryAcquire(RouteLimits limits, long workspaceKey, long clientKey);
+
+    @Override
+    default Mono<Response> isAllowed(String routeId, String id) {
+        long decision = tryAcquire(limitsFor(routeId), NO_WORKSPACE, ClientKeys.of(id));
+        return Mono.just(new Response(RateLimitDecision.isAllowed(decision), RateLimitDecision.isAllowed(decision)
+                ? Map.of()
+                : Map.of("X-RateLimit-Retry-After-Seconds", Long.toString(RateLimitDecision.retryAfterSeconds(decision)))));
+    }
+
+    @Override
+    default Class<Object> getConfigClass() {
+        return Object.class;
+    }
+
+    @Override
+    default Object newConfig() {
+        return new Object();
+    }
+}
@@ -0,0 +1,121 @@
+package com.beaver.gateway.ratelimit;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Hierarchical in-memory limiter: a request must fit the client, workspace and global buckets of
+ * its route. Levels are charged in one pass from most to least specific and earlier charges are
+ * refunded if a later level rejects, so no lock spans the levels.
+ * <p>
+ * Limits come from a {@link RouteLimitTable} supplier, read once per decision, so a table swapped
+ * in by a config refresh applies from the next request on.
+ */
+public class InMemoryRateLimiter implements GatewayRateLimiter {
+
+    private final BucketStore buckets;
+    private final Supplier<RouteLimitTable> limits;
+
+    public InMemoryRateLimiter(BucketStore buckets, RouteLimits defaultLimits, Map<String, RouteLimits> routeLimits) {
+        RouteLimitTable table = new RouteLimitTable(defaultLimits, routeLimits);
+        this.buckets = buckets;
+        this.limits = () -> table;
+    }
+
+    public InMemoryRateLimiter(BucketStore buckets, Supplier<RouteLimitTable> limits) {
+        this.buckets = buckets;
+        this.limits = limits;
+    }
+
+    @Override
+    public RouteLimits limitsFor(String routeId) {
+        return limits.get().limitsFor(routeId);
+    }
+
+    public RouteLimits preAuthLimits() {
+        return limits.get().preAuthLimits();
+    }
+
+    @Override
+    public long tryAcquire(RouteLimits limits, long workspaceKey, long clientKey) {
+        return tryAcquire(limits, workspaceKey, clientKey, System.nanoTime());
+    }
+
+    long tryAcquire(RouteLimits limits, long workspaceKey, long clientKey, long nowNanos) {
+        long remaining = Long.MAX_VALUE;
+
+        int clientSlot = -1;
+        if (limits.enforces(RouteLimits.CLIENT)) {
+            clientSlot = buckets.slotFor(limits.bucketKey(RouteLimits.CLIENT, clientKey), nowNanos);
+            long decision = charge(limits, RouteLimits.CLIENT, clientSlot, nowNanos);
+            if (!RateLimitDecision.isAllowed(decision)) {
+                return decision;
+            }
+            remaining = decision;
+        }
+
+        int workspaceSlot = -1;
+        if (workspaceKey != NO_WORKSPACE && limits.enforces(RouteLimits.WORKSPACE)) {
+            workspaceSlot = buckets.slotFor(limits.bucketKey(RouteLimits.WORKSPACE, workspaceKey), nowNanos);
+            long decision = charge(limits, RouteLimits.WORKSPACE, workspaceSlot, nowNanos);
+            if (!RateLimitDecision.isAllowed(decision)) {
+                refund(limits, RouteLimits.CLIENT, clientSlot);
+                return decision;
+            }
+            remaining = Math.min(remaining, decision);
+        }
+
+        if (limits.enforces(RouteLimits.GLOBAL)) {
+            int globalSlot = buckets.slotFor(limits.bucketKey(RouteLimits.GLOBAL, 0), nowNanos);
+            long decision = charge(limits, RouteLimits.GLOBAL, globalSlot, nowNanos);
+            if (!RateLimitDecision.isAllowed(decision)) {
+                refund(limits, RouteLimits.WORKSPACE, workspaceSlot);
+                refund(limits, RouteLimits.CLIENT, clientSlot);
+                return decision;
+            }
+            remaining = Math.min(remaining, decision);
+        }
+        return RateLimitDecision.allowed(remaining);
+    }
+
+    /**
+     * Gives back the tokens of a request that {@link #tryAcquire} allowed but a later check turned
+     * away, as {@link ClusterRateLimiter} does when the shared budget is spent.
+     */
+    void refund(RouteLimits limits, long workspaceKey, long clientKey) {
+        long nowNanos = System.nanoTime();
+        if (limits.enforces(RouteLimits.CLIENT)) {
+            refund(limits, RouteLimits.CLIENT, buckets.slotFor(limits.bucketKey(RouteLimits.CLIENT, clientKey), nowNanos));
+        }
+        if (workspaceKey != NO_WORKSPACE && limits.enforces(RouteLimits.WORKSPACE)) {
+            refund(limits, RouteLimits.WORKSPACE,
+                    buckets.slotFor(limits.bucketKey(RouteLimits.WORKSPACE, workspaceKey), nowNanos));
+        }
+        if (limits.enforces(RouteLimits.GLOBAL)) {
+            refund(limits, RouteLimits.GLOBAL, buckets.slotFor(limits.bucketKey(RouteLimits.GLOBAL, 0), nowNanos));
+        }
+    }
+
+    private long charge(RouteLimits limits, int level, int slot, long nowNanos) {
+        return buckets.tryConsume(slot, limits.increment(level), limits.tolerance(level),
+                limits.emissionInterval(level), nowNanos);
+    }
+
+    private void refund(RouteLimits limits, int level, int slot) {
+        if (slot >= 0) {
+            buckets.refund(slot, limits.increment(level));
+        }
+    }
+
+    public BucketStore getBuckets() {
+        return buckets;
+    }
+
+    @Override
+    public Map<String, Object> getConfig() {
+        return Map.of(
+            "routes", limits.get().routeIds(),
+            "maxBuckets", buckets.capacity()
+        );
+    }
+}
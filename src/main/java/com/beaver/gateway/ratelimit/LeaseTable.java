@@ -0,0 +1,79 @@
+package com.beaver.gateway.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Direct-mapped table of locally held quota leases, one word per bucket key:
+ * {@code [window:32][in-flight:1][exhausted:1][tokens:30]}, tokens signed so the overdraft taken
+ * while a lease is on its way can be represented and a zero word is an empty lease. Beside each
+ * word sits the time an exhausted lease may next be retried.
+ * <p>
+ * A colliding key simply takes the slot over. Tokens leased for the displaced key are forfeited,
+ * and when it comes back it starts with an empty lease and may overdraw by one block again.
+ */
+final class LeaseTable {
+
+    static final long IN_FLIGHT = 1L << 31;
+    static final long EXHAUSTED = 1L << 30;
+
+    private static final long TOKEN_MASK = (1L << 30) - 1;
+
+    private final int mask;
+    private final AtomicLongArray keys;
+    private final AtomicLongArray words;
+    private final AtomicLongArray retryAt;
+
+    LeaseTable(int maxLeases) {
+        int capacity = Integer.highestOneBit(Math.max(2, maxLeases) - 1) << 1;
+        this.mask = capacity - 1;
+        this.keys = new AtomicLongArray(capacity);
+        this.words = new AtomicLongArray(capacity);
+        this.retryAt = new AtomicLongArray(capacity);
+    }
+
+    int slotFor(long key) {
+        int slot = (int) ClientKeys.mix(key) & mask;
+        long current = keys.get(slot);
+        if (current != key && keys.compareAndSet(slot, current, key)) {
+            words.set(slot, 0);
+        }
+        return slot;
+    }
+
+    boolean holds(int slot, long key) {
+        return keys.get(slot) == key;
+    }
+
+    long word(int slot) {
+        return words.get(slot);
+    }
+
+    /** Epoch millis after which an exhausted lease may ask the store again. */
+    long retryAt(int slot) {
+        return retryAt.get(slot);
+    }
+
+    void retryAt(int slot, long epochMillis) {
+        retryAt.set(slot, epochMillis);
+    }
+
+    boolean compareAndSet(int slot, long expected, long update) {
+        return words.compareAndSet(slot, expected, update);
+    }
+
+    static long pack(int window, long flags, long tokens) {
+        return ((long) window << 32) | flags | (tokens & TOKEN_MASK);
+    }
+
+    static int window(long word) {
+        return (int) (word >>> 32);
+    }
+
+    static long flags(long word) {
+        return word & (IN_FLIGHT | EXHAUSTED);
+    }
+
+    static long tokens(long word) {
+        return (word << 34) >> 34;
+    }
+}
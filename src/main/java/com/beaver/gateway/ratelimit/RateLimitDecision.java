@@ -0,0 +1,40 @@
+package com.beaver.gateway.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A rate-limit decision packed into a single {@code long} so the hot path never allocates:
+ * non-negative values are allowed decisions carrying the remaining tokens, negative values are
+ * rejections carrying the exact wait in nanoseconds.
+ */
+public final class RateLimitDecision {
+
+    private RateLimitDecision() {
+    }
+
+    public static long allowed(long remaining) {
+        return Math.max(0, remaining);
+    }
+
+    public static long denied(long retryAfterNanos) {
+        return -Math.max(1, retryAfterNanos);
+    }
+
+    public static boolean isAllowed(long decision) {
+        return decision >= 0;
+    }
+
+    public static long remaining(long decision) {
+        return isAllowed(decision) ? decision : 0;
+    }
+
+    public static long retryAfterNanos(long decision) {
+        return isAllowed(decision) ? 0 : -decision;
+    }
+
+    /** Retry-After in whole seconds, rounded up so clients never retry too early. */
+    public static long retryAfterSeconds(long decision) {
+        long nanos = retryAfterNanos(decision);
+        return (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,153 @@
+package com.beaver.gateway.ratelimit;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal blocking client for the Redis serialization protocol (RESP2), covering only the
+ * commands quota leasing needs. Not thread-safe: it is owned by the lease thread of
+ * {@link ClusterRateLimiter} and never used on a request thread.
+ */
+class RespClient implements Closeable {
+
+    private final String host;
+    private final int port;
+    private final int timeoutMillis;
+
+    private Socket socket;
+    private InputStream in;
+    private OutputStream out;
+
+    RespClient(String host, int port, int timeoutMillis) {
+        this.host = host;
+        this.port = port;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    long incrBy(String key, long amount) throws IOException {
+        return integerReply(command("INCRBY", key, Long.toString(amount)));
+    }
+
+    /** The counter at {@code key}, or 0 if it does not exist. */
+    long getCounter(String key) throws IOException {
+        Object reply = command("GET", key);
+        if (reply == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong((String) reply);
+        } catch (NumberFormatException ex) {
+            throw new IOException("Expected a counter at " + key + " but got: " + reply);
+        }
+    }
+
+    boolean pexpire(String key, long millis) throws IOException {
+        return integerReply(command("PEXPIRE", key, Long.toString(millis))) == 1;
+    }
+
+    void ping() throws IOException {
+        command("PING");
+    }
+
+    private Object command(String... args) throws IOException {
+        try {
+            connect();
+            write(args);
+            return read();
+        } catch (IOException ex) {
+            close();
+            throw ex;
+        }
+    }
+
+    private void connect() throws IOException {
+        if (socket != null) {
+            return;
+        }
+        Socket connection = new Socket();
+        connection.setTcpNoDelay(true);
+        connection.setSoTimeout(timeoutMillis);
+        connection.connect(new InetSocketAddress(host, port), timeoutMillis);
+        socket = connection;
+        in = new BufferedInputStream(connection.getInputStream());
+        out = new BufferedOutputStream(connection.getOutputStream());
+    }
+
+    private void write(String... args) throws IOException {
+        out.write(('*' + Integer.toString(args.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        for (String arg : args) {
+            byte[] bytes = arg.getBytes(StandardCharsets.UTF_8);
+            out.write(('$' + Integer.toString(bytes.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(bytes);
+            out.write('\r');
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    private Object read() throws IOException {
+        int type = in.read();
+        String line = readLine();
+        switch (type) {
+            case '+':
+                return line;
+            case '-':
+                throw new IOException("Store replied with error: " + line);
+            case ':':
+                return Long.parseLong(line);
+            case '$': {
+                int length = Integer.parseInt(line);
+                if (length < 0) {
+                    return null;
+                }
+                byte[] bytes = in.readNBytes(length + 2);
+                return new String(bytes, 0, length, StandardCharsets.UTF_8);
+            }
+            case -1:
+                throw new IOException("Connection closed by store");
+            default:
+                throw new IOException("Unsupported reply type: " + (char) type);
+        }
+    }
+
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\r') {
+            if (c == -1) {
+                throw new IOException("Connection closed by store");
+            }
+            line.append((char) c);
+        }
+        in.read();
+        return line.toString();
+    }
+
+    private static long integerReply(Object reply) throws IOException {
+        if (reply instanceof Long value) {
+            return value;
+        }
+        throw new IOException("Expected integer reply but got: " + reply);
+    }
+
+    @Override
+    public void close() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Already broken; nothing left to release
+            }
+        }
+        socket = null;
+        in = null;
+        out = null;
+    }
+}
@@ -0,0 +1,58 @@
+package com.beaver.gateway.ratelimit;
+
+import com.beaver.gateway.config.RateLimitProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Every route's compiled {@link RouteLimits}, plus the pre-auth limit, immutable so a new table can
+ * replace the old one in a single write when the limits are reconfigured. Buckets are keyed by
+ * route id, not by table, so clients keep their balances across a swap.
+ */
+public final class RouteLimitTable {
+
+    /** Route id the pre-auth limit is compiled under; it keys buckets apart from every real route. */
+    public static final String PRE_AUTH = "pre-auth";
+
+    private static final RouteLimits NO_PRE_AUTH = RouteLimits.compile(PRE_AUTH, new RateLimitProperties.RouteLimit());
+
+    private final RouteLimits defaultLimits;
+    private final Map<String, RouteLimits> routeLimits;
+    private final RouteLimits preAuthLimits;
+
+    public RouteLimitTable(RouteLimits defaultLimits, Map<String, RouteLimits> routeLimits) {
+        this(defaultLimits, routeLimits, NO_PRE_AUTH);
+    }
+
+    public RouteLimitTable(RouteLimits defaultLimits, Map<String, RouteLimits> routeLimits, RouteLimits preAuthLimits) {
+        this.defaultLimits = defaultLimits;
+        this.routeLimits = Map.copyOf(routeLimits);
+        this.preAuthLimits = preAuthLimits;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a level has a capacity but no refill rate
+     */
+    public static RouteLimitTable compile(RateLimitProperties properties) {
+        Map<String, RouteLimits> routeLimits = new HashMap<>();
+        properties.getRoutes().forEach((routeId, limit) -> routeLimits.put(routeId, RouteLimits.compile(routeId, limit)));
+        return new RouteLimitTable(RouteLimits.compile("default", properties.getDefaultRoute()), routeLimits,
+                RouteLimits.compile(PRE_AUTH, RateLimitProperties.RouteLimit.clientOnly(properties.getPreAuth())));
+    }
+
+    public RouteLimits limitsFor(String routeId) {
+        RouteLimits limits = routeId != null ? routeLimits.get(routeId) : null;
+        return limits != null ? limits : defaultLimits;
+    }
+
+    /** The per-address limit applied before routing; enforces no level when turned off. */
+    public RouteLimits preAuthLimits() {
+        return preAuthLimits;
+    }
+
+    public Set<String> routeIds() {
+        return routeLimits.keySet();
+    }
+}
@@ -0,0 +1,101 @@
+package com.beaver.gateway.ratelimit;
+
+import com.beaver.gateway.config.RateLimitProperties;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits of one route compiled from {@link RateLimitProperties} into flat arrays indexed by level,
+ * so a decision does not touch the property objects or allocate. Capacities and refill rates are
+ * pre-converted into the GCRA emission interval and burst tolerance used by {@link BucketStore}.
+ */
+public final class RouteLimits {
+
+    public static final int CLIENT = 0;
+    public static final int WORKSPACE = 1;
+    public static final int GLOBAL = 2;
+
+    static final int LEVELS = 3;
+
+    private static final long[] LEVEL_SEEDS = {0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L};
+
+    private final String routeId;
+    private final int cost;
+    private final long seed;
+    private final int[] capacity = new int[LEVELS];
+    private final int[] refillRate = new int[LEVELS];
+    private final long[] emissionInterval = new long[LEVELS];
+    private final long[] tolerance = new long[LEVELS];
+    private final long[] increment = new long[LEVELS];
+
+    private RouteLimits(String routeId, int cost) {
+        this.routeId = routeId;
+        this.cost = cost;
+        this.seed = ClientKeys.hash(routeId);
+    }
+
+    public static RouteLimits compile(String routeId, RateLimitProperties.RouteLimit limit) {
+        RouteLimits limits = new RouteLimits(routeId, Math.max(1, limit.getCost()));
+        limits.set(CLIENT, limit.getClient());
+        limits.set(WORKSPACE, limit.getWorkspace());
+        limits.set(GLOBAL, limit.getGlobal());
+        return limits;
+    }
+
+    private void set(int level, RateLimitProperties.Bucket bucket) {
+        if (bucket == null || bucket.getCapacity() <= 0) {
+            return;
+        }
+        if (bucket.getRefillRate() <= 0) {
+            throw new IllegalArgumentException("refill-rate must be positive for route " + routeId);
+        }
+        capacity[level] = bucket.getCapacity();
+        refillRate[level] = bucket.getRefillRate();
+        emissionInterval[level] = Math.max(1, TimeUnit.SECONDS.toNanos(1) / bucket.getRefillRate());
+        tolerance[level] = emissionInterval[level] * bucket.getCapacity();
+        increment[level] = emissionInterval[level] * cost;
+    }
+
+    public String routeId() {
+        return routeId;
+    }
+
+    public int cost() {
+        return cost;
+    }
+
+    public boolean enforces(int level) {
+        return capacity[level] > 0;
+    }
+
+    public int capacity(int level) {
+        return capacity[level];
+    }
+
+    public int refillRate(int level) {
+        return refillRate[level];
+    }
+
+    /** Nanoseconds between two tokens. */
+    public long emissionInterval(int level) {
+        return emissionInterval[level];
+    }
+
+    /** How far ahead of now a bucket's TAT may run; {@code capacity} intervals. */
+    public long tolerance(int level) {
+        return tolerance[level];
+    }
+
+    /** TAT advance for one request; {@code cost} intervals. */
+    public long increment(int level) {
+        return increment[level];
+    }
+
+    /**
+     * Key of the bucket for {@code key} at {@code level} of this route; the global level ignores {@code key}.
+     */
+    public long bucketKey(int level, long key) {
+        long scoped = ClientKeys.mix(seed ^ LEVEL_SEEDS[level] ^ (level == GLOBAL ? 0 : ClientKeys.mix(key)));
+        return scoped == ClientKeys.EMPTY ? 1L : scoped;
+    }
+}
@@ -0,0 +1,81 @@
+package com.beaver.gateway.auth;
+
+import com.beaver.auth.jwt.JwtService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class JwtClaimsCacheTest {
+
+    private JwtService jwtService;
+    private JwtClaimsCache cache;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = mock(JwtService.class);
+        when(jwtService.extractUserId(anyString())).thenReturn(Mono.just("user-1"));
+        when(jwtService.extractWorkspaceId(anyString())).thenReturn(Mono.just("ws-1"));
+        when(jwtService.extractRole(anyString())).thenReturn(Mono.just("OWNER"));
+        cache = new JwtClaimsCache(jwtService, new ObjectMapper(), 100, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void cacheHitSkipsVerificationAndExtraction() {
+        String token = token(System.currentTimeMillis() / 1000 + 600);
+        when(jwtService.isValidAccessToken(token)).thenReturn(Mono.just(true));
+
+        StepVerifier.create(cache.verify(token))
+                .assertNext(claims -> assertEquals("ws-1", claims.workspaceId()))
+                .verifyComplete();
+        StepVerifier.create(cache.verify(token))
+                .assertNext(claims -> assertEquals("user-1", claims.userId()))
+                .verifyComplete();
+
+        verify(jwtService, times(1)).isValidAccessToken(token);
+        verify(jwtService, times(1)).extractUserId(token);
+        assertEquals(1, cache.stats().hitCount());
+        assertEquals(1, cache.stats().missCount());
+    }
+
+    @Test
+    void invalidTokensAreNotCached() {
+        String token = token(System.currentTimeMillis() / 1000 + 600);
+        when(jwtService.isValidAccessToken(token)).thenReturn(Mono.just(false));
+
+        StepVerifier.create(cache.verify(token)).verifyComplete();
+        StepVerifier.create(cache.verify(token)).verifyComplete();
+
+        verify(jwtService, times(2)).isValidAccessToken(token);
+        verify(jwtService, never()).extractUserId(anyString());
+    }
+
+    @Test
+    void entryNeverOutlivesTokenExpiry() {
+        long exp = System.currentTimeMillis() / 1000 + 60;
+        String token = token(exp);
+        when(jwtService.isValidAccessToken(token)).thenReturn(Mono.just(true));
+
+        VerifiedClaims claims = cache.verify(token).block();
+
+        assertNotNull(claims);
+        assertEquals(exp * 1000, claims.expiresAtMillis());
+    }
+
+    private static String token(long expSeconds) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String header = encoder.encodeToString("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.UTF_8));
+        String payload = encoder.encodeToString(("{\"sub\":\"user-1\",\"exp\":" + expSeconds + "}")
+                .getBytes(StandardCharsets.UTF_8));
+        return header + "." + payload + ".signature";
+    }
+}
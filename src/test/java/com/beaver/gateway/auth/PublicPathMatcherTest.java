@@ -0,0 +1,77 @@
+package com.beaver.gateway.auth;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PublicPathMatcherTest {
+
+    private final PublicPathMatcher matcher = PublicPathMatcher.compile(
+            List.of("/identity/auth/**", "/auth/**"), List.of("/identity/*/health", "/identity/docs", "/identity/users/"));
+
+    @Test
+    void matchesLiteralWildcardAndSubtreePatterns() {
+        assertTrue(matcher.matches("/identity/auth"));
+        assertTrue(matcher.matches("/identity/auth/"));
+        assertTrue(matcher.matches("/identity/auth/login"));
+        assertTrue(matcher.matches("/auth/refresh/token"));
+        assertTrue(matcher.matches("/identity/v2/health"));
+        assertTrue(matcher.matches("/identity/docs"));
+        assertTrue(matcher.matches("/identity/users/"));
+
+        assertFalse(matcher.matches("/identity/authx"));
+        assertFalse(matcher.matches("/identity/users/me"));
+        assertFalse(matcher.matches("/identity/users"));
+        assertFalse(matcher.matches("/identity/docs/private"));
+        assertFalse(matcher.matches("/identity//health"));
+        assertFalse(matcher.matches("/identity/a/b/health"));
+        assertFalse(matcher.matches("/"));
+    }
+
+    @Test
+    void nonCanonicalPathsAreNeverPublic() {
+        assertFalse(matcher.matches("/identity/auth/../users/me"));
+        assertFalse(matcher.matches("/identity/auth/..;/users/me"));
+        assertFalse(matcher.matches("/identity/auth/%2e%2e/users/me"));
+        assertFalse(matcher.matches("/identity/auth/%2F..%2Fusers"));
+        assertFalse(matcher.matches("/identity/auth/..%3B/users/me"));
+        assertFalse(matcher.matches("/identity/auth/./login"));
+        assertFalse(matcher.matches("/identity/auth//login"));
+        assertFalse(matcher.matches("/identity/auth/login;jsessionid=1"));
+        assertTrue(matcher.matches("/identity/auth/verify/a%40b.test"));
+    }
+
+    @Test
+    void wildcardBacktracksToLiteralBranch() {
+        PublicPathMatcher overlapping = PublicPathMatcher.compile(List.of("/a/b/c", "/a/*/d"));
+
+        assertTrue(overlapping.matches("/a/b/c"));
+        assertTrue(overlapping.matches("/a/b/d"));
+        assertTrue(overlapping.matches("/a/x/d"));
+        assertFalse(overlapping.matches("/a/x/c"));
+    }
+
+    @Test
+    void hundredsOfPatternsStillMatchExactly() {
+        List<String> patterns = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            patterns.add("/service-" + i + "/public/**");
+        }
+        PublicPathMatcher large = PublicPathMatcher.compile(patterns);
+
+        assertTrue(large.matches("/service-499/public/assets/app.js"));
+        assertFalse(large.matches("/service-500/public/assets/app.js"));
+        assertFalse(large.matches("/service-49/private"));
+    }
+
+    @Test
+    void rejectsUnsupportedPatterns() {
+        assertThrows(IllegalArgumentException.class, () -> PublicPathMatcher.compile(List.of("identity/**")));
+        assertThrows(IllegalArgumentException.class, () -> PublicPathMatcher.compile(List.of("/a/**/b")));
+        assertThrows(IllegalArgumentException.class, () -> PublicPathMatcher.compile(List.of("/a/b*")));
+        assertTrue(PublicPathMatcher.compile(List.of()).isEmpty());
+    }
+}
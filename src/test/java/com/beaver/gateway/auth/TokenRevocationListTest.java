@@ -0,0 +1,99 @@
+package com.beaver.gateway.auth;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HexFormat;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenRevocationListTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void loadsSnapshotAndTailsDeltaLog() throws Exception {
+        long future = System.currentTimeMillis() / 1000 + 3600;
+        long past = System.currentTimeMillis() / 1000 - 60;
+        Path snapshot = Files.writeString(dir.resolve("revoked.snapshot"),
+                "# revoked tokens\n" + hex("a") + " " + future + "\n" + hex("expired") + " " + past + "\nnot-a-digest\n");
+        Path deltas = Files.writeString(dir.resolve("revoked.log"), hex("b") + "\n" + hex("partial"));
+
+        try (Revocations revocations = new Revocations(snapshot, deltas)) {
+            TokenRevocationList list = revocations.list;
+            assertTrue(list.isRevoked(TokenDigest.of("a")));
+            assertTrue(list.isRevoked(TokenDigest.of("b")));
+            assertFalse(list.isRevoked(TokenDigest.of("expired")));
+            // An unterminated line is still being written and waits for the next pass
+            assertFalse(list.isRevoked(TokenDigest.of("partial")));
+            assertFalse(list.isRevoked(TokenDigest.of("c")));
+
+            Files.writeString(deltas, "\n" + hex("c") + " " + future + "\n", StandardOpenOption.APPEND);
+            list.refresh();
+            assertTrue(list.isRevoked(TokenDigest.of("partial")));
+            assertTrue(list.isRevoked(TokenDigest.of("c")));
+            assertEquals(4, list.size());
+
+            // A new snapshot replaces the old one; the delta log is replayed on top
+            Files.writeString(snapshot, hex("d") + "\n");
+            Files.setLastModifiedTime(snapshot, FileTime.fromMillis(System.currentTimeMillis() + 5_000));
+            list.refresh();
+            assertFalse(list.isRevoked(TokenDigest.of("a")));
+            assertTrue(list.isRevoked(TokenDigest.of("b")));
+            assertTrue(list.isRevoked(TokenDigest.of("d")));
+        }
+    }
+
+    @Test
+    void bloomFilterRejectsMostUnrevokedTokensWithoutTheExactSet() throws Exception {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            lines.append(hex("revoked-" + i)).append('\n');
+        }
+        Path snapshot = Files.writeString(dir.resolve("revoked.snapshot"), lines);
+        TokenRevocationList list = new TokenRevocationList(snapshot.toString(), "", 10_000, Duration.ofHours(1));
+        list.destroy();
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(list.isRevoked(TokenDigest.of("revoked-" + i)));
+            assertFalse(list.isRevoked(TokenDigest.of("live-" + i)));
+        }
+        // Sized for ~1% false positives at capacity
+        assertTrue(list.bloomFalsePositives() < 300, "false positives: " + list.bloomFalsePositives());
+    }
+
+    @Test
+    void parsesPublishedHexDigests() {
+        assertEquals(TokenDigest.of("token"), TokenDigest.fromHex(hex("token")));
+        assertEquals(TokenDigest.of("token"), TokenDigest.fromHex(hex("token").toUpperCase()));
+        assertThrows(IllegalArgumentException.class, () -> TokenDigest.fromHex("abc"));
+        assertThrows(IllegalArgumentException.class, () -> TokenDigest.fromHex("z".repeat(64)));
+    }
+
+    private static String hex(String token) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(token.getBytes(UTF_8)));
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private record Revocations(TokenRevocationList list) implements AutoCloseable {
+        Revocations(Path snapshot, Path deltas) {
+            this(new TokenRevocationList(snapshot.toString(), deltas.toString(), 1_024, Duration.ofHours(1)));
+        }
+
+        @Override
+        public void close() {
+            list.destroy();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.beaver.gateway.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long BASE_RTT = TimeUnit.MILLISECONDS.toNanos(5);
+
+    @Test
+    void keepsAShareOfTheLimitForPriorityRequests() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10);
+
+        for (int i = 0; i < 8; i++) {
+            assertNotEquals(AdaptiveConcurrencyLimiter.REJECTED, limiter.tryAcquire(false));
+        }
+        assertEquals(AdaptiveConcurrencyLimiter.REJECTED, limiter.tryAcquire(false));
+        assertEquals(9, limiter.tryAcquire(true));
+        assertEquals(10, limiter.tryAcquire(true));
+        assertEquals(AdaptiveConcurrencyLimiter.REJECTED, limiter.tryAcquire(true));
+
+        limiter.release();
+        assertEquals(10, limiter.tryAcquire(true));
+        assertEquals(1, limiter.rejected(false));
+        assertEquals(1, limiter.rejected(true));
+    }
+
+    @Test
+    void settlesNearDownstreamCapacityAndFollowsItDown() {
+        AdaptiveConcurrencyLimiter limiter = limiter(20);
+
+        drive(limiter, 40, 500);
+        assertTrue(limiter.limit() >= 40 && limiter.limit() <= 80, "limit " + limiter.limit());
+
+        // Brownout: the downstream now only serves 10 requests at a time before queueing
+        drive(limiter, 10, 500);
+        assertTrue(limiter.limit() <= 25, "limit " + limiter.limit());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void pinsTheLimitToItsMinimumToRemeasureNoLoadLatency() {
+        AdaptiveConcurrencyLimiter limiter =
+                new AdaptiveConcurrencyLimiter("identity", 20, 4, 1000, 0.5, Duration.ZERO, 0.2);
+
+        drive(limiter, 40, 1);
+        assertEquals(4, limiter.limit());
+
+        // Ten samples admitted under the pin complete the probe and restore the limit
+        drive(limiter, 40, 3);
+        assertTrue(limiter.limit() >= 20, "limit " + limiter.limit());
+    }
+
+    @Test
+    void failuresShrinkTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = limiter(100);
+
+        for (int i = 0; i < 1_000; i++) {
+            limiter.tryAcquire(false);
+            limiter.releaseDropped();
+        }
+
+        assertTrue(limiter.limit() < 50, "limit " + limiter.limit());
+    }
+
+    @Test
+    void doesNotGrowWhenTheLimitIsNotInUse() {
+        AdaptiveConcurrencyLimiter limiter = limiter(20);
+
+        for (int i = 0; i < 300; i++) {
+            limiter.release(BASE_RTT, limiter.tryAcquire(false));
+        }
+
+        assertEquals(20, limiter.limit());
+    }
+
+    private static AdaptiveConcurrencyLimiter limiter(int initialLimit) {
+        return new AdaptiveConcurrencyLimiter("identity", initialLimit, 4, 1000, 0.5, Duration.ofSeconds(30), 0.2);
+    }
+
+    /**
+     * Runs rounds that fill the limit against a downstream that answers {@code capacity} requests
+     * in {@link #BASE_RTT} and queues the rest, so latency rises with anything over capacity.
+     */
+    private static void drive(AdaptiveConcurrencyLimiter limiter, int capacity, int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            int admitted = 0;
+            while (limiter.tryAcquire(true) != AdaptiveConcurrencyLimiter.REJECTED) {
+                admitted++;
+            }
+            long rtt = BASE_RTT * Math.max(capacity, admitted) / capacity;
+            for (int i = 0; i < admitted; i++) {
+                limiter.release(rtt, admitted);
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.beaver.gateway.concurrency;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FairQueueTest {
+
+    @Test
+    void sharesFreedSlotsBetweenWorkspacesByWeight() {
+        FairQueue queue = queue(2, Map.of("bulk", 2), 16, Duration.ofSeconds(10));
+        fill(queue);
+
+        List<String> admitted = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            queue.await("bulk").subscribe(inFlight -> admitted.add("bulk"));
+        }
+        for (int i = 0; i < 3; i++) {
+            queue.await("small").subscribe(inFlight -> admitted.add("small"));
+        }
+        assertEquals(9, queue.waiting());
+
+        for (int i = 0; i < 9; i++) {
+            releaseOne(queue);
+        }
+
+        // Bulk arrived first and sent twice as much, but only ever gets its two slots per round
+        assertEquals(List.of("bulk", "bulk", "small", "bulk", "bulk", "small", "bulk", "bulk", "small"), admitted);
+        assertEquals(0, queue.waiting());
+        assertEquals(2, queue.limiter().inFlight());
+    }
+
+    @Test
+    void newRequestsQueueBehindWaitersInsteadOfTakingFreedSlots() {
+        FairQueue queue = queue(2, Map.of(), 16, Duration.ofSeconds(10));
+        fill(queue);
+        List<String> admitted = new ArrayList<>();
+        queue.await("a").subscribe(inFlight -> admitted.add("a"));
+
+        assertTrue(queue.hasWaiters());
+        releaseOne(queue);
+        assertEquals(List.of("a"), admitted);
+        assertFalse(queue.hasWaiters());
+    }
+
+    @Test
+    void shedsOnceAWorkspaceQueueIsFull() {
+        FairQueue queue = queue(1, Map.of(), 2, Duration.ofSeconds(10));
+        fill(queue);
+        queue.await("noisy").subscribe();
+        queue.await("noisy").subscribe();
+
+        StepVerifier.create(queue.await("noisy"))
+                .expectNext(AdaptiveConcurrencyLimiter.REJECTED)
+                .verifyComplete();
+        queue.await("quiet").subscribe();
+        assertEquals(3, queue.waiting());
+        assertEquals(1, queue.full());
+    }
+
+    @Test
+    void shedsAfterMaxWaitAndGivesUpThePlace() {
+        FairQueue queue = queue(1, Map.of(), 16, Duration.ofMillis(50));
+        fill(queue);
+
+        StepVerifier.create(queue.await("a"))
+                .expectNext(AdaptiveConcurrencyLimiter.REJECTED)
+                .verifyComplete();
+        assertEquals(0, queue.waiting());
+        assertEquals(1, queue.timedOut());
+
+        releaseOne(queue);
+        assertEquals(0, queue.limiter().inFlight());
+    }
+
+    @Test
+    void cancelledWaiterLeavesTheQueue() {
+        FairQueue queue = queue(1, Map.of(), 16, Duration.ofSeconds(10));
+        fill(queue);
+        Disposable waiter = queue.await("a").subscribe();
+        List<String> admitted = new ArrayList<>();
+        queue.await("b").subscribe(inFlight -> admitted.add("b"));
+
+        waiter.dispose();
+        assertEquals(1, queue.waiting());
+        releaseOne(queue);
+        assertEquals(List.of("b"), admitted);
+        assertEquals(1, queue.limiter().inFlight());
+    }
+
+    private static FairQueue queue(int limit, Map<String, Integer> weights, int maxPerFlow, Duration maxWait) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", limit, limit, limit, 0.5,
+                Duration.ofMinutes(5), 0);
+        return new FairQueue(limiter, weights, 1, maxPerFlow, 1024, maxWait);
+    }
+
+    private static void fill(FairQueue queue) {
+        while (queue.limiter().tryAcquire(false) != AdaptiveConcurrencyLimiter.REJECTED) {
+            // take every slot
+        }
+    }
+
+    private static void releaseOne(FairQueue queue) {
+        queue.limiter().release();
+        queue.dispatch();
+    }
+}
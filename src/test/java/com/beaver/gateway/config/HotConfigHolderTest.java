@@ -0,0 +1,70 @@
+package com.beaver.gateway.config;
+
+import com.beaver.gateway.ratelimit.RouteLimits;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotConfigHolderTest {
+
+    private final MockEnvironment environment = new MockEnvironment()
+            .withProperty("jwt.authDisabled", "false")
+            .withProperty("gateway.secret", "secret-1")
+            .withProperty("gateway.auth.public-paths", "/identity/auth/**, /health")
+            .withProperty("gateway.rate-limit.routes.identity.client.capacity", "10")
+            .withProperty("gateway.rate-limit.routes.identity.client.refill-rate", "5");
+
+    @Test
+    void bindsTheSnapshotFromTheEnvironment() {
+        HotConfig hot = new HotConfigHolder(environment).current();
+
+        assertFalse(hot.authDisabled());
+        assertEquals("secret-1", hot.gatewaySecret());
+        assertEquals(List.of("/identity/auth/**", "/health"), hot.publicPaths());
+        assertEquals(10, hot.rateLimits().limitsFor("identity").capacity(RouteLimits.CLIENT));
+        assertEquals("default", hot.rateLimits().limitsFor("other").routeId());
+        assertFalse(hot.toString().contains("secret-1"));
+    }
+
+    @Test
+    void refreshSwapsInANewSnapshotAndLeavesTheOldOneAsItWas() {
+        HotConfigHolder holder = new HotConfigHolder(environment);
+        HotConfig inFlight = holder.current();
+
+        environment.setProperty("jwt.authDisabled", "true");
+        environment.setProperty("gateway.secret", "secret-2");
+        environment.setProperty("gateway.rate-limit.routes.identity.client.capacity", "20");
+        holder.refresh();
+
+        HotConfig refreshed = holder.current();
+        assertTrue(refreshed.authDisabled());
+        assertEquals("secret-2", refreshed.gatewaySecret());
+        assertEquals(20, refreshed.rateLimits().limitsFor("identity").capacity(RouteLimits.CLIENT));
+        assertFalse(inFlight.authDisabled());
+        assertEquals("secret-1", inFlight.gatewaySecret());
+        assertEquals(10, inFlight.rateLimits().limitsFor("identity").capacity(RouteLimits.CLIENT));
+    }
+
+    @Test
+    void invalidRefreshKeepsThePreviousSnapshot() {
+        HotConfigHolder holder = new HotConfigHolder(environment);
+        HotConfig before = holder.current();
+
+        environment.setProperty("gateway.rate-limit.routes.identity.client.refill-rate", "0");
+        holder.refresh();
+        assertSame(before, holder.current());
+
+        environment.setProperty("gateway.rate-limit.routes.identity.client.refill-rate", "5");
+        environment.setProperty("gateway.auth.public-paths", "identity/**");
+        holder.refresh();
+        assertSame(before, holder.current());
+    }
+
+    @Test
+    void startupFailsWithoutAGatewaySecret() {
+        assertThrows(IllegalStateException.class, () -> new HotConfigHolder(new MockEnvironment()));
+    }
+}
@@ -0,0 +1,59 @@
+package com.beaver.gateway.downstream;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RollingQuantileTest {
+
+    @Test
+    void estimatesTheQuantileWithinABucket() {
+        RollingQuantile p95 = new RollingQuantile(0.95, TimeUnit.MINUTES.toNanos(1), 0);
+        for (int millis = 1; millis <= 100; millis++) {
+            p95.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        long estimate = p95.valueNanos(100);
+        assertTrue(estimate >= TimeUnit.MILLISECONDS.toNanos(95) && estimate <= TimeUnit.MILLISECONDS.toNanos(105),
+                "p95 " + estimate);
+    }
+
+    @Test
+    void unknownUntilThereAreEnoughSamples() {
+        RollingQuantile p95 = new RollingQuantile(0.95, TimeUnit.MINUTES.toNanos(1), 0);
+        for (int i = 0; i < 9; i++) {
+            p95.record(TimeUnit.MILLISECONDS.toNanos(5));
+        }
+        assertEquals(-1, p95.valueNanos(10));
+
+        p95.record(TimeUnit.MILLISECONDS.toNanos(5));
+        assertTrue(p95.valueNanos(10) > 0);
+    }
+
+    @Test
+    void followsTheDownstreamOnceOldWindowsRollOff() {
+        RollingQuantile p95 = new RollingQuantile(0.95, 0, 0);
+        for (int i = 0; i < 100; i++) {
+            p95.record(TimeUnit.SECONDS.toNanos(2));
+        }
+        p95.valueNanos(1);
+        for (int i = 0; i < 100; i++) {
+            p95.record(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+
+        long estimate = p95.valueNanos(1);
+        assertTrue(estimate > 0 && estimate < TimeUnit.MILLISECONDS.toNanos(12), "p95 " + estimate);
+    }
+
+    @Test
+    void bucketsCoverTheRange() {
+        assertEquals(0, RollingQuantile.bucket(1));
+        assertEquals(RollingQuantile.BUCKETS - 1, RollingQuantile.bucket(TimeUnit.HOURS.toNanos(1)));
+        for (long nanos = 200_000; nanos < TimeUnit.SECONDS.toNanos(30); nanos *= 3) {
+            int bucket = RollingQuantile.bucket(nanos);
+            assertTrue(nanos <= RollingQuantile.upperBound(bucket) && nanos > RollingQuantile.upperBound(bucket - 1));
+        }
+    }
+}
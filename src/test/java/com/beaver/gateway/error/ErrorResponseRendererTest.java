@@ -0,0 +1,49 @@
+package com.beaver.gateway.error;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ErrorResponseRendererTest {
+
+    private final ErrorResponseRenderer renderer = new ErrorResponseRenderer();
+
+    @Test
+    void splicesTimestampAndPathIntoCachedTemplate() throws Exception {
+        ErrorResponseRenderer.Template template =
+                renderer.template(HttpStatus.UNAUTHORIZED, "Unauthorized", "Access token is required");
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/identity/users/me"));
+
+        renderer.write(exchange, template).block();
+
+        String body = exchange.getResponse().getBodyAsString().block();
+        JsonNode json = new ObjectMapper().readTree(body);
+        assertEquals(HttpStatus.UNAUTHORIZED, exchange.getResponse().getStatusCode());
+        assertEquals(body.length(), exchange.getResponse().getHeaders().getContentLength());
+        assertEquals(401, json.get("status").asInt());
+        assertEquals("Unauthorized", json.get("error").asText());
+        assertEquals("Access token is required", json.get("message").asText());
+        assertEquals("/identity/users/me", json.get("path").asText());
+        assertTrue(json.get("timestamp").asText().endsWith("Z"));
+        assertSame(template, renderer.template(HttpStatus.UNAUTHORIZED, "Unauthorized", "Access token is required"));
+    }
+
+    @Test
+    void escapesMessagesAndUnusualPaths() throws Exception {
+        ErrorResponseRenderer.Template template =
+                renderer.template(HttpStatus.BAD_REQUEST, "Bad \"Request\"", "line\nbreak");
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/café/\"quoted\""));
+
+        renderer.write(exchange, template).block();
+
+        JsonNode json = new ObjectMapper().readTree(exchange.getResponse().getBodyAsString().block());
+        assertEquals("Bad \"Request\"", json.get("error").asText());
+        assertEquals("line\nbreak", json.get("message").asText());
+        assertEquals(exchange.getRequest().getPath().value(), json.get("path").asText());
+    }
+}
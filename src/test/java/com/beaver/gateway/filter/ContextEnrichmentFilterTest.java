@@ -0,0 +1,70 @@
+package com.beaver.gateway.filter;
+
+import com.beaver.gateway.auth.VerifiedClaims;
+import com.beaver.gateway.config.HotConfigHolder;
+import com.beaver.gateway.metrics.GatewayMetrics;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContextEnrichmentFilterTest {
+
+    private final MockEnvironment environment = new MockEnvironment().withProperty("gateway.secret", "secret");
+    private final HotConfigHolder hotConfig = new HotConfigHolder(environment);
+    private final GatewayFilter filter = new ContextEnrichmentFilter(hotConfig, new GatewayMetrics())
+            .apply(new ContextEnrichmentFilter.Config());
+
+    @Test
+    void addsAllContextHeadersFromVerifiedClaims() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/identity/users/me"));
+        exchange.getAttributes().put(AuthenticationFilter.VERIFIED_CLAIMS_ATTR,
+                new VerifiedClaims("user-1", "ws-1", "OWNER", Long.MAX_VALUE));
+
+        HttpHeaders headers = forwardedHeaders(exchange);
+
+        assertEquals("user-1", headers.getFirst("X-User-Id"));
+        assertEquals("ws-1", headers.getFirst("X-Workspace-Id"));
+        assertEquals("OWNER", headers.getFirst("X-User-Role"));
+        assertEquals("secret", headers.getFirst("X-Gateway-Secret"));
+    }
+
+    @Test
+    void dropsClientSuppliedIdentityHeadersWithoutClaims() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/identity/auth/login")
+                .header("X-User-Id", "spoofed")
+                .header("X-Workspace-Id", "spoofed"));
+
+        HttpHeaders headers = forwardedHeaders(exchange);
+
+        assertNull(headers.getFirst("X-User-Id"));
+        assertNull(headers.getFirst("X-Workspace-Id"));
+        assertEquals("secret", headers.getFirst("X-Gateway-Secret"));
+    }
+
+    @Test
+    void sendsTheGatewaySecretFromTheLatestRefresh() {
+        environment.setProperty("gateway.secret", "rotated");
+        hotConfig.refresh();
+
+        HttpHeaders headers = forwardedHeaders(MockServerWebExchange.from(MockServerHttpRequest.get("/identity/users/me")));
+
+        assertEquals("rotated", headers.getFirst("X-Gateway-Secret"));
+    }
+
+    private HttpHeaders forwardedHeaders(MockServerWebExchange exchange) {
+        AtomicReference<HttpHeaders> forwarded = new AtomicReference<>();
+        filter.filter(exchange, modified -> {
+            forwarded.set(modified.getRequest().getHeaders());
+            return Mono.empty();
+        }).block();
+        return forwarded.get();
+    }
+}
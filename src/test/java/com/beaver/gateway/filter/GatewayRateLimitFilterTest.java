@@ -0,0 +1,63 @@
+package com.beaver.gateway.filter;
+
+import com.beaver.gateway.config.RateLimitProperties;
+import com.beaver.gateway.error.ErrorResponseRenderer;
+import com.beaver.gateway.metrics.GatewayMetrics;
+import com.beaver.gateway.ratelimit.BucketStore;
+import com.beaver.gateway.ratelimit.ClientAddressResolver;
+import com.beaver.gateway.ratelimit.InMemoryRateLimiter;
+import com.beaver.gateway.ratelimit.RouteLimits;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GatewayRateLimitFilterTest {
+
+    @Test
+    void rejectsOverLimitRequestsWithPreSerializedBody() {
+        RateLimitProperties.RouteLimit limit = new RateLimitProperties.RouteLimit();
+        limit.setClient(new RateLimitProperties.Bucket(1, 1));
+        GatewayMetrics metrics = new GatewayMetrics();
+        GatewayRateLimitFilter filter = new GatewayRateLimitFilter(new InMemoryRateLimiter(
+                new BucketStore(1_024, TimeUnit.MINUTES.toNanos(2)), RouteLimits.compile("default", limit), Map.of()),
+                new ClientAddressResolver(List.of("10.0.0.0/8")), new ErrorResponseRenderer(), metrics);
+        AtomicInteger forwarded = new AtomicInteger();
+
+        MockServerWebExchange first = exchange();
+        filter.filter(first, exchange -> {
+            forwarded.incrementAndGet();
+            return Mono.empty();
+        }).block();
+
+        MockServerWebExchange second = exchange();
+        filter.filter(second, exchange -> {
+            forwarded.incrementAndGet();
+            return Mono.empty();
+        }).block();
+
+        assertEquals(1, forwarded.get());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, second.getResponse().getStatusCode());
+        assertEquals("1", second.getResponse().getHeaders().getFirst("Retry-After"));
+        assertEquals("0", second.getResponse().getHeaders().getFirst("X-RateLimit-Remaining"));
+        assertTrue(second.getResponse().getBodyAsString().block().contains("\"status\":429"));
+        assertEquals(1, metrics.rateLimitDecisions(GatewayMetrics.KeyClass.IPV4, true));
+        assertEquals(1, metrics.rateLimitDecisions(GatewayMetrics.KeyClass.IPV4, false));
+        assertEquals(2, metrics.filterLatency(GatewayMetrics.RATE_LIMIT, null).count());
+    }
+
+    private static MockServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/identity/users/me")
+                .remoteAddress(new InetSocketAddress("10.0.0.2", 443))
+                .header("X-Real-IP", "203.0.113.7"));
+    }
+}
@@ -0,0 +1,129 @@
+package com.beaver.gateway.filter;
+
+import com.beaver.gateway.config.DownstreamProperties;
+import com.beaver.gateway.metrics.GatewayMetrics;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgingFilterTest {
+
+    private static final Duration FAST = Duration.ofMillis(2);
+
+    private final GatewayMetrics metrics = new GatewayMetrics();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger cancelled = new AtomicInteger();
+
+    @Test
+    void slowRequestIsHedgedAndTheFirstResponseWins() throws Exception {
+        HedgingFilter filter = warmedUp(1.0);
+
+        MockServerWebExchange exchange = exchange();
+        long start = System.nanoTime();
+        filter.filter(exchange, downstream(List.of(Duration.ofSeconds(2), FAST), null)).block(Duration.ofSeconds(5));
+
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(1).toNanos());
+        assertEquals(2, calls.get());
+        assertEquals(1, cancelled.get());
+        assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+        assertEquals("2", exchange.getResponse().getHeaders().getFirst("X-Attempt"));
+        assertEquals(2, exchange.<Integer>getAttribute("attempt"));
+        assertEquals(1, metrics.hedgingOutcomes(GatewayMetrics.HedgingOutcome.HEDGE_WON));
+    }
+
+    @Test
+    void fastRequestIsNotHedged() throws Exception {
+        HedgingFilter filter = warmedUp(1.0);
+
+        MockServerWebExchange exchange = exchange();
+        filter.filter(exchange, downstream(List.of(FAST), null)).block(Duration.ofSeconds(5));
+
+        assertEquals(1, calls.get());
+        assertEquals("1", exchange.getResponse().getHeaders().getFirst("X-Attempt"));
+        assertEquals(0, metrics.hedgingOutcomes(GatewayMetrics.HedgingOutcome.HEDGED));
+    }
+
+    @Test
+    void failedHedgeLeavesThePrimaryToAnswer() throws Exception {
+        HedgingFilter filter = warmedUp(1.0);
+
+        MockServerWebExchange exchange = exchange();
+        filter.filter(exchange, downstream(List.of(Duration.ofMillis(200), FAST), 2)).block(Duration.ofSeconds(5));
+
+        assertEquals(2, calls.get());
+        assertEquals("1", exchange.getResponse().getHeaders().getFirst("X-Attempt"));
+        assertEquals(0, metrics.hedgingOutcomes(GatewayMetrics.HedgingOutcome.HEDGE_WON));
+    }
+
+    @Test
+    void noHedgeWithoutBudget() throws Exception {
+        HedgingFilter filter = warmedUp(0);
+
+        MockServerWebExchange exchange = exchange();
+        filter.filter(exchange, downstream(List.of(Duration.ofMillis(200)), null)).block(Duration.ofSeconds(5));
+
+        assertEquals(1, calls.get());
+        assertEquals("1", exchange.getResponse().getHeaders().getFirst("X-Attempt"));
+        assertEquals(1, metrics.hedgingOutcomes(GatewayMetrics.HedgingOutcome.BUDGET_EXHAUSTED));
+    }
+
+    /** A filter that has seen enough fast responses to hedge after its minimum delay. */
+    private HedgingFilter warmedUp(double budgetRatio) throws InterruptedException {
+        DownstreamProperties.Hedging hedging = new DownstreamProperties.Hedging();
+        hedging.setEnabled(true);
+        hedging.setMinSamples(10);
+        hedging.setMinDelay(Duration.ofMillis(20));
+        hedging.setBudgetRatio(budgetRatio);
+        DownstreamProperties.RouteSettings settings = new DownstreamProperties.RouteSettings();
+        settings.setHedging(hedging);
+        DownstreamProperties properties = new DownstreamProperties();
+        properties.getRoutes().put("identity", settings);
+        HedgingFilter filter = new HedgingFilter(properties, metrics);
+
+        for (int i = 0; i < 20; i++) {
+            filter.filter(exchange(), downstream(List.of(FAST), null)).block(Duration.ofSeconds(5));
+        }
+        // The learned delay is refreshed at most once a second
+        Thread.sleep(1_100);
+        calls.set(0);
+        return filter;
+    }
+
+    private static MockServerWebExchange exchange() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/identity/users/me"));
+        Route route = Route.async().id("identity").uri(URI.create("http://identity")).predicate(e -> true).build();
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR, URI.create("http://identity/users/me"));
+        return exchange;
+    }
+
+    /** Stands in for the routing filter: the n-th call answers after {@code latencies[n]}, or fails if it is {@code failing}. */
+    private GatewayFilterChain downstream(List<Duration> latencies, Integer failing) {
+        return exchange -> {
+            int attempt = calls.incrementAndGet();
+            Duration latency = latencies.get(Math.min(attempt, latencies.size()) - 1);
+            if (failing != null && failing == attempt) {
+                return Mono.delay(latency).then(Mono.error(new IllegalStateException("Connection refused")));
+            }
+            return Mono.delay(latency)
+                    .doOnCancel(cancelled::incrementAndGet)
+                    .then(Mono.fromRunnable(() -> {
+                        exchange.getResponse().setStatusCode(HttpStatus.OK);
+                        exchange.getResponse().getHeaders().set("X-Attempt", Integer.toString(attempt));
+                        exchange.getAttributes().put("attempt", attempt);
+                    }));
+        };
+    }
+}
@@ -0,0 +1,68 @@
+package com.beaver.gateway.filter;
+
+import com.beaver.gateway.metrics.GatewayMetrics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs a flood of forged tokens through the whole gateway: AuthenticationFilter refuses each one
+ * before the route's rate limit is reached, so only the pre-auth stage can turn them into 429s.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.cloud.gateway.routes[0].id=identity",
+        "spring.cloud.gateway.routes[0].uri=http://127.0.0.1:9",
+        "spring.cloud.gateway.routes[0].predicates[0]=Path=/identity/**",
+        "spring.cloud.gateway.routes[0].filters[0]=AuthenticationFilter",
+        "gateway.rate-limit.pre-auth.capacity=3",
+        "gateway.rate-limit.pre-auth.refill-rate=1"
+})
+class PreAuthRateLimitFilterTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private GatewayMetrics metrics;
+
+    @Test
+    void floodOfRejectedTokensIsRateLimited() {
+        List<Integer> statuses = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            statuses.add(client.get().uri("/identity/users/me")
+                    .cookie("access_token", "forged." + i + ".token")
+                    .exchange()
+                    .returnResult(Void.class)
+                    .getStatus().value());
+        }
+
+        assertEquals(List.of(401, 401, 401), statuses.subList(0, 3));
+        // The bucket refills one token a second, so a slow run may let one more through to authentication
+        long tooMany = statuses.stream().filter(status -> status == HttpStatus.TOO_MANY_REQUESTS.value()).count();
+        assertTrue(tooMany >= 6, statuses::toString);
+        assertTrue(statuses.stream().allMatch(status -> status == 401 || status == 429), statuses::toString);
+        assertEquals(0, metrics.rateLimitDecisions(GatewayMetrics.KeyClass.IPV4, false));
+    }
+
+    @Test
+    void requestsMatchingNoRouteAreRateLimitedToo() {
+        client = client.mutate().defaultHeader("X-Real-IP", "203.0.113.9").build();
+        long rejectedBefore = metrics.preAuthRejections();
+        int tooMany = 0;
+        for (int i = 0; i < 10; i++) {
+            if (client.get().uri("/no-such-route").exchange().returnResult(Void.class).getStatus()
+                    .value() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+                tooMany++;
+            }
+        }
+        assertTrue(tooMany >= 6, "429s: " + tooMany);
+        assertEquals(tooMany, metrics.preAuthRejections() - rejectedBefore);
+    }
+}
@@ -0,0 +1,220 @@
+package com.beaver.gateway.filter;
+
+import com.beaver.gateway.metrics.GatewayMetrics;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestCoalescingFilterTest {
+
+    private final GatewayMetrics metrics = new GatewayMetrics();
+    private final RequestCoalescingFilter factory =
+            new RequestCoalescingFilter(metrics, DataSize.ofBytes(64), Duration.ofSeconds(5));
+    private final AtomicInteger downstreamCalls = new AtomicInteger();
+    private final Sinks.Empty<Void> release = Sinks.empty();
+
+    @Test
+    void identicalInFlightRequestsShareOneDownstreamCall() throws Exception {
+        GatewayFilterChain downstream = downstream("dashboard");
+
+        MockServerWebExchange leader = exchange("user-1");
+        MockServerWebExchange follower = exchange("user-1");
+        MockServerWebExchange otherUser = exchange("user-2");
+        CompletableFuture<Void> leading = filter(leader, downstream);
+        CompletableFuture<Void> following = filter(follower, downstream);
+        CompletableFuture<Void> separate = filter(otherUser, downstream);
+
+        release.tryEmitEmpty();
+        CompletableFuture.allOf(leading, following, separate).get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, downstreamCalls.get());
+        assertEquals(HttpStatus.OK, follower.getResponse().getStatusCode());
+        assertEquals("dashboard", follower.getResponse().getBodyAsString().block());
+        assertEquals("application/json", follower.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_TYPE));
+        assertEquals(1, metrics.coalescingOutcomes(GatewayMetrics.CoalescingOutcome.SHARED));
+        assertEquals(0, factory.inFlight());
+    }
+
+    @Test
+    void waitersCallDownstreamThemselvesWhenTheResponseIsNotShareable() throws Exception {
+        GatewayFilterChain downstream = downstream("x".repeat(128));
+
+        CompletableFuture<Void> leading = filter(exchange("user-1"), downstream);
+        MockServerWebExchange follower = exchange("user-1");
+        CompletableFuture<Void> following = filter(follower, downstream);
+
+        release.tryEmitEmpty();
+        CompletableFuture.allOf(leading, following).get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, downstreamCalls.get());
+        assertEquals(128, follower.getResponse().getBodyAsString().block().length());
+        assertEquals(1, metrics.coalescingOutcomes(GatewayMetrics.CoalescingOutcome.FALLBACK));
+    }
+
+    @Test
+    void errorResponsesAreNotShared() throws Exception {
+        GatewayFilterChain downstream = downstream(HttpStatus.SERVICE_UNAVAILABLE, "unavailable");
+
+        CompletableFuture<Void> leading = filter(exchange("user-1"), downstream);
+        MockServerWebExchange follower = exchange("user-1");
+        CompletableFuture<Void> following = filter(follower, downstream);
+
+        release.tryEmitEmpty();
+        CompletableFuture.allOf(leading, following).get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, downstreamCalls.get());
+        assertEquals(1, metrics.coalescingOutcomes(GatewayMetrics.CoalescingOutcome.FALLBACK));
+        assertEquals(0, metrics.coalescingOutcomes(GatewayMetrics.CoalescingOutcome.SHARED));
+    }
+
+    @Test
+    void leadersRateLimitHeadersAreNotShared() throws Exception {
+        GatewayFilterChain downstream = downstream("dashboard");
+
+        MockServerWebExchange leader = exchange("user-1");
+        leader.getResponse().getHeaders().set("X-RateLimit-Remaining", "3");
+        leader.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+        CompletableFuture<Void> leading = filter(leader, downstream);
+        MockServerWebExchange follower = exchange("user-1");
+        CompletableFuture<Void> following = filter(follower, downstream);
+
+        release.tryEmitEmpty();
+        CompletableFuture.allOf(leading, following).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, downstreamCalls.get());
+        HttpHeaders shared = follower.getResponse().getHeaders();
+        assertEquals("application/json", shared.getFirst(HttpHeaders.CONTENT_TYPE));
+        assertFalse(shared.containsKey("X-RateLimit-Remaining"));
+        assertFalse(shared.containsKey(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    void waitersGiveUpAfterTheMaximumWait() throws Exception {
+        RequestCoalescingFilter impatient = new RequestCoalescingFilter(metrics, DataSize.ofKilobytes(1), Duration.ofMillis(50));
+        GatewayFilterChain downstream = downstream("slow");
+
+        CompletableFuture<Void> leading = impatient.apply(new RequestCoalescingFilter.Config())
+                .filter(exchange("user-1"), downstream).toFuture();
+        MockServerWebExchange follower = exchange("user-1");
+        CompletableFuture<Void> following = impatient.apply(new RequestCoalescingFilter.Config())
+                .filter(follower, exchange -> {
+                    downstreamCalls.incrementAndGet();
+                    return exchange.getResponse().setComplete();
+                }).toFuture();
+
+        following.get(5, TimeUnit.SECONDS);
+        assertFalse(leading.isDone());
+        assertEquals(2, downstreamCalls.get());
+        release.tryEmitEmpty();
+        leading.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void conditionalRequestsAreNeverCoalesced() throws Exception {
+        GatewayFilterChain downstream = downstream("profile");
+        CompletableFuture<Void> first = filter(exchange("user-1"), downstream);
+        CompletableFuture<Void> conditional = filter(MockServerWebExchange.from(MockServerHttpRequest.get("/identity/workspaces")
+                .header(ContextEnrichmentFilter.USER_ID_HEADER, "user-1")
+                .ifNoneMatch("\"v1\"")), downstream);
+
+        release.tryEmitEmpty();
+        CompletableFuture.allOf(first, conditional).get(5, TimeUnit.SECONDS);
+        assertEquals(2, downstreamCalls.get());
+    }
+
+    @Test
+    void waitersAreChargedToTheRateLimit() throws Exception {
+        // The leader is allowed and every later caller is over its limit
+        AtomicInteger charged = new AtomicInteger();
+        GlobalFilter rateLimit = new OrderedFilter(GatewayRateLimitFilter.ORDER, (exchange, chain) -> {
+            if (charged.incrementAndGet() > 1) {
+                exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+                return exchange.getResponse().setComplete();
+            }
+            return chain.filter(exchange);
+        });
+        GatewayFilterChain downstream = downstream("dashboard");
+        FilteringWebHandler handler = new FilteringWebHandler(List.of(rateLimit,
+                new OrderedFilter(Ordered.LOWEST_PRECEDENCE, (exchange, chain) -> downstream.filter(exchange))));
+        // Listed fourth, as on beaver-identity; the route locator orders unordered filters by position
+        GatewayFilter filter = factory.apply(new RequestCoalescingFilter.Config());
+        GatewayFilter listed = filter instanceof Ordered ? filter : new OrderedGatewayFilter(filter, 4);
+        Route route = Route.async().id("beaver-identity").uri("http://127.0.0.1:9")
+                .predicate(exchange -> true).filter(listed).build();
+
+        MockServerWebExchange leader = exchange("user-1");
+        leader.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+        CompletableFuture<Void> leading = handler.handle(leader).toFuture();
+        MockServerWebExchange follower = exchange("user-1");
+        follower.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+        handler.handle(follower).block(Duration.ofSeconds(5));
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, follower.getResponse().getStatusCode());
+        release.tryEmitEmpty();
+        leading.get(5, TimeUnit.SECONDS);
+        assertEquals(1, downstreamCalls.get());
+        assertEquals(0, metrics.coalescingOutcomes(GatewayMetrics.CoalescingOutcome.SHARED));
+    }
+
+    private CompletableFuture<Void> filter(MockServerWebExchange exchange, GatewayFilterChain downstream) {
+        return factory.apply(new RequestCoalescingFilter.Config()).filter(exchange, downstream).toFuture();
+    }
+
+    private static MockServerWebExchange exchange(String userId) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/identity/workspaces")
+                .header(ContextEnrichmentFilter.USER_ID_HEADER, userId)
+                .header(ContextEnrichmentFilter.WORKSPACE_ID_HEADER, "ws-1"));
+    }
+
+    private GatewayFilterChain downstream(String body) {
+        return downstream(HttpStatus.OK, body);
+    }
+
+    private GatewayFilterChain downstream(HttpStatus status, String body) {
+        return exchange -> {
+            downstreamCalls.incrementAndGet();
+            return release.asMono().then(Mono.defer(() -> {
+                exchange.getResponse().setStatusCode(status);
+                exchange.getResponse().getHeaders().set(HttpHeaders.CONTENT_TYPE, "application/json");
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap(bytes)));
+            }));
+        };
+    }
+
+    private record OrderedFilter(int order, GlobalFilter delegate) implements GlobalFilter, Ordered {
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+            return delegate.filter(exchange, chain);
+        }
+
+        @Override
+        public int getOrder() {
+            return order;
+        }
+    }
+}
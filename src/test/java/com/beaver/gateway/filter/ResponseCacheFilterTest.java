@@ -0,0 +1,179 @@
+package com.beaver.gateway.filter;
+
+import com.beaver.gateway.cache.ResponseCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheFilterTest {
+
+    private final ResponseCache cache = new ResponseCache(1 << 20, 1 << 10, Duration.ofMinutes(10), true);
+    private final GatewayFilter filter = newFilter();
+    private final List<HttpHeaders> downstreamRequests = new ArrayList<>();
+
+    @Test
+    void servesFreshResponsesPerUserWithoutCallingDownstream() {
+        GatewayFilterChain downstream = respond(HttpStatus.OK, "max-age=60", "\"v1\"", "profile of user-1");
+
+        assertEquals("profile of user-1", exchange("user-1", downstream).getBodyAsString().block());
+        MockServerHttpResponse hit = exchange("user-1", downstream);
+        assertEquals("profile of user-1", hit.getBodyAsString().block());
+        assertEquals("\"v1\"", hit.getHeaders().getETag());
+        assertEquals(1, downstreamRequests.size());
+
+        // Another user never sees the first user's entry
+        exchange("user-2", downstream);
+        assertEquals(2, downstreamRequests.size());
+        assertEquals(1, cache.hits());
+    }
+
+    @Test
+    void answersMatchingIfNoneMatchWithNotModified() {
+        GatewayFilterChain downstream = respond(HttpStatus.OK, "max-age=60", "\"v1\"", "profile");
+        exchange("user-1", downstream);
+
+        MockServerWebExchange exchange = MockServerWebExchange.from(request("user-1").ifNoneMatch("\"v1\""));
+        filter.filter(exchange, downstream).block();
+
+        assertEquals(HttpStatus.NOT_MODIFIED, exchange.getResponse().getStatusCode());
+        assertEquals(1, downstreamRequests.size());
+    }
+
+    @Test
+    void revalidatesNoCacheEntriesWithTheirETag() {
+        exchange("user-1", respond(HttpStatus.OK, "no-cache", "\"v1\"", "profile"));
+
+        MockServerHttpResponse revalidated = exchange("user-1", respond(HttpStatus.NOT_MODIFIED, "no-cache", "\"v1\"", ""));
+
+        assertEquals("\"v1\"", downstreamRequests.get(1).getFirst(HttpHeaders.IF_NONE_MATCH));
+        assertEquals(HttpStatus.OK, revalidated.getStatusCode());
+        assertEquals("profile", revalidated.getBodyAsString().block());
+        assertEquals(1, cache.revalidations());
+    }
+
+    @Test
+    void storesNothingTheResponseForbids() {
+        GatewayFilterChain noStore = respond(HttpStatus.OK, "no-store", null, "secret");
+        exchange("user-1", noStore);
+        exchange("user-1", noStore);
+
+        GatewayFilterChain tooLarge = respond(HttpStatus.OK, "max-age=60", null, "x".repeat(2048));
+        exchange("user-1", tooLarge);
+        exchange("user-1", tooLarge);
+
+        assertEquals(4, downstreamRequests.size());
+        assertEquals(0, cache.stores());
+    }
+
+    @Test
+    void unsafeRequestsInvalidateThePath() {
+        GatewayFilterChain downstream = respond(HttpStatus.OK, "max-age=60", null, "profile");
+        exchange("user-1", downstream);
+
+        MockServerWebExchange update = MockServerWebExchange.from(MockServerHttpRequest.put("/identity/users/me")
+                .header(ContextEnrichmentFilter.USER_ID_HEADER, "user-1")
+                .header(ContextEnrichmentFilter.WORKSPACE_ID_HEADER, "ws-1"));
+        filter.filter(update, respond(HttpStatus.OK, null, null, "")).block();
+        exchange("user-1", downstream);
+
+        assertEquals(3, downstreamRequests.size());
+    }
+
+    @Test
+    void cacheHitsAreChargedToTheRateLimit() {
+        AtomicBoolean limited = new AtomicBoolean();
+        GlobalFilter rateLimit = new OrderedFilter(GatewayRateLimitFilter.ORDER, (exchange, chain) -> {
+            if (limited.get()) {
+                exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+                return exchange.getResponse().setComplete();
+            }
+            return chain.filter(exchange);
+        });
+        GatewayFilterChain downstream = respond(HttpStatus.OK, "max-age=60", "\"v1\"", "profile");
+        FilteringWebHandler handler = new FilteringWebHandler(List.of(rateLimit,
+                new OrderedFilter(Ordered.LOWEST_PRECEDENCE, (exchange, chain) -> downstream.filter(exchange))));
+        // Listed fifth, as on beaver-identity; the route locator orders unordered filters by position
+        GatewayFilter listed = filter instanceof Ordered ? filter : new OrderedGatewayFilter(filter, 5);
+        Route route = Route.async().id("beaver-identity").uri("http://127.0.0.1:9")
+                .predicate(exchange -> true).filter(listed).build();
+
+        MockServerWebExchange first = MockServerWebExchange.from(request("user-1"));
+        first.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+        handler.handle(first).block();
+        limited.set(true);
+        MockServerWebExchange second = MockServerWebExchange.from(request("user-1"));
+        second.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+        handler.handle(second).block();
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, second.getResponse().getStatusCode());
+        assertEquals(0, cache.hits());
+        assertEquals(1, downstreamRequests.size());
+    }
+
+    private GatewayFilter newFilter() {
+        ResponseCacheFilter.Config config = new ResponseCacheFilter.Config();
+        config.setRouteId("beaver-identity");
+        return new ResponseCacheFilter(cache).apply(config);
+    }
+
+    private MockServerHttpResponse exchange(String userId, GatewayFilterChain downstream) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request(userId));
+        filter.filter(exchange, downstream).block();
+        return exchange.getResponse();
+    }
+
+    private static MockServerHttpRequest.BaseBuilder<?> request(String userId) {
+        return MockServerHttpRequest.get("/identity/users/me")
+                .header(ContextEnrichmentFilter.USER_ID_HEADER, userId)
+                .header(ContextEnrichmentFilter.WORKSPACE_ID_HEADER, "ws-1");
+    }
+
+    private GatewayFilterChain respond(HttpStatus status, String cacheControl, String etag, String body) {
+        return exchange -> {
+            downstreamRequests.add(exchange.getRequest().getHeaders());
+            exchange.getResponse().setStatusCode(status);
+            if (cacheControl != null) {
+                exchange.getResponse().getHeaders().setCacheControl(cacheControl);
+            }
+            if (etag != null) {
+                exchange.getResponse().getHeaders().setETag(etag);
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap(bytes)));
+        };
+    }
+
+    private record OrderedFilter(int order, GlobalFilter delegate) implements GlobalFilter, Ordered {
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+            return delegate.filter(exchange, chain);
+        }
+
+        @Override
+        public int getOrder() {
+            return order;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.beaver.gateway.logging;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writesOneEscapedJsonLinePerRecord() throws Exception {
+        Path file = dir.resolve("access.log");
+        try (AccessLog accessLog = new AccessLog(file, 64, 16, 1 << 20, 2)) {
+            accessLog.record(1_700_000_000_000L, "beaver-identity", "GET", "/identity/users/\"me\"\n", 200,
+                    TimeUnit.MICROSECONDS.toNanos(1_234), "user-ü", "ws-1", -1, 42);
+        }
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(List.of("{\"ts\":1700000000000,\"route\":\"beaver-identity\",\"method\":\"GET\","
+                + "\"path\":\"/identity/users/\\\"me\\\"\\u000a\",\"status\":200,\"latency_us\":1234,"
+                + "\"user_id\":\"user-ü\",\"workspace_id\":\"ws-1\",\"bytes_in\":-1,\"bytes_out\":42}"), lines);
+    }
+
+    @Test
+    void ringDropsInsteadOfBlockingWhenFull() {
+        AccessLogRing ring = new AccessLogRing(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i, "r", "GET", "/", 200, 0, null, null, 0, 0));
+        }
+
+        assertFalse(ring.offer(4, "r", "GET", "/", 200, 0, null, null, 0, 0));
+        assertEquals(1, ring.dropped());
+
+        int slot = ring.poll();
+        assertEquals(0, ring.timestamps[slot]);
+        ring.release(slot);
+        assertTrue(ring.offer(5, "r", "GET", "/", 200, 0, null, null, 0, 0));
+    }
+
+    @Test
+    void concurrentProducersLoseNothingThatWasAccepted() throws Exception {
+        Path file = dir.resolve("access.log");
+        int threads = 8;
+        int perThread = 20_000;
+        long accepted;
+        try (AccessLog accessLog = new AccessLog(file, 1_024, 256, Long.MAX_VALUE, 0)) {
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            CountDownLatch done = new CountDownLatch(threads);
+            for (int t = 0; t < threads; t++) {
+                pool.execute(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        accessLog.record(i, "r", "GET", "/", 200, 0, null, null, 0, 0);
+                    }
+                    done.countDown();
+                });
+            }
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+            pool.shutdown();
+            accepted = (long) threads * perThread - accessLog.dropped();
+        }
+
+        try (var lines = Files.lines(file)) {
+            assertEquals(accepted, lines.count());
+        }
+    }
+
+    @Test
+    void recordsLostToAFailedWriteAreNotCountedAsWritten() throws Exception {
+        // The log's directory is a regular file, so every write fails
+        Path blocked = Files.createFile(dir.resolve("blocked"));
+        AccessLog accessLog = new AccessLog(blocked.resolve("access.log"), 64, 16, 1 << 20, 2);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(accessLog.record(i, "r", "GET", "/", 200, 0, null, null, 0, 0));
+        }
+        accessLog.close();
+
+        assertEquals(0, accessLog.written());
+        assertEquals(3, accessLog.discarded());
+        assertTrue(accessLog.writeFailures() > 0);
+    }
+
+    @Test
+    void rollsBySizeAndKeepsBoundedHistory() throws Exception {
+        Path file = dir.resolve("access.log");
+        try (AccessLog accessLog = new AccessLog(file, 64, 1, 200, 2)) {
+            for (int i = 0; i < 20; i++) {
+                while (!accessLog.record(i, "route", "GET", "/identity/users/me", 200, 0, "u", "w", 0, 0)) {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+
+        assertTrue(Files.exists(file.resolveSibling("access.log.1")));
+        assertTrue(Files.exists(file.resolveSibling("access.log.2")));
+        assertFalse(Files.exists(file.resolveSibling("access.log.3")));
+    }
+}
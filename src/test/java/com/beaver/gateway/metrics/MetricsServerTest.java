@@ -0,0 +1,36 @@
+package com.beaver.gateway.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class MetricsServerTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private MetricsServer metricsServer;
+
+    @Test
+    void publicPortDoesNotServeMetrics() {
+        client.get().uri("/metrics").exchange()
+                .expectStatus().isNotFound()
+                .expectBody(String.class).value(body -> assertFalse(body != null && body.contains("gateway_")));
+    }
+
+    @Test
+    void managementPortServesMetrics() {
+        String body = WebTestClient.bindToServer().baseUrl("http://127.0.0.1:" + metricsServer.port()).build()
+                .get().uri("/metrics").exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("Content-Type", PrometheusExporter.CONTENT_TYPE)
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        assertTrue(body.contains("# TYPE gateway_rate_limit_decisions_total counter"));
+    }
+}
@@ -0,0 +1,60 @@
+package com.beaver.gateway.metrics;
+
+import com.beaver.auth.jwt.JwtService;
+import com.beaver.gateway.auth.JwtClaimsCache;
+import com.beaver.gateway.cache.ResponseCache;
+import com.beaver.gateway.concurrency.ConcurrencyLimiters;
+import com.beaver.gateway.auth.TokenRevocationList;
+import com.beaver.gateway.logging.AccessLog;
+import com.beaver.gateway.ratelimit.BucketStore;
+import com.beaver.gateway.ratelimit.ClusterRateLimiter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PrometheusExporterTest {
+
+    @TempDir
+    Path logDir;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void rendersHistogramsCountersAndGauges() {
+        GatewayMetrics metrics = new GatewayMetrics();
+        LatencyHistogram latency = metrics.filterLatency(GatewayMetrics.AUTHENTICATION, "beaver-identity");
+        latency.record(TimeUnit.MICROSECONDS.toNanos(3));
+        latency.record(TimeUnit.MICROSECONDS.toNanos(40));
+        latency.record(TimeUnit.SECONDS.toNanos(1));
+        metrics.rateLimitDecision(GatewayMetrics.KeyClass.USER, false);
+        metrics.jwtOutcome(GatewayMetrics.JwtOutcome.ACCEPTED);
+
+        String body;
+        try (AccessLog accessLog = new AccessLog(logDir.resolve("access.log"), 16, 16, 1 << 20, 1)) {
+            PrometheusExporter exporter = new PrometheusExporter(metrics, new BucketStore(1_024, TimeUnit.MINUTES.toNanos(2)),
+                    new JwtClaimsCache(mock(JwtService.class), new ObjectMapper(), 100, Duration.ofMinutes(5)),
+                    new TokenRevocationList("", "", 1_024, Duration.ofSeconds(2)), accessLog,
+                    new ResponseCache(1 << 20, 1 << 16, Duration.ofMinutes(5), false),
+                    new ConcurrencyLimiters(Map.of(), group -> null), mock(ObjectProvider.class));
+            body = exporter.scrape();
+        }
+
+        assertTrue(body.contains("gateway_filter_duration_seconds_bucket{filter=\"authentication\",route=\"beaver-identity\",le=\"5.0E-6\"} 1\n"));
+        assertTrue(body.contains("gateway_filter_duration_seconds_bucket{filter=\"authentication\",route=\"beaver-identity\",le=\"5.0E-5\"} 2\n"));
+        assertTrue(body.contains("gateway_filter_duration_seconds_bucket{filter=\"authentication\",route=\"beaver-identity\",le=\"+Inf\"} 3\n"));
+        assertTrue(body.contains("gateway_filter_duration_seconds_count{filter=\"authentication\",route=\"beaver-identity\"} 3\n"));
+        assertTrue(body.contains("gateway_rate_limit_decisions_total{key_class=\"user\",outcome=\"rejected\"} 1\n"));
+        assertTrue(body.contains("gateway_rate_limit_buckets_max 1024\n"));
+        assertTrue(body.contains("gateway_jwt_validations_total{outcome=\"accepted\"} 1\n"));
+        assertTrue(body.contains("gateway_access_log_records_total{result=\"dropped\"} 0\n"));
+        assertFalse(body.contains("gateway_rate_limit_cluster"), "cluster series only appear when clustering is on");
+    }
+}
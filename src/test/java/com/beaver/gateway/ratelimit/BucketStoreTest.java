@@ -0,0 +1,88 @@
+package com.beaver.gateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BucketStoreTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long INTERVAL = SECOND / 5;
+    private static final long TOLERANCE = INTERVAL * 10;
+
+    @Test
+    void heapStaysFlatUnderMillionsOfUniqueClients() {
+        BucketStore store = new BucketStore(65_536, 120 * SECOND);
+        long now = System.nanoTime();
+        // Warm up so class loading and JIT allocations are not attributed to the spray
+        for (int i = 0; i < 100_000; i++) {
+            consume(store, ClientKeys.ofIpv4(i), now);
+        }
+        long before = usedHeapAfterGc();
+
+        int uniqueClients = 3_000_000;
+        for (int i = 0; i < uniqueClients; i++) {
+            consume(store, ClientKeys.ofIpv4(0x0A00_0000 + i), now);
+        }
+        long after = usedHeapAfterGc();
+
+        assertTrue(store.size() <= store.capacity(), "bucket count must never exceed the cap");
+        assertTrue(store.capacityEvictions() >= uniqueClients - store.capacity());
+        assertTrue(after - before < 8 * 1024 * 1024,
+                "heap grew by " + (after - before) + " bytes for " + uniqueClients + " unique clients");
+        assertEquals(2L * Long.BYTES * 65_536, store.memoryBytes());
+    }
+
+    @Test
+    void idleBucketsAreReusedBeforeActiveOnes() {
+        BucketStore store = new BucketStore(BucketStore.PROBE_WINDOW, SECOND);
+        for (int i = 0; i < BucketStore.PROBE_WINDOW; i++) {
+            consume(store, ClientKeys.ofIpv4(i), 0);
+        }
+
+        consume(store, ClientKeys.ofIpv4(1_000), 5 * SECOND);
+
+        assertEquals(1, store.idleEvictions());
+        assertEquals(0, store.capacityEvictions());
+        assertEquals(BucketStore.PROBE_WINDOW, store.size());
+    }
+
+    @Test
+    void refillIsContinuousAndRetryAfterIsExact() {
+        BucketStore store = new BucketStore(1_024, 120 * SECOND);
+        int slot = store.slotFor(ClientKeys.of("192.168.1.10"), 0);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(9 - i, store.tryConsume(slot, INTERVAL, TOLERANCE, INTERVAL, 0));
+        }
+        long rejected = store.tryConsume(slot, INTERVAL, TOLERANCE, INTERVAL, 0);
+        assertFalse(RateLimitDecision.isAllowed(rejected));
+        assertEquals(INTERVAL, RateLimitDecision.retryAfterNanos(rejected));
+
+        assertFalse(RateLimitDecision.isAllowed(store.tryConsume(slot, INTERVAL, TOLERANCE, INTERVAL, INTERVAL - 1)));
+        assertTrue(RateLimitDecision.isAllowed(store.tryConsume(slot, INTERVAL, TOLERANCE, INTERVAL, INTERVAL)));
+    }
+
+    @Test
+    void addressesMapToCompactKeys() {
+        assertEquals(ClientKeys.ofIpv4(0xC0A8_010A), ClientKeys.of("192.168.1.10"));
+        assertEquals(ClientKeys.ofIpv4(0xC0A8_010A), ClientKeys.of("::ffff:192.168.1.10"));
+        assertEquals(ClientKeys.of("2001:db8:1:2::1"), ClientKeys.of("2001:db8:1:2:ffff::9"));
+        assertNotEquals(ClientKeys.of("2001:db8:1:2::1"), ClientKeys.of("2001:db8:1:3::1"));
+        assertNotEquals(ClientKeys.of("unknown"), ClientKeys.of("192.168.1.10"));
+    }
+
+    private static void consume(BucketStore store, long key, long now) {
+        store.tryConsume(store.slotFor(key, now), INTERVAL, TOLERANCE, INTERVAL, now);
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
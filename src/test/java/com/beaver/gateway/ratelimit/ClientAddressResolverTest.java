@@ -0,0 +1,133 @@
+package com.beaver.gateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientAddressResolverTest {
+
+    private final ClientAddressResolver resolver =
+            new ClientAddressResolver(List.of("10.0.0.0/8", "192.0.2.10", "2001:db8:ffff::/48"));
+
+    @Test
+    void forwardingHeadersFromUntrustedPeersAreIgnored() {
+        MockServerHttpRequest request = MockServerHttpRequest.get("/identity/users/me")
+                .remoteAddress(new InetSocketAddress("198.51.100.4", 5000))
+                .header("X-Forwarded-For", "203.0.113.7")
+                .header("X-Real-IP", "203.0.113.8")
+                .build();
+
+        assertEquals(ClientKeys.of("198.51.100.4"), resolver.resolve(request));
+    }
+
+    @Test
+    void forwardedForIsWalkedRightToLeftPastTrustedHops() {
+        // The client forged the leftmost hop; 203.0.113.7 is what our edge proxy actually saw
+        MockServerHttpRequest request = MockServerHttpRequest.get("/")
+                .remoteAddress(new InetSocketAddress("10.1.2.3", 5000))
+                .header("X-Forwarded-For", "1.1.1.1, 203.0.113.7,192.0.2.10 , 10.9.9.9")
+                .build();
+
+        assertEquals(ClientKeys.of("203.0.113.7"), resolver.resolve(request));
+        assertEquals("203.0.113.7", resolver.resolveAddress(request));
+    }
+
+    @Test
+    void repeatedHeaderLinesAreWalkedFromTheLast() {
+        MockServerHttpRequest request = MockServerHttpRequest.get("/")
+                .remoteAddress(new InetSocketAddress("10.1.2.3", 5000))
+                .header("X-Forwarded-For", "203.0.113.7")
+                .header("X-Forwarded-For", "198.51.100.4, 10.0.0.1")
+                .build();
+
+        assertEquals(ClientKeys.of("198.51.100.4"), resolver.resolve(request));
+    }
+
+    @Test
+    void malformedHopStopsAtNearestTrustedProxy() {
+        MockServerHttpRequest request = MockServerHttpRequest.get("/")
+                .remoteAddress(new InetSocketAddress("10.1.2.3", 5000))
+                .header("X-Forwarded-For", "203.0.113.7, not-an-address, 10.0.0.1")
+                .build();
+
+        assertEquals(ClientKeys.of("10.0.0.1"), resolver.resolve(request));
+    }
+
+    @Test
+    void realIpIsUsedOnlyWithoutForwardedFor() {
+        MockServerHttpRequest request = MockServerHttpRequest.get("/")
+                .remoteAddress(new InetSocketAddress("10.1.2.3", 5000))
+                .header("X-Real-IP", "203.0.113.9")
+                .build();
+
+        assertEquals(ClientKeys.of("203.0.113.9"), resolver.resolve(request));
+    }
+
+    @Test
+    void ipv6HopsAreKeyedByPrefixIncludingPortsAndBrackets() {
+        MockServerHttpRequest request = MockServerHttpRequest.get("/")
+                .remoteAddress(new InetSocketAddress("2001:db8:ffff::1", 5000))
+                .header("X-Forwarded-For", "[2001:db8:1:2:aaaa::1]:443, 2001:db8:ffff:0:0:0:0:2, 10.0.0.1:8080")
+                .build();
+
+        assertEquals(ClientKeys.of("2001:db8:1:2::9"), resolver.resolve(request));
+        assertEquals(ClientKeys.of(resolver.resolveAddress(request)), resolver.resolve(request));
+    }
+
+    @Test
+    void missingPeerAddressIsUnknown() {
+        assertEquals(ClientAddressResolver.UNKNOWN, resolver.resolve(MockServerHttpRequest.get("/").build()));
+    }
+
+    @Test
+    void parserAgreesWithInetAddress() throws Exception {
+        String[] literals = {"::", "::1", "1::", "fe80::1%eth0", "2001:db8::ffff:192.0.2.1", "::ffff:10.0.0.1",
+                "2001:DB8:0:0:8:800:200C:417A", "1:2:3:4:5:6:7::", "::2:3:4:5:6:7:8"};
+        long[] out = new long[2];
+        for (String literal : literals) {
+            assertTrue(AddressParser.parse(literal, 0, literal.length(), out), literal);
+            int zone = literal.indexOf('%');
+            byte[] expected = java.net.InetAddress.getByName(zone < 0 ? literal : literal.substring(0, zone)).getAddress();
+            if (expected.length == 4) {
+                assertEquals(0, out[0], literal);
+                assertEquals(AddressParser.IPV4_MAPPED_LO, out[1] & 0xFFFF_FFFF_0000_0000L, literal);
+            } else {
+                assertEquals(readLong(expected, 0), out[0], literal);
+                assertEquals(readLong(expected, 8), out[1], literal);
+            }
+        }
+
+        for (String invalid : new String[]{"", "1.2.3", "1.2.3.256", ":::", "1::2::3", "1:2:3:4:5:6:7:8:9", "12345::", "g::1"}) {
+            assertFalse(AddressParser.parse(invalid, 0, invalid.length(), out), invalid);
+        }
+    }
+
+    @Test
+    void trieMatchesPrefixBoundaries() {
+        CidrTrie trie = CidrTrie.compile(List.of("172.16.0.0/12", "fc00::/7"));
+        long[] out = new long[2];
+
+        assertTrue(contains(trie, "172.31.255.255", out));
+        assertFalse(contains(trie, "172.32.0.0", out));
+        assertTrue(contains(trie, "fdff::1", out));
+        assertFalse(contains(trie, "fe00::1", out));
+        assertThrows(IllegalArgumentException.class, () -> CidrTrie.compile(List.of("10.0.0.0/33")));
+    }
+
+    private static boolean contains(CidrTrie trie, String address, long[] out) {
+        assertTrue(AddressParser.parse(address, 0, address.length(), out));
+        return trie.contains(out[0], out[1]);
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+}
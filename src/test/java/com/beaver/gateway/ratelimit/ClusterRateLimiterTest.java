@@ -0,0 +1,211 @@
+package com.beaver.gateway.ratelimit;
+
+import com.beaver.gateway.config.RateLimitProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClusterRateLimiterTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long WINDOW_MILLIS = 30_000;
+    private static final int LEASE_SIZE = 5;
+
+    private EmbeddedRespServer server;
+
+    @BeforeEach
+    void startStore() throws Exception {
+        server = new EmbeddedRespServer();
+    }
+
+    @AfterEach
+    void stopStore() throws Exception {
+        server.close();
+    }
+
+    @Test
+    void replicasShareOneClusterBudget() throws Exception {
+        // 30 tokens per 30s window across the cluster, however many replicas there are
+        ClusterRateLimiter nodeA = node(new RateLimitProperties.Bucket(30, 1));
+        ClusterRateLimiter nodeB = node(new RateLimitProperties.Bucket(30, 1));
+        RouteLimits limits = nodeA.limitsFor("identity");
+
+        int allowed = 0;
+        int consecutiveDenials = 0;
+        while (consecutiveDenials < 200) {
+            boolean any = false;
+            for (ClusterRateLimiter node : new ClusterRateLimiter[]{nodeA, nodeB}) {
+                if (RateLimitDecision.isAllowed(node.tryAcquire(limits, GatewayRateLimiter.NO_WORKSPACE, 1L))) {
+                    allowed++;
+                    any = true;
+                }
+            }
+            consecutiveDenials = any ? 0 : consecutiveDenials + 1;
+            Thread.sleep(1);
+        }
+
+        assertTrue(server.counter("rl:") >= 30, "store should have handed out the whole window");
+        assertTrue(allowed >= 30, "leased tokens must be usable, allowed " + allowed);
+        assertTrue(allowed <= 30 + 2 * LEASE_SIZE, "overdraft is bounded by one block per node, allowed " + allowed);
+
+        long rejected = nodeA.tryAcquire(limits, GatewayRateLimiter.NO_WORKSPACE, 1L);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(WINDOW_MILLIS - NOW % WINDOW_MILLIS),
+                RateLimitDecision.retryAfterNanos(rejected));
+        nodeA.destroy();
+        nodeB.destroy();
+    }
+
+    @Test
+    void fallsBackToLocalLimitsWhenStoreIsUnreachable() throws Exception {
+        ClusterRateLimiter node = node(new RateLimitProperties.Bucket(3, 1));
+        RouteLimits limits = node.limitsFor("identity");
+        server.close();
+
+        // The first decision overdraws while the lease fails in the background
+        assertTrue(RateLimitDecision.isAllowed(node.tryAcquire(limits, GatewayRateLimiter.NO_WORKSPACE, 1L)));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (node.isStoreAvailable() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertFalse(node.isStoreAvailable());
+        assertEquals(1, node.leaseFailures());
+
+        // The local bucket already counted the first request
+        for (int i = 0; i < 2; i++) {
+            assertTrue(RateLimitDecision.isAllowed(node.tryAcquire(limits, GatewayRateLimiter.NO_WORKSPACE, 1L)));
+        }
+        assertFalse(RateLimitDecision.isAllowed(node.tryAcquire(limits, GatewayRateLimiter.NO_WORKSPACE, 1L)));
+        node.destroy();
+    }
+
+    @Test
+    void windowBudgetIsTheRefillRateNotTheBurst() throws Exception {
+        // Capacity 10 is a per-node burst; the cluster admits 5 per 1s window
+        ClusterRateLimiter node = node(new RateLimitProperties.Bucket(10, 5), 1_000, () -> NOW);
+        int allowed = drain(node, node.limitsFor("identity"));
+
+        assertTrue(allowed >= 5 && allowed <= 5 + 1, "allowed " + allowed);
+        node.destroy();
+    }
+
+    @Test
+    void previousWindowStillCountsAfterTheBoundary() throws Exception {
+        // 5 tokens per 100ms window; the local burst of 100 never gets in the way
+        AtomicLong clock = new AtomicLong(NOW);
+        ClusterRateLimiter node = node(new RateLimitProperties.Bucket(100, 50), 100, clock::get);
+        RouteLimits limits = node.limitsFor("identity");
+
+        int spent = drain(node, limits);
+        assertTrue(spent >= 5 && spent <= 5 + 1, "first window allowed " + spent);
+
+        // Just past the boundary the whole of the previous window is still inside the sliding window
+        clock.set(NOW + 110);
+        int afterBoundary = drain(node, limits);
+        assertTrue(afterBoundary <= 1, "a fixed window would have allowed another 5, allowed " + afterBoundary);
+
+        // Most of the previous window has slid out, so most of the budget is back
+        clock.set(NOW + 190);
+        int later = drain(node, limits);
+        assertTrue(later >= 3 && afterBoundary + later <= 5, "allowed " + afterBoundary + " then " + later);
+        node.destroy();
+    }
+
+    @Test
+    void fallsBackToLocalLimitsWhenTheLeaseQueueIsFull() throws Exception {
+        ClusterRateLimiter node = node(new RateLimitProperties.Bucket(3, 1), WINDOW_MILLIS, 0, () -> NOW);
+        RouteLimits limits = node.limitsFor("identity");
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(RateLimitDecision.isAllowed(node.tryAcquire(limits, GatewayRateLimiter.NO_WORKSPACE, 1L)));
+        }
+        assertFalse(RateLimitDecision.isAllowed(node.tryAcquire(limits, GatewayRateLimiter.NO_WORKSPACE, 1L)));
+        assertEquals(3, node.leaseRejections());
+        assertEquals(0, node.leaseRequests());
+        assertEquals(0, server.counter("rl:"));
+        node.destroy();
+    }
+
+    @Test
+    void pendingLeaseDoesNotDenyTrafficTheLocalBucketAllows() throws Exception {
+        // 50 tokens per 1s window, leased 5 at a time; the local burst of 100 never gets in the way
+        AtomicLong clock = new AtomicLong(NOW);
+        ClusterRateLimiter node = node(new RateLimitProperties.Bucket(100, 50), 1_000, clock::get);
+        RouteLimits limits = node.limitsFor("identity");
+
+        server.holdIncrements();
+        for (int i = 0; i < 4; i++) {
+            assertTrue(RateLimitDecision.isAllowed(node.tryAcquire(limits, GatewayRateLimiter.NO_WORKSPACE, 1L)),
+                    "request " + i + " was denied while the first lease was in flight");
+        }
+        assertEquals(1, node.leaseRequests());
+        server.releaseIncrements();
+        awaitLease(node);
+
+        assertEquals(5, server.counter("rl:"));
+        node.destroy();
+    }
+
+    @Test
+    void unspentLeaseCarriesIntoTheNextWindow() throws Exception {
+        AtomicLong clock = new AtomicLong(NOW);
+        ClusterRateLimiter node = node(new RateLimitProperties.Bucket(100, 50), 1_000, clock::get);
+        RouteLimits limits = node.limitsFor("identity");
+
+        // One request on credit, then a lease of 5 leaves 4 tokens
+        assertTrue(RateLimitDecision.isAllowed(node.tryAcquire(limits, GatewayRateLimiter.NO_WORKSPACE, 1L)));
+        awaitLease(node);
+
+        clock.set(NOW + 1_000);
+        assertTrue(RateLimitDecision.isAllowed(node.tryAcquire(limits, GatewayRateLimiter.NO_WORKSPACE, 1L)));
+        assertEquals(1, node.leaseRequests(), "the inherited tokens should cover the request without a new lease");
+        node.destroy();
+    }
+
+    private static void awaitLease(ClusterRateLimiter node) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (node.pendingLeases() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, node.pendingLeases());
+    }
+
+    private static int drain(ClusterRateLimiter node, RouteLimits limits) throws InterruptedException {
+        int allowed = 0;
+        int consecutiveDenials = 0;
+        while (consecutiveDenials < 200) {
+            if (RateLimitDecision.isAllowed(node.tryAcquire(limits, GatewayRateLimiter.NO_WORKSPACE, 1L))) {
+                allowed++;
+                consecutiveDenials = 0;
+            } else {
+                consecutiveDenials++;
+            }
+            Thread.sleep(1);
+        }
+        return allowed;
+    }
+
+    private ClusterRateLimiter node(RateLimitProperties.Bucket global) {
+        return node(global, WINDOW_MILLIS, () -> NOW);
+    }
+
+    private ClusterRateLimiter node(RateLimitProperties.Bucket global, long windowMillis, LongSupplier clock) {
+        return node(global, windowMillis, 1_024, clock);
+    }
+
+    private ClusterRateLimiter node(RateLimitProperties.Bucket global, long windowMillis, int maxPendingLeases,
+                                    LongSupplier clock) {
+        RateLimitProperties.RouteLimit route = new RateLimitProperties.RouteLimit();
+        route.setGlobal(global);
+        InMemoryRateLimiter local = new InMemoryRateLimiter(new BucketStore(1_024, TimeUnit.MINUTES.toNanos(2)),
+                RouteLimits.compile("default", route), Map.of("identity", RouteLimits.compile("identity", route)));
+        return new ClusterRateLimiter(local, new RespClient("127.0.0.1", server.port(), 1_000),
+                windowMillis, LEASE_SIZE, maxPendingLeases, 60_000, clock);
+    }
+}
@@ -0,0 +1,163 @@
+package com.beaver.gateway.ratelimit;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for a Redis server that understands the handful of RESP commands the
+ * cluster limiter sends.
+ */
+class EmbeddedRespServer implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final List<Socket> connections = new ArrayList<>();
+    private volatile CountDownLatch incrementGate = new CountDownLatch(0);
+
+    EmbeddedRespServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "embedded-resp");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    long counter(String keyPrefix) {
+        return counters.entrySet().stream()
+                .filter(entry -> entry.getKey().startsWith(keyPrefix))
+                .mapToLong(entry -> entry.getValue().get())
+                .sum();
+    }
+
+    /** Holds every {@code INCRBY} reply until {@link #releaseIncrements()}, keeping leases in flight. */
+    void holdIncrements() {
+        incrementGate = new CountDownLatch(1);
+    }
+
+    void releaseIncrements() {
+        incrementGate.countDown();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                synchronized (connections) {
+                    if (serverSocket.isClosed()) {
+                        // Accepted just as close() swept the connections
+                        socket.close();
+                        return;
+                    }
+                    connections.add(socket);
+                }
+                Thread handler = new Thread(() -> serve(socket), "embedded-resp-conn");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException ex) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            while (true) {
+                List<String> command = readCommand(in);
+                if (command == null) {
+                    return;
+                }
+                out.write(execute(command).getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+        } catch (IOException ignored) {
+            // Client went away or the server was closed
+        }
+    }
+
+    private String execute(List<String> command) {
+        switch (command.get(0).toUpperCase()) {
+            case "PING":
+                return "+PONG\r\n";
+            case "INCRBY":
+                awaitGate();
+                long value = counters.computeIfAbsent(command.get(1), key -> new AtomicLong())
+                        .addAndGet(Long.parseLong(command.get(2)));
+                return ":" + value + "\r\n";
+            case "GET": {
+                AtomicLong counter = counters.get(command.get(1));
+                if (counter == null) {
+                    return "$-1\r\n";
+                }
+                String text = Long.toString(counter.get());
+                return "$" + text.length() + "\r\n" + text + "\r\n";
+            }
+            case "PEXPIRE":
+                return counters.containsKey(command.get(1)) ? ":1\r\n" : ":0\r\n";
+            default:
+                return "-ERR unknown command '" + command.get(0) + "'\r\n";
+        }
+    }
+
+    private void awaitGate() {
+        try {
+            incrementGate.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static List<String> readCommand(InputStream in) throws IOException {
+        String header = readLine(in);
+        if (header == null) {
+            return null;
+        }
+        int count = Integer.parseInt(header.substring(1));
+        List<String> args = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = Integer.parseInt(readLine(in).substring(1));
+            byte[] bytes = in.readNBytes(length + 2);
+            args.add(new String(bytes, 0, length, StandardCharsets.UTF_8));
+        }
+        return args;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\r') {
+            if (c == -1) {
+                return null;
+            }
+            line.append((char) c);
+        }
+        in.read();
+        return line.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (connections) {
+            serverSocket.close();
+            for (Socket socket : connections) {
+                socket.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.beaver.gateway.ratelimit;
+
+import com.beaver.gateway.config.RateLimitProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryRateLimiterTest {
+
+    private static final long WORKSPACE = ClientKeys.of("ws-1");
+
+    @Test
+    void usersBehindOneAddressHaveSeparateBudgets() {
+        InMemoryRateLimiter limiter = limiter(route(1, null, null, new RateLimitProperties.Bucket(2, 1)));
+        RouteLimits limits = limiter.limitsFor("identity");
+
+        assertTrue(allowed(limiter, limits, WORKSPACE, "alice"));
+        assertTrue(allowed(limiter, limits, WORKSPACE, "alice"));
+        assertFalse(allowed(limiter, limits, WORKSPACE, "alice"));
+        assertTrue(allowed(limiter, limits, WORKSPACE, "bob"));
+    }
+
+    @Test
+    void workspaceCapIsSharedAndRejectionsAreRefunded() {
+        InMemoryRateLimiter limiter = limiter(route(1, null,
+                new RateLimitProperties.Bucket(2, 1), new RateLimitProperties.Bucket(5, 1)));
+        RouteLimits limits = limiter.limitsFor("identity");
+
+        assertTrue(allowed(limiter, limits, WORKSPACE, "alice"));
+        assertTrue(allowed(limiter, limits, WORKSPACE, "bob"));
+        assertFalse(allowed(limiter, limits, WORKSPACE, "alice"));
+
+        // The rejected request must not have spent alice's own budget
+        for (int i = 0; i < 4; i++) {
+            assertTrue(allowed(limiter, limits, InMemoryRateLimiter.NO_WORKSPACE, "alice"));
+        }
+        assertFalse(allowed(limiter, limits, InMemoryRateLimiter.NO_WORKSPACE, "alice"));
+    }
+
+    @Test
+    void routeCostDrawsMultipleTokensAndGlobalCapsEveryone() {
+        InMemoryRateLimiter limiter = limiter(route(3, new RateLimitProperties.Bucket(6, 1),
+                null, new RateLimitProperties.Bucket(100, 1)));
+        RouteLimits limits = limiter.limitsFor("identity");
+
+        assertTrue(allowed(limiter, limits, InMemoryRateLimiter.NO_WORKSPACE, "10.0.0.1"));
+        assertTrue(allowed(limiter, limits, InMemoryRateLimiter.NO_WORKSPACE, "10.0.0.2"));
+        long rejected = limiter.tryAcquire(limits, InMemoryRateLimiter.NO_WORKSPACE, ClientKeys.of("10.0.0.3"), 0);
+        assertEquals(3, RateLimitDecision.retryAfterSeconds(rejected));
+    }
+
+    @Test
+    void unknownRoutesFallBackToDefaultLimits() {
+        InMemoryRateLimiter limiter = limiter(route(1, null, null, new RateLimitProperties.Bucket(1, 1)));
+
+        assertEquals("default", limiter.limitsFor("other").routeId());
+        assertEquals("default", limiter.limitsFor(null).routeId());
+    }
+
+    @Test
+    void configuredRateHoldsUnderHeavyContention() throws Exception {
+        int capacity = 100;
+        int refillRate = 20_000;
+        int threads = 64;
+        InMemoryRateLimiter limiter = limiter(route(1, new RateLimitProperties.Bucket(capacity, refillRate),
+                null, null));
+        RouteLimits limits = limiter.limitsFor("identity");
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        LongAdder granted = new LongAdder();
+        long duration = TimeUnit.MILLISECONDS.toNanos(1_000);
+        long[] window = new long[2];
+
+        for (int t = 0; t < threads; t++) {
+            long client = ClientKeys.ofIpv4(t);
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    long deadline = window[0] + duration;
+                    while (System.nanoTime() < deadline) {
+                        if (RateLimitDecision.isAllowed(limiter.tryAcquire(limits, InMemoryRateLimiter.NO_WORKSPACE, client))) {
+                            granted.increment();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        window[0] = System.nanoTime();
+        start.countDown();
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        window[1] = System.nanoTime();
+        pool.shutdown();
+
+        double elapsedSeconds = (window[1] - window[0]) / 1e9;
+        long ceiling = capacity + (long) Math.ceil(refillRate * elapsedSeconds);
+        long floor = (long) (refillRate * (duration / 1e9) * 0.9);
+        assertTrue(granted.sum() <= ceiling, "granted " + granted.sum() + " above ceiling " + ceiling);
+        assertTrue(granted.sum() >= floor, "granted " + granted.sum() + " below floor " + floor);
+    }
+
+    private static boolean allowed(InMemoryRateLimiter limiter, RouteLimits limits, long workspace, String client) {
+        return RateLimitDecision.isAllowed(limiter.tryAcquire(limits, workspace, ClientKeys.of(client), 0));
+    }
+
+    private static InMemoryRateLimiter limiter(RateLimitProperties.RouteLimit identity) {
+        RateLimitProperties.RouteLimit fallback = new RateLimitProperties.RouteLimit();
+        fallback.setClient(new RateLimitProperties.Bucket(10, 5));
+        return new InMemoryRateLimiter(new BucketStore(1_024, TimeUnit.MINUTES.toNanos(2)),
+                RouteLimits.compile("default", fallback),
+                Map.of("identity", RouteLimits.compile("identity", identity)));
+    }
+
+    private static RateLimitProperties.RouteLimit route(int cost, RateLimitProperties.Bucket global,
+                                                        RateLimitProperties.Bucket workspace,
+                                                        RateLimitProperties.Bucket client) {
+        RateLimitProperties.RouteLimit limit = new RateLimitProperties.RouteLimit();
+        limit.setCost(cost);
+        limit.setGlobal(global);
+        limit.setWorkspace(workspace);
+        limit.setClient(client);
+        return limit;
+    }
+}